@@ -19,8 +19,14 @@ package com.ericsson.tools.cpp.compiler;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -34,6 +40,7 @@ import com.ericsson.tools.cpp.compiler.artifacts.ArtifactFilter;
 import com.ericsson.tools.cpp.compiler.artifacts.ArtifactManager;
 import com.ericsson.tools.cpp.compiler.bundle.BundleProviderManager;
 import com.ericsson.tools.cpp.compiler.dependencies.DependencyExtractor;
+import com.ericsson.tools.cpp.compiler.dependencies.ExtractionBarrier;
 import com.ericsson.tools.cpp.compiler.linking.executables.Executable;
 import com.ericsson.tools.cpp.compiler.linking.executables.ExecutableCollection;
 import com.ericsson.tools.cpp.compiler.publishing.Publisher;
@@ -187,6 +194,33 @@ public abstract class AbstractCompileMojo extends AbstractMojo
 	 */
 	private Map<String, String> compilerArguments;
 
+	/**
+	 * The linker to use for shared libraries and executables, given as a
+	 * map with targets as keys. The key "all" applies to all targets.<br />
+	 * "default" uses the default linker of the compiler, and "auto" the
+	 * fastest linker the compiler can use, of mold, lld and gold. Naming a
+	 * linker, such as "mold", "lld", "gold" or "bfd", uses that linker if
+	 * the compiler can use it.<br />
+	 * <br />
+	 * Example:<br />
+	 * &lt;linkers&gt;<br />
+	 * &nbsp;&nbsp;&lt;linux_64&gt;mold&lt;/linux_64&gt;<br />
+	 * &lt;/linkers&gt;
+	 *
+	 * @parameter
+	 * @since 1.1.0
+	 */
+	private Map<String, String> linkers;
+
+	/**
+	 * The linker to use for targets not given in linkers.<br />
+	 * Can be set via the cpp.linker system property.
+	 *
+	 * @parameter expression="${cpp.linker}" default-value="default"
+	 * @since 1.1.0
+	 */
+	private String linker;
+
 	/**
 	 * Definition of where sources can be found.<br/>
 	 * This is given as a map with each element representing
@@ -227,6 +261,239 @@ public abstract class AbstractCompileMojo extends AbstractMojo
 	 */
 	private Map<String, String> sources;
 
+	/**
+	 * The maximum number of compiler and linker processes to run concurrently.<br />
+	 * All targets are built at the same time, and share this budget with any
+	 * other module built in the same JVM, for instance with mvn -T. If Maven
+	 * is started from make with a jobserver, make's limit is shared as well.<br />
+	 * If undefined, or less than 1, one job per logical core will be used.<br />
+	 * Can be set via the cpp.jobs system property.
+	 *
+	 * @parameter expression="${cpp.jobs}" default-value="0"
+	 * @since 1.1.0
+	 */
+	private int jobs;
+
+	/**
+	 * How files that need to be compiled are divided into compiler invocations.<br />
+	 * "file" runs one compiler process per source file.<br />
+	 * "cost" packs files from the same directory into batches of similar
+	 * estimated cost (the last compilation time, or else the source size), and
+	 * starts the most expensive batches first.<br />
+	 * Can be set via the cpp.compilationBatching system property.
+	 *
+	 * @parameter expression="${cpp.compilationBatching}" default-value="file"
+	 * @since 1.1.0
+	 */
+	private String compilationBatching;
+
+	/**
+	 * How to decide whether a source file needs to be recompiled.<br />
+	 * "timestamp" compares modification times of the source file and its
+	 * included headers with the object file.<br />
+	 * "signature" stores a hash of the source file, its included headers,
+	 * the compiler command line and the compiler version per object file,
+	 * and recompiles only when that hash changes. Touching files without
+	 * changing them does not trigger recompilation, while changing
+	 * compilerArguments does.<br />
+	 * Can be set via the cpp.recompilationStrategy system property.
+	 *
+	 * @parameter expression="${cpp.recompilationStrategy}" default-value="timestamp"
+	 * @since 1.1.0
+	 */
+	private String recompilationStrategy;
+
+	/**
+	 * Whether to use a compilation cache shared by all builds on this machine.<br />
+	 * Object files, depend files and compiler diagnostics are looked up in the
+	 * cache by the contents of the source file and its headers, the compiler
+	 * arguments and the compiler version, and restored instead of compiled.<br />
+	 * Can be set via the cpp.objectCache system property.
+	 *
+	 * @parameter expression="${cpp.objectCache}" default-value="false"
+	 * @since 1.1.0
+	 */
+	private boolean objectCache;
+
+	/**
+	 * The directory of the object cache.<br />
+	 * Can be set via the cpp.objectCache.directory system property.
+	 *
+	 * @parameter expression="${cpp.objectCache.directory}" default-value="${user.home}/.m2/cpp-cache"
+	 * @since 1.1.0
+	 */
+	private File objectCacheDirectory;
+
+	/**
+	 * The maximum size of the object cache in megabytes. When exceeded,
+	 * the least recently used objects are evicted.<br />
+	 * Can be set via the cpp.objectCache.maxSize system property.
+	 *
+	 * @parameter expression="${cpp.objectCache.maxSize}" default-value="5120"
+	 * @since 1.1.0
+	 */
+	private long objectCacheMaxSize;
+
+	/**
+	 * Whether to link extracted dependencies from a store shared by all builds on this machine.<br />
+	 * Each dependency archive is extracted into the store once per target, and the
+	 * extraction directories of projects link to the store instead of holding copies.<br />
+	 * Can be set via the cpp.dependencyStore system property.
+	 *
+	 * @parameter expression="${cpp.dependencyStore}" default-value="false"
+	 * @since 1.1.0
+	 */
+	private boolean dependencyStore;
+
+	/**
+	 * The directory of the dependency store.<br />
+	 * Can be set via the cpp.dependencyStore.directory system property.
+	 *
+	 * @parameter expression="${cpp.dependencyStore.directory}" default-value="${user.home}/.m2/cpp-dependencies"
+	 * @since 1.1.0
+	 */
+	private File dependencyStoreDirectory;
+
+	/**
+	 * The maximum size of the dependency store in megabytes. When exceeded,
+	 * the least recently linked extracted dependencies are evicted.<br />
+	 * Can be set via the cpp.dependencyStore.maxSize system property.
+	 *
+	 * @parameter expression="${cpp.dependencyStore.maxSize}" default-value="10240"
+	 * @since 1.1.0
+	 */
+	private long dependencyStoreMaxSize;
+
+	/**
+	 * Headers to precompile, named as in an include directive.<br />
+	 * The headers are compiled into one precompiled header per target and
+	 * scope, which is included first in every C++ source file.<br />
+	 * <br />
+	 * Example:<br />
+	 * &lt;precompiledHeaders&gt;<br />
+	 * &nbsp;&nbsp;&lt;precompiledHeader&gt;vector&lt;/precompiledHeader&gt;<br />
+	 * &nbsp;&nbsp;&lt;precompiledHeader&gt;boost/shared_ptr.hpp&lt;/precompiledHeader&gt;<br />
+	 * &lt;/precompiledHeaders&gt;
+	 *
+	 * @parameter
+	 * @since 1.1.0
+	 */
+	private List<String> precompiledHeaders;
+
+	/**
+	 * The average number of source files to compile together as one unity
+	 * translation unit. Values below 2 disable unity builds.<br />
+	 * Files are grouped within each source directory in a way that keeps the
+	 * groups stable as files are added and removed. Entry points of executables
+	 * are always compiled on their own.<br />
+	 * Can be set via the cpp.unityBuildSize system property.
+	 *
+	 * @parameter expression="${cpp.unityBuildSize}" default-value="0"
+	 * @since 1.1.0
+	 */
+	private int unityBuildSize;
+
+	/**
+	 * Patterns, relative to the source directories, of files that must not be
+	 * compiled as part of a unity translation unit.<br />
+	 * <br />
+	 * Example:<br />
+	 * &lt;unityExcludes&gt;<br />
+	 * &nbsp;&nbsp;&lt;unityExclude&gt;**&#47;legacy/*.cc&lt;/unityExclude&gt;<br />
+	 * &lt;/unityExcludes&gt;
+	 *
+	 * @parameter
+	 * @since 1.1.0
+	 */
+	private List<String> unityExcludes;
+
+	/**
+	 * The memory in megabytes available to link steps running at the same time.
+	 * The budget is shared by all modules built in the same JVM, and is set by
+	 * the first module that links.<br />
+	 * If undefined, or less than 1, the physical memory of the machine is used.<br />
+	 * Can be set via the cpp.linkMemory system property.
+	 *
+	 * @parameter expression="${cpp.linkMemory}" default-value="0"
+	 * @since 1.1.0
+	 */
+	private int linkMemory;
+
+	/**
+	 * The memory in megabytes that linking a shared library or an executable
+	 * is expected to use. Link steps only run concurrently as long as their
+	 * estimates fit in linkMemory.<br />
+	 * Can be set via the cpp.linkMemoryPerJob system property.
+	 *
+	 * @parameter expression="${cpp.linkMemoryPerJob}" default-value="1024"
+	 * @since 1.1.0
+	 */
+	private int linkMemoryPerJob;
+
+	/**
+	 * Whether to build the static library as a thin archive, which refers
+	 * to the object files instead of containing copies of them. A thin
+	 * archive can't be used without the object directory, so this is only
+	 * suitable for libraries that are linked locally, not for ones that
+	 * are installed or deployed.<br />
+	 * Can be set via the cpp.thinArchive system property.
+	 *
+	 * @parameter expression="${cpp.thinArchive}" default-value="false"
+	 * @since 1.1.0
+	 */
+	private boolean thinArchive;
+
+	/**
+	 * Whether to build with link-time optimization. Sources are compiled
+	 * with -flto, the static library is indexed with the LTO plugin, and
+	 * shared libraries and executables are linked with as many parallel
+	 * LTO partitions as there are free jobs. Activate it in a profile, or
+	 * on the command line, to keep day-to-day builds fast.<br />
+	 * Can be set via the cpp.lto system property.
+	 *
+	 * @parameter expression="${cpp.lto}" default-value="false"
+	 * @since 1.1.0
+	 */
+	private boolean linkTimeOptimization;
+
+	/**
+	 * Profile-guided optimization. "generate" builds instrumented objects, in
+	 * an object directory of their own, whose binaries write profile data to
+	 * profileDirectory when run, for instance by cpp-tester-maven-plugin.
+	 * "use" builds objects optimized with the collected profile data, and
+	 * recompiles them when their profile data changes. "none" does neither.<br />
+	 * Can be set via the cpp.pgo system property.
+	 *
+	 * @parameter expression="${cpp.pgo}" default-value="none"
+	 * @since 1.1.0
+	 */
+	private String profileGuidedOptimization;
+
+	/**
+	 * The directory profile data is collected in, with a directory per
+	 * target. Place it outside the build directory to keep the profile
+	 * data across clean builds.<br />
+	 * Can be set via the cpp.pgo.directory system property.
+	 *
+	 * @parameter expression="${cpp.pgo.directory}" default-value="${project.build.directory}/profile"
+	 * @since 1.1.0
+	 */
+	private File profileDirectory;
+
+	/**
+	 * Compile workers to send preprocessed files to, as a comma separated
+	 * list of host:port/slots, where slots is the number of files sent to
+	 * the worker at the same time. Sources are still preprocessed locally,
+	 * within the jobs limit, while code generation runs on the workers.
+	 * Workers are started with the worker goal. Files are compiled locally
+	 * when no worker is reachable, and with profile-guided optimization.<br />
+	 * Can be set via the cpp.compileWorkers system property.
+	 *
+	 * @parameter expression="${cpp.compileWorkers}"
+	 * @since 1.1.0
+	 */
+	private String compileWorkers;
+
 	protected EnvironmentManager environmentManager;
 	protected BundleProviderManager bundles;
 
@@ -260,32 +527,156 @@ public abstract class AbstractCompileMojo extends AbstractMojo
 
 	protected void run(final boolean testCompilation, final Executable[] executables, final Environment... targetEnvironments) throws MojoExecutionException, MojoFailureException {
 		final CompilerPluginSettings settings = new CompilerPluginSettings(project, sources, outputDirectory, testOutputDirectory, linkerArguments, compilerArguments, testCompilation);
+		settings.setJobs(getLog(), jobs);
+		settings.setCompilationBatching(compilationBatching);
+		settings.setRecompilationStrategy(recompilationStrategy);
+		if( objectCache )
+			settings.setObjectCache(objectCacheDirectory, objectCacheMaxSize * 1024 * 1024);
+		if( dependencyStore )
+			settings.setDependencyStore(dependencyStoreDirectory, dependencyStoreMaxSize * 1024 * 1024);
+		settings.setPrecompiledHeaders(precompiledHeaders);
+		settings.setUnityBuild(unityBuildSize, unityExcludes);
+		settings.setEntryPointFiles(findEntryPointFiles(executables));
+		settings.setLinkMemory(linkMemory, linkMemoryPerJob);
+		settings.setThinArchive(thinArchive);
+		settings.setLinkTimeOptimization(linkTimeOptimization);
+		settings.setProfileGuidedOptimization(profileGuidedOptimization, profileDirectory);
+		settings.setLinkers(linkers, linker);
+		settings.setCompileWorkers(compileWorkers);
+		getLog().debug("Job budget: " + settings.getJobBudget());
 		final ArtifactManager artifactManager = new ArtifactManager(getLog(), project, artifactFactory, artifactResolver, localRepository, remoteRepositories);
 		final TargetCurrencyVerifier targetCurrencyVerifier = new TargetCurrencyVerifier(artifactManager, project, getLog());
 		final Publisher publisher = new Publisher(getLog(), settings);
 
 		targetCurrencyVerifier.ensureCurrency();
 
-		publisher.publish(null);
-		for(TargetManager targetManager : createTargetManagers(settings, targetEnvironments, new DependencyExtractor(getLog(), settings, artifactManager), bundles)) {
-			getLog().info(targetManager.getTargetEnvironment() + ": Starting.");
-
-			final long startTime = Calendar.getInstance().getTimeInMillis();
-			targetManager.compile();
-			final long compilationDoneTime = Calendar.getInstance().getTimeInMillis();
-			
-			final ExecutableCollection executableCollection = new ExecutableCollection(targetManager.getAllClasses(), project.getBasedir(), getLog());
-			executableCollection.addExecutables(executables);
-			getLog().debug(executableCollection.getExecutablesDescriptonString());
-			targetManager.link(executableCollection, new ArtifactFilter(getLog(), "car").filter(project.getArtifacts()));
-			publisher.publish(targetManager.getTargetEnvironment());
-			final long linkingDoneTime = Calendar.getInstance().getTimeInMillis();
-
-			getLog().info(targetManager.getTargetEnvironment() + ": Done.");
-			getLog().debug(targetManager.getTargetEnvironment() + ": Time spent in:" + lineSeparator +
-					"    Compilation:        " + (compilationDoneTime - startTime) + " ms" + lineSeparator +
-					"    Building artifacts: " + (linkingDoneTime - compilationDoneTime) + " ms");
+		final Future<Void> headerPublishing = publishHeadersInBackground(publisher);
+		final DependencyExtractor dependencyExtractor = new DependencyExtractor(getLog(), settings, artifactManager);
+		final List<TargetManager> targetManagers = createTargetManagers(settings, targetEnvironments, dependencyExtractor, bundles);
+		extractDependenciesInBackground(targetManagers, dependencyExtractor);
+		buildConcurrently(targetManagers, executables, publisher);
+		awaitTask(headerPublishing, "publishing headers");
+
+		getLog().debug("File status cache: " + settings.getFileStatusCache());
+	}
+
+	/**
+	 * The noarch headers are published on a thread of their own, since
+	 * compilation reads them from the source directories.
+	 */
+	private Future<Void> publishHeadersInBackground(final Publisher publisher) {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws MojoExecutionException, MojoFailureException {
+					publisher.publish(null);
+					return null;
+				}
+			});
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Starts extracting the dependencies of all targets that may have code to compile
+	 * at once, so that each dependency archive is read a single time for all of them.
+	 * The targets scan and judge their sources meanwhile, and only wait for the
+	 * extraction where they read the extracted dependencies.
+	 */
+	private void extractDependenciesInBackground(final List<TargetManager> targetManagers, final DependencyExtractor dependencyExtractor) {
+		final List<Environment> environments = new ArrayList<Environment>();
+		for(TargetManager targetManager : targetManagers)
+			if( targetManager.hasCodeDirectories() )
+				environments.add(targetManager.getTargetEnvironment());
+
+		if( environments.isEmpty() )
+			return;
+
+		final ExtractionBarrier extractionBarrier = dependencyExtractor.secureAvailabilityOfExtractedDependenciesInBackground(environments.toArray(new Environment[environments.size()]));
+		for(TargetManager targetManager : targetManagers)
+			if( targetManager.hasCodeDirectories() )
+				targetManager.setExtractionBarrier(extractionBarrier);
+	}
+
+	/**
+	 * Builds each target on its own thread. The targets share the job budget
+	 * of the settings, so linking one target overlaps compiling another
+	 * without running more than the configured number of jobs.
+	 */
+	private void buildConcurrently(final List<TargetManager> targetManagers, final Executable[] executables, final Publisher publisher) throws MojoExecutionException, MojoFailureException {
+		if( targetManagers.size() == 1 ) {
+			build(targetManagers.get(0), executables, publisher);
+			return;
 		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(targetManagers.size());
+		try {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for(final TargetManager targetManager : targetManagers) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws MojoExecutionException, MojoFailureException {
+						build(targetManager, executables, publisher);
+						return null;
+					}
+				}));
+			}
+
+			for(Future<Void> future : futures)
+				awaitTask(future, "building target");
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void awaitTask(final Future<Void> future, final String description) throws MojoExecutionException, MojoFailureException {
+		try {
+			future.get();
+		}
+		catch (ExecutionException e) {
+			if( e.getCause() instanceof MojoFailureException )
+				throw (MojoFailureException)e.getCause();
+			if( e.getCause() instanceof MojoExecutionException )
+				throw (MojoExecutionException)e.getCause();
+
+			throw new MojoExecutionException("Unexpected exception caught while " + description + ".", e.getCause());
+		}
+		catch (InterruptedException e) {
+			throw new MojoExecutionException("Interrupted while " + description + ".", e);
+		}
+	}
+
+	private void build(final TargetManager targetManager, final Executable[] executables, final Publisher publisher) throws MojoExecutionException, MojoFailureException {
+		getLog().info(targetManager.getTargetEnvironment() + ": Starting.");
+
+		final long startTime = Calendar.getInstance().getTimeInMillis();
+		targetManager.compile();
+		final long compilationDoneTime = Calendar.getInstance().getTimeInMillis();
+		
+		final ExecutableCollection executableCollection = new ExecutableCollection(targetManager.getAllClasses(), project.getBasedir(), getLog());
+		executableCollection.addExecutables(executables);
+		getLog().debug(executableCollection.getExecutablesDescriptonString());
+		targetManager.link(executableCollection, new ArtifactFilter(getLog(), "car").filter(project.getArtifacts()));
+		publisher.publish(targetManager.getTargetEnvironment());
+		final long linkingDoneTime = Calendar.getInstance().getTimeInMillis();
+
+		getLog().info(targetManager.getTargetEnvironment() + ": Done.");
+		getLog().debug(targetManager.getTargetEnvironment() + ": Time spent in:" + lineSeparator +
+				"    Compilation:        " + (compilationDoneTime - startTime) + " ms" + lineSeparator +
+				"    Building artifacts: " + (linkingDoneTime - compilationDoneTime) + " ms");
+	}
+
+	private Collection<File> findEntryPointFiles(final Executable[] executables) {
+		final Collection<File> entryPointFiles = new ArrayList<File>();
+		if( executables != null )
+			for(Executable executable : executables)
+				entryPointFiles.addAll(executable.findEntryPointFiles(project.getBasedir()));
+
+		return entryPointFiles;
 	}
 
 	protected List<TargetManager> createTargetManagers(final CompilerPluginSettings settings, final Environment[] targetEnvironments, final DependencyExtractor dependencyExtractor, final BundleProviderManager bundles) {
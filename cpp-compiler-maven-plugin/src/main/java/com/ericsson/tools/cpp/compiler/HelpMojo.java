@@ -36,6 +36,11 @@ public class HelpMojo extends AbstractHelpMojo {
 			return true;
 		}
 		
+		if( goal.equals("worker") ) {
+			printWorkerGoal();
+			return true;
+		}
+		
 		if( goal.equals("help") ) {
 			printHelpGoal();
 			return true;
@@ -46,9 +51,10 @@ public class HelpMojo extends AbstractHelpMojo {
 
 	@Override
 	protected void printAllGoals() {
-		getLog().info("This plugin has 3 goals:");
+		getLog().info("This plugin has 4 goals:");
 		printCompileGoal();
 		printTestCompileGoal();
+		printWorkerGoal();
 		printHelpGoal();
 	}
 
@@ -109,6 +115,23 @@ public class HelpMojo extends AbstractHelpMojo {
 		}
 	}
 
+	private void printWorkerGoal() {
+		getLog().info("  worker:       Runs a compile worker, compiling preprocessed files sent by builds using the compileWorkers parameter.");
+		getLog().info("                Runs until stopped. Does not require a project.");
+		getLog().info("");
+
+		if( getDetail() ) {
+			getLog().info("    listenAddress: The address to listen on. Defaults to 127.0.0.1. Use 0.0.0.0 to accept builds from other machines.");
+			getLog().info("        Also settable through the cpp.worker.listen system property.");
+			getLog().info("    port: The port to listen on. Defaults to 3633. Also settable through the cpp.worker.port system property.");
+			getLog().info("    jobs: The maximum number of files to compile concurrently. Defaults to the number of logical cores.");
+			getLog().info("        Also settable through the cpp.jobs system property.");
+			getLog().info("    compilers: Comma separated list of the compilers builds may run. Defaults to gcc,g++,cc,c++.");
+			getLog().info("        Also settable through the cpp.worker.compilers system property.");
+			getLog().info("");
+		}
+	}
+
 	private void printBundleExplanation() {
 		getLog().info("  The plugin itself doesn't contain any target specific build logic. Instead it relies on \"bundles\" (think of them as plugins to the plugin) to build in a given host environment for a given target.");
 		getLog().info("  Bundles are defined as plugin dependencies. The plugin will then ask its bundles whether they are compatible with the execution environment and can build for the target environment.");
@@ -154,6 +177,57 @@ public class HelpMojo extends AbstractHelpMojo {
 		getLog().info("            <all>-O3</all>");
 		getLog().info("            <linux_x86>-DMYDEF</linux_x86>");
 		getLog().info("          </compilerArguments>");
+		getLog().info("    linkTimeOptimization: Whether to compile and link with link-time optimization.");
+		getLog().info("        Defaults to false. Also settable through the cpp.lto system property.");
+		getLog().info("    profileGuidedOptimization: \"generate\" to build binaries that collect profile data when run,");
+		getLog().info("        \"use\" to optimize using the collected profile data, or \"none\". Defaults to none.");
+		getLog().info("        Also settable through the cpp.pgo system property.");
+		getLog().info("    profileDirectory: The directory profile data is collected in. Defaults to ${project.build.directory}/profile.");
+		getLog().info("        Also settable through the cpp.pgo.directory system property.");
+		getLog().info("    linkers: A map of the linkers to use, with targets as keys.");
+		getLog().info("        \"default\" uses the default linker of the compiler, \"auto\" the fastest of mold, lld and gold the compiler can use.");
+		getLog().info("        Other values name a linker, such as mold, lld, gold or bfd, which is used if the compiler can use it.");
+		getLog().info("        Example:");
+		getLog().info("          <linkers>");
+		getLog().info("            <linux_64>mold</linux_64>");
+		getLog().info("          </linkers>");
+		getLog().info("    linker: The linker to use for targets not given in linkers. Defaults to \"default\".");
+		getLog().info("        Also settable through the cpp.linker system property.");
+		getLog().info("    jobs: The maximum number of compiler and linker processes to run concurrently, shared by all targets and modules in the JVM.");
+		getLog().info("        Defaults to the number of logical cores.");
+		getLog().info("        Also settable through the cpp.jobs system property.");
+		getLog().info("    compilationBatching: How files are divided into compiler invocations.");
+		getLog().info("        \"file\" (default) compiles each file in its own process.");
+		getLog().info("        \"cost\" packs files from the same directory into batches of similar size.");
+		getLog().info("        Also settable through the cpp.compilationBatching system property.");
+		getLog().info("    recompilationStrategy: How to decide whether a file needs to be recompiled.");
+		getLog().info("        \"timestamp\" (default) compares modification times.");
+		getLog().info("        \"signature\" compares hashes of sources, headers, compiler arguments and compiler version.");
+		getLog().info("        Also settable through the cpp.recompilationStrategy system property.");
+		getLog().info("    objectCache: Whether to use a compilation cache shared by all builds on this machine.");
+		getLog().info("        Defaults to false. Also settable through the cpp.objectCache system property.");
+		getLog().info("    objectCacheDirectory: The directory of the object cache.");
+		getLog().info("        Defaults to ~/.m2/cpp-cache. Also settable through the cpp.objectCache.directory system property.");
+		getLog().info("    objectCacheMaxSize: The maximum size of the object cache in megabytes.");
+		getLog().info("        Defaults to 5120. Also settable through the cpp.objectCache.maxSize system property.");
+		getLog().info("    dependencyStore: Whether to link extracted dependencies from a store shared by all builds on this machine.");
+		getLog().info("        Defaults to false. Also settable through the cpp.dependencyStore system property.");
+		getLog().info("    dependencyStoreDirectory: The directory of the dependency store.");
+		getLog().info("        Defaults to ~/.m2/cpp-dependencies. Also settable through the cpp.dependencyStore.directory system property.");
+		getLog().info("    dependencyStoreMaxSize: The maximum size of the dependency store in megabytes.");
+		getLog().info("        Defaults to 10240. Also settable through the cpp.dependencyStore.maxSize system property.");
+		getLog().info("    precompiledHeaders: Headers to precompile and include first in every C++ source file.");
+		getLog().info("    unityBuildSize: The average number of source files to compile together as one unit.");
+		getLog().info("        Defaults to 0, disabling unity builds. Also settable through the cpp.unityBuildSize system property.");
+		getLog().info("    unityExcludes: Patterns of source files to compile on their own in unity builds.");
+		getLog().info("    linkMemory: The memory in megabytes available to link steps running at the same time.");
+		getLog().info("        Defaults to the physical memory. Also settable through the cpp.linkMemory system property.");
+		getLog().info("    linkMemoryPerJob: The memory in megabytes a shared library or executable link is expected to use.");
+		getLog().info("        Defaults to 1024. Also settable through the cpp.linkMemoryPerJob system property.");
+		getLog().info("    thinArchive: Whether the static library refers to the object files instead of containing them.");
+		getLog().info("        Only for libraries that aren't installed or deployed. Defaults to false. Also settable through the cpp.thinArchive system property.");
+		getLog().info("    compileWorkers: Compile workers to send preprocessed files to, as a comma separated list of host:port/slots.");
+		getLog().info("        Workers are started with the worker goal. Also settable through the cpp.compileWorkers system property.");
 		getLog().info("    sources: A map of source directories.");
 		getLog().info("        This map can be used to control the location of sources.");
 		getLog().info("        It can also be used to map multiple target sources to one directory.");
@@ -19,7 +19,9 @@ package com.ericsson.tools.cpp.compiler;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -31,10 +33,15 @@ import com.ericsson.tools.cpp.compiler.bundle.BundleProviderManager;
 import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
 import com.ericsson.tools.cpp.compiler.compilation.CompilationOverseer;
 import com.ericsson.tools.cpp.compiler.dependencies.DependencyExtractor;
+import com.ericsson.tools.cpp.compiler.dependencies.ExtractionBarrier;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.compiler.files.UnityBuildPlanner;
 import com.ericsson.tools.cpp.compiler.linking.AbstractLinker;
+import com.ericsson.tools.cpp.compiler.linking.LinkTaskGraph;
+import com.ericsson.tools.cpp.compiler.linking.executables.AbstractExecutableLinker;
 import com.ericsson.tools.cpp.compiler.linking.executables.Executable;
 import com.ericsson.tools.cpp.compiler.linking.executables.ExecutableCollection;
+import com.ericsson.tools.cpp.compiler.linking.staticlib.StaticArchiver;
 import com.ericsson.tools.cpp.compiler.linking.staticlib.StaticLinker;
 import com.ericsson.tools.cpp.compiler.settings.CompilerPluginSettings;
 import com.ericsson.tools.cpp.tools.FileFinder;
@@ -49,7 +56,10 @@ public class TargetManager {
 	private Collection<NativeCodeFile> allClasses;
 	private Collection<AbstractLinker> linkers;
 	private CompilationOverseer compilationOverseer;
+	private StaticArchiver staticArchiver;
+	private Collection<File> libsToLink;
 	private final DependencyExtractor dependencyExtractor;
+	private ExtractionBarrier extractionBarrier;
 	private final BundleProviderManager bundles;
 	private final Environment hostEnvironment;
 	private final boolean linkShared;
@@ -70,8 +80,20 @@ public class TargetManager {
 			return;
 		}
 
-		dependencyExtractor.secureAvailabilityOfExtractedDependencies(getTargetEnvironment());
-		compiledClasses.addAll(getCompilationOverseer().compile());
+		if( extractionBarrier == null )
+			extractionBarrier = dependencyExtractor.secureAvailabilityOfExtractedDependenciesInBackground(getTargetEnvironment());
+
+		final StaticArchiver archiver = new StaticArchiver(log, settings, targetEnvironment);
+		archiver.start();
+		try {
+			compiledClasses.addAll(getCompilationOverseer().compile(archiver));
+			archiver.finish(getAllClasses());
+		}
+		finally {
+			archiver.stop();
+		}
+
+		staticArchiver = archiver;
 	}
 
 	public void link(final ExecutableCollection executables, final Collection<Artifact> dependencies) throws MojoExecutionException, MojoFailureException {
@@ -80,20 +102,54 @@ public class TargetManager {
 			return;
 		}
 		
-		final Collection<File> libsToLink = findLibsToLink();
+		if( extractionBarrier != null )
+			extractionBarrier.await();
+
+		final LinkTaskGraph graph = LinkTaskGraph.createShared(log, settings.getJobBudget(), settings.getLinkMemory());
+		LinkTaskGraph.Node staticLibrary = null;
+		for(AbstractLinker linker : getLinkers(executables)) {
+			if( linker instanceof StaticLinker )
+				staticLibrary = graph.add("static library", 0, createLinkTask(linker));
+			else
+				graph.add(linker instanceof AbstractExecutableLinker ? linker.toString() : "shared library", settings.getLinkMemoryPerJob(), createLinkTask(linker), staticLibrary);
+		}
 
-		for(AbstractLinker linker : getLinkers(executables))
-			linker.link(getAllClasses(), compiledClasses, findLibsToLink());
+		graph.execute();
 
 		if(settings.isTestCompilation())
-			copySharedLibDependencies(libsToLink, settings.getTestRuntimeDirectory(targetEnvironment));
+			copySharedLibDependencies(getLibsToLink(), settings.getTestRuntimeDirectory(targetEnvironment));
+	}
+
+	private LinkTaskGraph.LinkTask createLinkTask(final AbstractLinker linker) {
+		return new LinkTaskGraph.LinkTask() {
+			@Override
+			public void link() throws MojoExecutionException, MojoFailureException {
+				linker.link(getAllClasses(), compiledClasses, getLibsToLink());
+			}
+		};
+	}
+
+	/**
+	 * @param extractionBarrier	The extraction of dependencies already started for this target
+	 */
+	public void setExtractionBarrier(final ExtractionBarrier extractionBarrier) {
+		this.extractionBarrier = extractionBarrier;
+	}
+
+	/**
+	 * Tells without scanning for sources whether the target may have any code to
+	 * compile, so that its dependencies can be extracted while the sources are scanned.
+	 */
+	public boolean hasCodeDirectories() {
+		return settings.getCodeDirectory(null, settings.isTestCompilation()).exists()
+			|| settings.getCodeDirectory(targetEnvironment, settings.isTestCompilation()).exists();
 	}
 
 	public Environment getTargetEnvironment() {
 		return targetEnvironment;
 	}
 
-	public Collection<NativeCodeFile> getAllClasses() {
+	public Collection<NativeCodeFile> getAllClasses() throws MojoExecutionException {
 		if( allClasses == null )
 			allClasses = findAllCodeFiles();
 
@@ -110,7 +166,7 @@ public class TargetManager {
 	private Collection<AbstractLinker> createLinkers(final ExecutableCollection executables) throws MojoExecutionException, MojoFailureException {
 		Collection<AbstractLinker> linkers = new ArrayList<AbstractLinker>();
 
-		linkers.add(new StaticLinker(log, settings, targetEnvironment));
+		linkers.add(new StaticLinker(log, settings, targetEnvironment, staticArchiver));
 
 		if(linkShared)
 			linkers.add(createSharedLinker());
@@ -133,6 +189,7 @@ public class TargetManager {
 		AbstractCompiler compiler = bundles.selectCompiler(hostEnvironment, targetEnvironment, settings);
 		if (compiler == null)
 			throw new MojoExecutionException("Don't know of any compiler for target environment " + targetEnvironment.getName() + " compatible with current host environment (" + hostEnvironment.getName() + "). See debug printouts for details of the compatibility check.");
+		compiler.setExtractionBarrier(extractionBarrier);
 		return compiler;
 	}
 
@@ -154,26 +211,68 @@ public class TargetManager {
 		return builder;
 	}
 
-	private Collection<NativeCodeFile> findAllCodeFiles() {
+	private Collection<NativeCodeFile> findAllCodeFiles() throws MojoExecutionException {
 		Collection<NativeCodeFile> list = new ArrayList<NativeCodeFile>();
-		collectNativeCodeFiles(settings.getCodeDirectory(null, settings.isTestCompilation()), list);
-		collectNativeCodeFiles(settings.getCodeDirectory(targetEnvironment, settings.isTestCompilation()), list);
+		final UnityBuildPlanner unityBuildPlanner = createUnityBuildPlanner();
+		collectNativeCodeFiles(settings.getCodeDirectory(null, settings.isTestCompilation()), list, unityBuildPlanner);
+		collectNativeCodeFiles(settings.getCodeDirectory(targetEnvironment, settings.isTestCompilation()), list, unityBuildPlanner);
+
+		if( unityBuildPlanner != null && unityBuildPlanner.removeObsoleteUnits() ) {
+			final File libFile = StaticLinker.getLibraryFile(settings, targetEnvironment);
+			if( libFile.exists() ) {
+				log.info(getTargetEnvironment() + ": Unity units were removed. Rebuilding " + libFile.getName() + ".");
+				libFile.delete();
+				settings.getFileStatusCache().invalidate(libFile);
+			}
+		}
+
 		return list;
 	}
 
-	private void collectNativeCodeFiles(final File sourceDirectory, final Collection<NativeCodeFile> fileList) {
+	private UnityBuildPlanner createUnityBuildPlanner() {
+		if( settings.getUnityBuildSize() < 2 )
+			return null;
+
+		final Collection<File> excludedFiles = new HashSet<File>(settings.getEntryPointFiles());
+		for(File sourceDirectory : Arrays.asList(settings.getCodeDirectory(null, settings.isTestCompilation()), settings.getCodeDirectory(targetEnvironment, settings.isTestCompilation())))
+			for(String pattern : settings.getUnityExcludes())
+				for(File file : new FileFinder(sourceDirectory, pattern).getFiles())
+					excludedFiles.add(file.getAbsoluteFile());
+
+		return new UnityBuildPlanner(log, settings.getUnityBuildSize(), excludedFiles, settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation()));
+	}
+
+	private void collectNativeCodeFiles(final File sourceDirectory, final Collection<NativeCodeFile> fileList, final UnityBuildPlanner unityBuildPlanner) throws MojoExecutionException {
 		if( !sourceDirectory.exists() ) {
 			log.debug("Source directory " + sourceDirectory + " doesn't exist.");
 		}
 
+		final Collection<NativeCodeFile> codeFiles = new ArrayList<NativeCodeFile>();
 		for(String suffix : NativeCodeFile.SOURCE_SUFFIXES)
 			for(String fileName : new FileFinder(sourceDirectory, "**/*" + suffix).getFilenames())
-				fileList.add(new NativeCodeFile(fileName, sourceDirectory, settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation())));
+				codeFiles.add(new NativeCodeFile(fileName, sourceDirectory, settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation())));
+
+		if( unityBuildPlanner != null )
+			fileList.addAll(unityBuildPlanner.plan(sourceDirectory, codeFiles));
+		else
+			fileList.addAll(codeFiles);
 
 		if( fileList.isEmpty() )
 			log.debug("Found no classes in " + sourceDirectory);
 	}
 
+	/**
+	 * The libraries are looked up once, by the first link step that needs them.
+	 * As all steps but the static library depend on it, that includes the static
+	 * library of this project.
+	 */
+	private synchronized Collection<File> getLibsToLink() {
+		if( libsToLink == null )
+			libsToLink = findLibsToLink();
+
+		return libsToLink;
+	}
+
 	private Collection<File> findLibsToLink() {
 		final Collection<File> libs = findLibsToLinkForScope("compile");
 
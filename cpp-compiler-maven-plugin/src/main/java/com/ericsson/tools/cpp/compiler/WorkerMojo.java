@@ -0,0 +1,82 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorker;
+
+
+/**
+ * Runs a compile worker, compiling preprocessed files sent by builds
+ * configured with compileWorkers. Runs until stopped.
+ * 
+ * @goal worker
+ * @requiresProject false
+ * @since 1.1.0
+ */
+public class WorkerMojo extends AbstractMojo {
+	/**
+	 * The address to listen on. Only builds on this machine can reach the
+	 * default; use 0.0.0.0 to accept builds from other machines.
+	 *
+	 * @parameter expression="${cpp.worker.listen}" default-value="127.0.0.1"
+	 */
+	private String listenAddress;
+
+	/**
+	 * The port to listen on.
+	 *
+	 * @parameter expression="${cpp.worker.port}" default-value="3633"
+	 */
+	private int port;
+
+	/**
+	 * The maximum number of files to compile concurrently.<br />
+	 * If undefined, or less than 1, one job per logical core will be used.
+	 *
+	 * @parameter expression="${cpp.jobs}" default-value="0"
+	 */
+	private int jobs;
+
+	/**
+	 * Comma separated list of the compilers builds may run on the worker.
+	 *
+	 * @parameter expression="${cpp.worker.compilers}" default-value="gcc,g++,cc,c++"
+	 */
+	private String compilers;
+
+	public void execute() throws MojoExecutionException {
+		final CompileWorker worker;
+		try {
+			final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(listenAddress), port);
+			worker = new CompileWorker(getLog(), address, jobs < 1 ? Runtime.getRuntime().availableProcessors() : jobs, Arrays.asList(compilers.split(",")));
+			worker.start();
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to start compile worker on " + listenAddress + ":" + port + ".", e);
+		}
+
+		worker.serve();
+	}
+}
@@ -57,7 +57,7 @@ public class ArtifactManager {
 		return new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
 	}
 
-	public Collection<Artifact> getDependencyArtifacts() throws MojoExecutionException {
+	public synchronized Collection<Artifact> getDependencyArtifacts() throws MojoExecutionException {
 		if(!carDependenciesResolved) {
 			resolve(carDependencies);
 			carDependenciesResolved = true;
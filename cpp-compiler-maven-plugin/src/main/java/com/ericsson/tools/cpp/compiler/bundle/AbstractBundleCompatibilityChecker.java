@@ -16,15 +16,24 @@
 
 package com.ericsson.tools.cpp.compiler.bundle;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.maven.plugin.AbstractMojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
+import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
 import com.ericsson.tools.cpp.tools.CliExecutor;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 
 
 public abstract class AbstractBundleCompatibilityChecker {
+	private static final String[] FAST_LINKERS = { "mold", "lld", "gold" };
+	private static final long PROBE_TIMEOUT = 10000;
+
 	protected final Log log;
+	private final Map<String, Boolean> availableLinkers = new HashMap<String, Boolean>();
 
 	public AbstractBundleCompatibilityChecker(final Log log) {
 		this.log = log;
@@ -45,9 +54,69 @@ public abstract class AbstractBundleCompatibilityChecker {
 		return true;
 	}
 	
+	/**
+	 * Resolves a requested linker to one that the compiler driver can use.
+	 *
+	 * @param compiler	The compiler driver linking with -fuse-ld
+	 * @param requested	"default", "auto", or the name of a linker
+	 * @return			The name of the linker to pass to -fuse-ld, or null for the default linker
+	 */
+	public synchronized String selectLinker(final String compiler, final String requested) {
+		if( requested == null || requested.length() == 0 || CompilationSettings.LINKER_DEFAULT.equals(requested) )
+			return null;
+
+		if( CompilationSettings.LINKER_AUTO.equals(requested) ) {
+			for(String linker : FAST_LINKERS)
+				if( linkerIsAvailable(compiler, linker) )
+					return linker;
+
+			log.debug("None of the linkers " + Arrays.toString(FAST_LINKERS) + " is available. Using the default linker.");
+			return null;
+		}
+
+		if( linkerIsAvailable(compiler, requested) )
+			return requested;
+
+		log.warn("Linker " + requested + " is unavailable. Using the default linker.");
+		return null;
+	}
+
+	private boolean linkerIsAvailable(final String compiler, final String linker) {
+		final String key = compiler + " -fuse-ld=" + linker;
+		if( !availableLinkers.containsKey(key) )
+			availableLinkers.put(key, compilerCanUseLinker(compiler, linker));
+
+		return availableLinkers.get(key);
+	}
+
+	/**
+	 * A linker binary on the path isn't enough, since older compilers don't
+	 * accept every -fuse-ld value, so the compiler is asked to run the linker.
+	 */
+	protected boolean compilerCanUseLinker(final String compiler, final String linker) {
+		final CliExecutor executor = new CliExecutor(log);
+		executor.initialize(compiler);
+		executor.getCommandline().createArg().setValue("-fuse-ld=" + linker);
+		executor.getCommandline().createArg().setValue("-Wl,--version");
+		executor.setTimeout(PROBE_TIMEOUT);
+		try {
+			if( executor.execute(false) != 0 ) {
+				log.debug(compiler + " can't link with " + linker + ".");
+				return false;
+			}
+		}
+		catch(AbstractMojoExecutionException e) {
+			log.debug("Failed to execute \"" + compiler + " -fuse-ld=" + linker + "\". Linker " + linker + " appears to be unavailable.");
+			return false;
+		}
+
+		return true;
+	}
+
 	protected boolean commandIsAvailableOnPath(final String cmd) {
 		final CliExecutor executor = new CliExecutor(log);
 		executor.initialize(cmd);
+		executor.setTimeout(PROBE_TIMEOUT);
 		try {
 			final int returnValue = executor.execute(false);
 			if( returnValue == 127 ) {
@@ -0,0 +1,187 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.plugin.AbstractMojoExecutionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * Runs compilation tasks on a bounded pool of worker threads.
+ * Tasks are started as soon as they are submitted, and any failure
+ * is reported through the futures of the tasks rather than polled
+ * from the workers. Tasks waiting for a free thread are started in
+ * order of their {@link CompilationPriority}, and in submission order
+ * when equally prioritized.
+ */
+public class CompilationExecutor {
+	private final Log log;
+	private final ThreadPoolExecutor executor;
+	private final BlockingQueue<Future<Collection<NativeCodeFile>>> finishedTasks = new LinkedBlockingQueue<Future<Collection<NativeCodeFile>>>();
+	private final AtomicInteger outstandingTasks = new AtomicInteger();
+	private final AtomicLong submissionCounter = new AtomicLong();
+
+	public CompilationExecutor(final Log log, final int numberOfThreads) {
+		this.log = log;
+		this.executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new ProcessorThreadFactory());
+	}
+
+	public void submit(final Callable<Collection<NativeCodeFile>> task) {
+		submit(task, CompilationPriority.UNKNOWN);
+	}
+
+	public void submit(final Callable<Collection<NativeCodeFile>> task, final CompilationPriority priority) {
+		outstandingTasks.incrementAndGet();
+		executor.execute(new PrioritizedTask(task, priority, submissionCounter.getAndIncrement()));
+	}
+
+	/**
+	 * Checks already finished tasks without blocking.
+	 *
+	 * @return							The files compiled by the finished tasks
+	 * @throws MojoExecutionException	Thrown if any of the finished tasks failed
+	 */
+	public Collection<NativeCodeFile> collectFinishedTasks() throws MojoExecutionException {
+		final Collection<NativeCodeFile> compiledFiles = new ArrayList<NativeCodeFile>();
+
+		Future<Collection<NativeCodeFile>> future;
+		while( (future = finishedTasks.poll()) != null )
+			compiledFiles.addAll(getResult(future));
+
+		return compiledFiles;
+	}
+
+	/**
+	 * Waits for all submitted tasks to finish. The first failing task
+	 * aborts all remaining tasks.
+	 *
+	 * @return							The files compiled by the tasks finished since the last collection
+	 * @throws MojoExecutionException	Thrown if any task failed, or if interrupted while waiting
+	 */
+	public Collection<NativeCodeFile> awaitCompletion() throws MojoExecutionException {
+		final Collection<NativeCodeFile> compiledFiles = new ArrayList<NativeCodeFile>();
+
+		while( hasOutstandingTasks() )
+			compiledFiles.addAll(awaitNextTask());
+
+		return compiledFiles;
+	}
+
+	public boolean hasOutstandingTasks() {
+		return outstandingTasks.get() > 0;
+	}
+
+	/**
+	 * Waits for the next task to finish.
+	 *
+	 * @return							The files compiled by the task
+	 * @throws MojoExecutionException	Thrown if the task failed, or if interrupted while waiting
+	 */
+	public Collection<NativeCodeFile> awaitNextTask() throws MojoExecutionException {
+		log.debug("Waiting for " + outstandingTasks.get() + " compilation tasks to finish...");
+		try {
+			return getResult(finishedTasks.take());
+		}
+		catch (InterruptedException e) {
+			shutdownNow();
+			throw new MojoExecutionException("Interrupted while waiting for compilation tasks.", e);
+		}
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Drops the tasks that haven't started, and interrupts the running ones.
+	 */
+	public void shutdownNow() {
+		executor.shutdownNow();
+	}
+
+	private Collection<NativeCodeFile> getResult(final Future<Collection<NativeCodeFile>> future) throws MojoExecutionException {
+		outstandingTasks.decrementAndGet();
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			shutdownNow();
+			if( e.getCause() instanceof AbstractMojoExecutionException )
+				throw new MojoExecutionException("Exception caught inside compilation processor.", e.getCause());
+
+			throw new MojoExecutionException("Unexpected exception caught inside compilation processor.", e.getCause());
+		}
+		catch (InterruptedException e) {
+			shutdownNow();
+			throw new MojoExecutionException("Interrupted while retrieving the result of a compilation task.", e);
+		}
+	}
+
+	private class PrioritizedTask extends FutureTask<Collection<NativeCodeFile>> implements Comparable<PrioritizedTask> {
+		private final CompilationPriority priority;
+		private final long submissionNumber;
+
+		public PrioritizedTask(final Callable<Collection<NativeCodeFile>> task, final CompilationPriority priority, final long submissionNumber) {
+			super(task);
+			this.priority = priority;
+			this.submissionNumber = submissionNumber;
+		}
+
+		@Override
+		protected void done() {
+			finishedTasks.add(this);
+		}
+
+		@Override
+		public int compareTo(final PrioritizedTask other) {
+			final int comparison = priority.compareTo(other.priority);
+			if( comparison != 0 )
+				return comparison;
+
+			return submissionNumber < other.submissionNumber ? -1 : (submissionNumber == other.submissionNumber ? 0 : 1);
+		}
+	}
+
+	private static class ProcessorThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "Compilation Processor " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
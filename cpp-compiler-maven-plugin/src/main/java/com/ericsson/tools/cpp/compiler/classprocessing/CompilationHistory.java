@@ -0,0 +1,183 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * Remembers how long each source file took to compile, and whether its
+ * last compilation failed. The history is kept in a properties file in
+ * the obj directory, keyed by source path, and is only used to decide
+ * in which order to compile files and how to batch them. A missing or
+ * broken history file simply means that nothing is known yet.
+ */
+public class CompilationHistory {
+	public static final String HISTORY_FILE_NAME = "compilation-history.properties";
+	private static final String FAILED_SUFFIX = ",failed";
+
+	private final Log log;
+	private final File historyFile;
+	private final Properties entries = new Properties();
+
+	public CompilationHistory(final Log log, final File objDirectory) {
+		this.log = log;
+		this.historyFile = new File(objDirectory, HISTORY_FILE_NAME);
+	}
+
+	public synchronized void load() {
+		if( !historyFile.exists() )
+			return;
+
+		InputStream in = null;
+		try {
+			in = new FileInputStream(historyFile);
+			entries.load(in);
+			log.debug("Loaded compilation history for " + entries.size() + " files from " + historyFile);
+		}
+		catch (IOException e) {
+			log.warn("Failed to read compilation history from " + historyFile + ". Compilation order will not be optimized.", e);
+			entries.clear();
+		}
+		finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Saves the history of the given files, which are all files of the
+	 * build, and drops the entries of files that no longer exist.
+	 */
+	public synchronized void save(final Collection<NativeCodeFile> codeFiles) {
+		final Set<String> keys = new HashSet<String>();
+		for(NativeCodeFile codeFile : codeFiles)
+			keys.add(getKey(codeFile));
+		entries.keySet().retainAll(keys);
+
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(historyFile);
+			entries.store(out, "Compilation times in milliseconds");
+		}
+		catch (IOException e) {
+			log.warn("Failed to write compilation history to " + historyFile + ".", e);
+		}
+		finally {
+			close(out);
+		}
+	}
+
+	public synchronized void recordSuccess(final NativeCodeFile codeFile, final long milliseconds) {
+		entries.setProperty(getKey(codeFile), Long.toString(milliseconds));
+	}
+
+	public synchronized void recordFailure(final NativeCodeFile codeFile, final long milliseconds) {
+		entries.setProperty(getKey(codeFile), milliseconds + FAILED_SUFFIX);
+	}
+
+	/**
+	 * @return The last recorded compilation time in milliseconds, or -1 if unknown
+	 */
+	public synchronized long getDuration(final NativeCodeFile codeFile) {
+		final String entry = entries.getProperty(getKey(codeFile));
+		if( entry == null )
+			return -1;
+
+		try {
+			return Long.parseLong(entry.endsWith(FAILED_SUFFIX) ? entry.substring(0, entry.length() - FAILED_SUFFIX.length()) : entry);
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	public synchronized boolean hasFailed(final NativeCodeFile codeFile) {
+		final String entry = entries.getProperty(getKey(codeFile));
+		return entry != null && entry.endsWith(FAILED_SUFFIX);
+	}
+
+	public CompilationPriority getPriority(final Collection<NativeCodeFile> codeFiles) {
+		boolean failed = false;
+		boolean unknown = false;
+		long duration = 0;
+
+		for(NativeCodeFile codeFile : codeFiles) {
+			final long fileDuration = getDuration(codeFile);
+			failed |= hasFailed(codeFile);
+			unknown |= fileDuration < 0;
+			duration += Math.max(0, fileDuration);
+		}
+
+		return new CompilationPriority(failed, unknown, duration);
+	}
+
+	/**
+	 * @return The given files ordered with recently failed files first, then files never
+	 * compiled before, and then the remaining files with the longest compilation time first
+	 */
+	public List<NativeCodeFile> sortByPriority(final Collection<NativeCodeFile> codeFiles) {
+		final Map<NativeCodeFile, CompilationPriority> priorities = new HashMap<NativeCodeFile, CompilationPriority>();
+		for(NativeCodeFile codeFile : codeFiles)
+			priorities.put(codeFile, getPriority(Collections.singletonList(codeFile)));
+
+		final List<NativeCodeFile> sortedFiles = new ArrayList<NativeCodeFile>(codeFiles);
+		Collections.sort(sortedFiles, new Comparator<NativeCodeFile>() {
+			@Override
+			public int compare(final NativeCodeFile f1, final NativeCodeFile f2) {
+				return priorities.get(f1).compareTo(priorities.get(f2));
+			}
+		});
+
+		return sortedFiles;
+	}
+
+	private String getKey(final NativeCodeFile codeFile) {
+		return codeFile.getSourceFile().getPath();
+	}
+
+	private void close(final Closeable closeable) {
+		if( closeable == null )
+			return;
+
+		try {
+			closeable.close();
+		}
+		catch (IOException e) {
+			log.debug("Failed to close " + historyFile, e);
+		}
+	}
+}
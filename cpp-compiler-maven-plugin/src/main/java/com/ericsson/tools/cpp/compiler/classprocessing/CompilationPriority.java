@@ -0,0 +1,54 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+
+/**
+ * The order in which queued compilation tasks are started. Tasks containing
+ * a file that failed last time come first, for fast failure feedback,
+ * followed by tasks with files that have never been timed, and then the
+ * remaining tasks with the longest expected compilation time first.
+ */
+public class CompilationPriority implements Comparable<CompilationPriority> {
+	public static final CompilationPriority UNKNOWN = new CompilationPriority(false, true, 0);
+
+	private final boolean failed;
+	private final boolean unknown;
+	private final long expectedDuration;
+
+	public CompilationPriority(final boolean failed, final boolean unknown, final long expectedDuration) {
+		this.failed = failed;
+		this.unknown = unknown;
+		this.expectedDuration = expectedDuration;
+	}
+
+	@Override
+	public int compareTo(final CompilationPriority other) {
+		if( failed != other.failed )
+			return failed ? -1 : 1;
+
+		if( unknown != other.unknown )
+			return unknown ? -1 : 1;
+
+		return expectedDuration > other.expectedDuration ? -1 : (expectedDuration == other.expectedDuration ? 0 : 1);
+	}
+
+	@Override
+	public String toString() {
+		return (failed ? "failed, " : "") + (unknown ? "untimed, " : "") + expectedDuration + " ms";
+	}
+}
@@ -0,0 +1,99 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.tools.JobBudget;
+
+
+public class CompilationTask implements Callable<Collection<NativeCodeFile>> {
+	private final Log log;
+	private final AbstractCompiler compiler;
+	private final Collection<NativeCodeFile> codeFiles;
+	private final CompilationHistory history;
+	private final JobBudget jobBudget;
+
+	public CompilationTask(final Log log, final AbstractCompiler compiler, final Collection<NativeCodeFile> codeFiles, final CompilationHistory history, final JobBudget jobBudget) {
+		this.log = log;
+		this.compiler = compiler;
+		this.codeFiles = codeFiles;
+		this.history = history;
+		this.jobBudget = jobBudget;
+	}
+
+	@Override
+	public Collection<NativeCodeFile> call() throws MojoFailureException, MojoExecutionException {
+		compiler.awaitExtractedDependencies();
+		final boolean holdsJob = compiler.getCompileWorkers() == null;
+		if( holdsJob )
+			jobBudget.acquire();
+		try {
+			log.info(compiler.getTargetEnvironment() + ": Compiling " + getDescription() + ".");
+			final long startTime = System.currentTimeMillis();
+			boolean succeeded = false;
+			try {
+				compiler.compile(codeFiles);
+				succeeded = true;
+			}
+			finally {
+				recordHistory(System.currentTimeMillis() - startTime, succeeded);
+			}
+		}
+		finally {
+			if( holdsJob )
+				jobBudget.release();
+		}
+
+		for(NativeCodeFile codeFile : codeFiles)
+			compiler.fileCompiled(codeFile);
+
+		return codeFiles;
+	}
+
+	public CompilationPriority getPriority() {
+		return history.getPriority(codeFiles);
+	}
+
+	public Collection<NativeCodeFile> getCodeFiles() {
+		return codeFiles;
+	}
+
+	private void recordHistory(final long milliseconds, final boolean succeeded) {
+		final long millisecondsPerFile = milliseconds / codeFiles.size();
+		for(NativeCodeFile codeFile : codeFiles) {
+			if( succeeded )
+				history.recordSuccess(codeFile, millisecondsPerFile);
+			else
+				history.recordFailure(codeFile, millisecondsPerFile);
+		}
+	}
+
+	private String getDescription() {
+		if( codeFiles.size() == 1 )
+			return codeFiles.iterator().next().getSourceFile().getName();
+
+		return codeFiles.size() + " files";
+	}
+}
@@ -0,0 +1,114 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.files.ColocatedNativeCodeFileBatch;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * Packs code files into compilation batches by estimated cost.<br />
+ * Files are only batched with files from the same directory, and no batch
+ * is allowed to grow beyond a fraction of the total cost, so that every
+ * thread gets several batches. The batches are returned with the most
+ * expensive first, which keeps all threads busy until the very end.
+ */
+public class CostPackedBatchPlanner {
+	private static final int BATCHES_PER_THREAD = 4;
+
+	private final Log log;
+	private final CompilationCostEstimator estimator;
+
+	public CostPackedBatchPlanner(final Log log, final CompilationCostEstimator estimator) {
+		this.log = log;
+		this.estimator = estimator;
+	}
+
+	public List<Collection<NativeCodeFile>> plan(final Collection<NativeCodeFile> codeFiles, final int numberOfThreads) {
+		final Map<NativeCodeFile, Long> costs = new HashMap<NativeCodeFile, Long>();
+		long totalCost = 0;
+		for(NativeCodeFile codeFile : codeFiles) {
+			final long cost = estimator.estimateCost(codeFile);
+			costs.put(codeFile, cost);
+			totalCost += cost;
+		}
+
+		final long maxBatchCost = Math.max(1, totalCost / (Math.max(1, numberOfThreads) * BATCHES_PER_THREAD));
+		log.debug("Packing " + codeFiles.size() + " files with a total cost of " + totalCost + " into batches of at most " + maxBatchCost + ".");
+
+		final List<Batch> batches = new ArrayList<Batch>();
+		for(ColocatedNativeCodeFileBatch colocatedFiles : ColocatedNativeCodeFileBatch.groupByDirectory(log, codeFiles))
+			packDirectory(colocatedFiles.getCodeFiles(), costs, maxBatchCost, batches);
+
+		Collections.sort(batches, new Comparator<Batch>() {
+			@Override
+			public int compare(final Batch b1, final Batch b2) {
+				return compareDescending(b1.cost, b2.cost);
+			}
+		});
+
+		final List<Collection<NativeCodeFile>> plan = new ArrayList<Collection<NativeCodeFile>>(batches.size());
+		for(Batch batch : batches)
+			plan.add(batch.codeFiles);
+
+		return plan;
+	}
+
+	private void packDirectory(final Collection<NativeCodeFile> directoryFiles, final Map<NativeCodeFile, Long> costs, final long maxBatchCost, final List<Batch> batches) {
+		final List<NativeCodeFile> sortedFiles = new ArrayList<NativeCodeFile>(directoryFiles);
+		Collections.sort(sortedFiles, new Comparator<NativeCodeFile>() {
+			@Override
+			public int compare(final NativeCodeFile f1, final NativeCodeFile f2) {
+				return compareDescending(costs.get(f1), costs.get(f2));
+			}
+		});
+
+		Batch batch = new Batch();
+		for(NativeCodeFile codeFile : sortedFiles) {
+			final long cost = costs.get(codeFile);
+			if( !batch.codeFiles.isEmpty() && batch.cost + cost > maxBatchCost ) {
+				batches.add(batch);
+				batch = new Batch();
+			}
+
+			batch.codeFiles.add(codeFile);
+			batch.cost += cost;
+		}
+
+		if( !batch.codeFiles.isEmpty() )
+			batches.add(batch);
+	}
+
+	private static int compareDescending(final long l1, final long l2) {
+		return l1 > l2 ? -1 : (l1 == l2 ? 0 : 1);
+	}
+
+	private static class Batch {
+		private final Collection<NativeCodeFile> codeFiles = new ArrayList<NativeCodeFile>();
+		private long cost;
+	}
+}
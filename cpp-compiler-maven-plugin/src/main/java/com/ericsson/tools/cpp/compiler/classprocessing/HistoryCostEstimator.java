@@ -0,0 +1,63 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import java.util.Collection;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * Uses the recorded compilation time of a code file as the cost of compiling
+ * it. Files without a recorded time are estimated by another estimator, whose
+ * estimates are scaled by the time per unit of the files that have one, so
+ * that both kinds of costs can be compared.
+ */
+public class HistoryCostEstimator implements CompilationCostEstimator {
+	private final CompilationHistory history;
+	private final CompilationCostEstimator fallback;
+	private final double millisecondsPerCost;
+
+	/**
+	 * @param codeFiles	The files whose costs will be estimated
+	 */
+	public HistoryCostEstimator(final CompilationHistory history, final CompilationCostEstimator fallback, final Collection<NativeCodeFile> codeFiles) {
+		this.history = history;
+		this.fallback = fallback;
+
+		long milliseconds = 0;
+		long cost = 0;
+		for(NativeCodeFile codeFile : codeFiles) {
+			final long duration = history.getDuration(codeFile);
+			if( duration > 0 ) {
+				milliseconds += duration;
+				cost += fallback.estimateCost(codeFile);
+			}
+		}
+
+		this.millisecondsPerCost = cost > 0 ? (double)milliseconds / cost : 1;
+	}
+
+	@Override
+	public long estimateCost(final NativeCodeFile codeFile) {
+		final long duration = history.getDuration(codeFile);
+		if( duration >= 0 )
+			return Math.max(1, duration);
+
+		return Math.max(1, Math.round(fallback.estimateCost(codeFile) * millisecondsPerCost));
+	}
+}
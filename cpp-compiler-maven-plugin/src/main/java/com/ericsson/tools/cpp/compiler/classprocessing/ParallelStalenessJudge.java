@@ -0,0 +1,131 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.AbstractMojoExecutionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * Decides which code files need to be compiled, using several threads.
+ * Stale files are handed to a listener as soon as they are found, so that
+ * compilation can start while the remaining files are still being judged.
+ * Files are picked up by the judging threads in the order given.
+ */
+public class ParallelStalenessJudge {
+	private final Log log;
+	private final AbstractCompiler compiler;
+	private final int numberOfThreads;
+
+	public interface StaleFileListener {
+		/**
+		 * Called from the judging threads for each file that needs to be compiled.
+		 */
+		public void staleFileFound(final NativeCodeFile codeFile) throws MojoExecutionException;
+	}
+
+	public ParallelStalenessJudge(final Log log, final AbstractCompiler compiler, final int numberOfThreads) {
+		this.log = log;
+		this.compiler = compiler;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Judges all given files and waits until done. The first failure,
+	 * whether in judging or in the listener, stops all remaining judging.
+	 */
+	public void judge(final Collection<NativeCodeFile> codeFiles, final StaleFileListener listener) throws MojoExecutionException {
+		final ExecutorService judges = Executors.newFixedThreadPool(numberOfThreads, new JudgeThreadFactory());
+		try {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>(codeFiles.size());
+			for(NativeCodeFile codeFile : codeFiles)
+				futures.add(judges.submit(new JudgingTask(codeFile, listener)));
+
+			for(Future<Void> future : futures)
+				waitFor(future, judges);
+		}
+		finally {
+			judges.shutdown();
+		}
+
+		log.debug("Judged " + codeFiles.size() + " files using " + numberOfThreads + " threads.");
+	}
+
+	private void waitFor(final Future<Void> future, final ExecutorService judges) throws MojoExecutionException {
+		try {
+			future.get();
+		}
+		catch (ExecutionException e) {
+			judges.shutdownNow();
+			if( e.getCause() instanceof MojoExecutionException )
+				throw (MojoExecutionException)e.getCause();
+
+			if( e.getCause() instanceof AbstractMojoExecutionException )
+				throw new MojoExecutionException("Exception caught while judging files to compile.", e.getCause());
+
+			throw new MojoExecutionException("Unexpected exception caught while judging files to compile.", e.getCause());
+		}
+		catch (InterruptedException e) {
+			judges.shutdownNow();
+			throw new MojoExecutionException("Interrupted while judging files to compile.", e);
+		}
+	}
+
+	private class JudgingTask implements Callable<Void> {
+		private final NativeCodeFile codeFile;
+		private final StaleFileListener listener;
+
+		public JudgingTask(final NativeCodeFile codeFile, final StaleFileListener listener) {
+			this.codeFile = codeFile;
+			this.listener = listener;
+		}
+
+		@Override
+		public Void call() throws MojoExecutionException {
+			if( compiler.fileNeedsToBeCompiled(codeFile) )
+				listener.staleFileFound(codeFile);
+
+			return null;
+		}
+	}
+
+	private static class JudgeThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "Staleness Judge " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
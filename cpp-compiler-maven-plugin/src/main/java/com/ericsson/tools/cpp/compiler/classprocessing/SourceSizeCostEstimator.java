@@ -0,0 +1,40 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.compiler.files.UnityNativeCodeFile;
+
+
+/**
+ * Uses the size of the source file as the cost of compiling it. The cost of
+ * a unity unit is the total size of the files it includes.
+ */
+public class SourceSizeCostEstimator implements CompilationCostEstimator {
+	@Override
+	public long estimateCost(final NativeCodeFile codeFile) {
+		if( codeFile instanceof UnityNativeCodeFile ) {
+			long cost = 0;
+			for(NativeCodeFile member : ((UnityNativeCodeFile)codeFile).getMembers())
+				cost += estimateCost(member);
+
+			return cost;
+		}
+
+		return Math.max(1, codeFile.getSourceFile().length());
+	}
+}
@@ -26,9 +26,12 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorkerPool;
+import com.ericsson.tools.cpp.compiler.dependencies.ExtractionBarrier;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
 import com.ericsson.tools.cpp.tools.CliExecutor;
+import com.ericsson.tools.cpp.tools.CommandTemplate;
 import com.ericsson.tools.cpp.tools.LoggingCliExecutor;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 
@@ -39,6 +42,9 @@ public abstract class AbstractCompiler {
 	protected final CompilationSettings settings;
 	private final RecompilationJudge recompilationJudge;
 	private final Map<String, Collection<File>> extractedDependencyIncludeDirectories = new HashMap<String, Collection<File>>();
+	private ExtractionBarrier extractionBarrier;
+	private final Object preparationLock = new Object();
+	private boolean prepared = false;
 
 	public AbstractCompiler(final Log log, final CompilationSettings settings, final Environment targetEnvironment, final RecompilationJudge recompilationJudge) {
 		this.log = log;
@@ -49,15 +55,104 @@ public abstract class AbstractCompiler {
 
 	public abstract void compile(final Collection<NativeCodeFile> classes) throws MojoFailureException, MojoExecutionException;
 	
+	/**
+	 * A file without an object file needs to be compiled whatever its headers, so
+	 * only files with object files wait for the extracted dependencies and the
+	 * preparation of the compiler to be judged.
+	 */
 	public boolean fileNeedsToBeCompiled(final NativeCodeFile file) throws MojoExecutionException {
+		if( extractionBarrier == null || file.getObjectFile().exists() )
+			prepare();
+
 		return recompilationJudge.fileNeedsToBeCompiled(file);
 	}
 
+	/**
+	 * @param extractionBarrier	Awaited before the extracted dependencies are read, or null if they are already extracted
+	 */
+	public void setExtractionBarrier(final ExtractionBarrier extractionBarrier) {
+		this.extractionBarrier = extractionBarrier;
+	}
+
+	/**
+	 * Waits for the extraction of dependencies running in the background, if any.
+	 */
+	public void awaitExtractedDependencies() throws MojoExecutionException {
+		if( extractionBarrier != null )
+			extractionBarrier.await();
+	}
+
+	/**
+	 * Prepares judging and compilation the first time it is called. That
+	 * needs the extracted dependencies, so it is left until the first file
+	 * with an object file is judged or the first file is compiled, and the
+	 * source files are scanned and judged while extraction is running.<br />
+	 * Calls made while preparing, such as judging the precompiled header,
+	 * return at once.
+	 */
+	public void prepare() throws MojoExecutionException {
+		synchronized(preparationLock) {
+			if( prepared )
+				return;
+
+			prepared = true;
+			try {
+				awaitExtractedDependencies();
+				prepareOnce();
+			}
+			catch (MojoExecutionException e) {
+				prepared = false;
+				throw e;
+			}
+			catch (RuntimeException e) {
+				prepared = false;
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Called by {@link #prepare()} once the extracted dependencies are available.
+	 */
+	protected void prepareOnce() throws MojoExecutionException {
+		final String strategy = settings.getRecompilationStrategy();
+		if( CompilationSettings.RECOMPILATION_BY_SIGNATURE.equals(strategy) )
+			recompilationJudge.setCommandSignature(getCommandSignature());
+		else if( strategy != null && !CompilationSettings.RECOMPILATION_BY_TIMESTAMP.equals(strategy) )
+			throw new MojoExecutionException("Unknown recompilation strategy \"" + strategy + "\". Expected \"" + CompilationSettings.RECOMPILATION_BY_TIMESTAMP + "\" or \"" + CompilationSettings.RECOMPILATION_BY_SIGNATURE + "\".");
+	}
+
+	/**
+	 * @return A description of everything besides the source files that affects the compiler output
+	 */
+	protected String getCommandSignature() throws MojoExecutionException {
+		return "";
+	}
+
+	/**
+	 * Tasks compiling with workers don't hold a job while waiting for them.
+	 * The compiler takes a job itself whenever it runs a local process.
+	 *
+	 * @return The workers files are compiled on, or null if the compiler only compiles locally
+	 */
+	public CompileWorkerPool getCompileWorkers() {
+		return null;
+	}
+
+	public void fileCompiled(final NativeCodeFile file) throws MojoExecutionException {
+		recompilationJudge.fileCompiled(file);
+	}
+
+	public void persistState() {
+		recompilationJudge.persistState();
+	}
+
 	public Environment getTargetEnvironment() {
 		return targetEnvironment;
 	}
 
-	synchronized protected Collection<File> getExtractedDependencyIncludeDirectories(final String scope) {
+	synchronized protected Collection<File> getExtractedDependencyIncludeDirectories(final String scope) throws MojoExecutionException {
+		awaitExtractedDependencies();
 		if( !extractedDependencyIncludeDirectories.containsKey(scope) )
 			createExtractedDependencyIncludeDirectories(scope);
 		
@@ -82,4 +177,10 @@ public abstract class AbstractCompiler {
 		executor.initialize(directory, executable);
 		return executor;
 	}
+
+	protected CliExecutor getExecutor(final File directory, final CommandTemplate template) {
+		final CliExecutor executor = new LoggingCliExecutor(log);
+		template.initialize(executor, directory);
+		return executor;
+	}
 }
@@ -0,0 +1,32 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation;
+
+import java.util.Collection;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public interface CompilationListener {
+	/**
+	 * Called as soon as the files of a compilation task have been collected.
+	 * May be called from several threads at once.
+	 */
+	public void filesCompiled(final Collection<NativeCodeFile> codeFiles) throws MojoExecutionException;
+}
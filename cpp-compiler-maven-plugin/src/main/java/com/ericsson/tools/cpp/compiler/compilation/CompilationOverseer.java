@@ -16,135 +16,141 @@
 
 package com.ericsson.tools.cpp.compiler.compilation;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Collections;
 
-import org.apache.maven.plugin.AbstractMojoExecutionException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
-import com.ericsson.tools.cpp.compiler.classprocessing.CompilationProcessor;
+import com.ericsson.tools.cpp.compiler.classprocessing.CompilationExecutor;
+import com.ericsson.tools.cpp.compiler.classprocessing.CompilationHistory;
+import com.ericsson.tools.cpp.compiler.classprocessing.CompilationTask;
+import com.ericsson.tools.cpp.compiler.classprocessing.CostPackedBatchPlanner;
+import com.ericsson.tools.cpp.compiler.classprocessing.HistoryCostEstimator;
+import com.ericsson.tools.cpp.compiler.classprocessing.ParallelStalenessJudge;
+import com.ericsson.tools.cpp.compiler.classprocessing.ParallelStalenessJudge.StaleFileListener;
+import com.ericsson.tools.cpp.compiler.classprocessing.SourceSizeCostEstimator;
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorkerPool;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
 import com.ericsson.tools.cpp.tools.DirectoryHandler;
 
 
 public class CompilationOverseer {
-	private final List<CompilationProcessor> processors = new ArrayList<CompilationProcessor>();
 	private final Log log;
 	private final Collection<NativeCodeFile> allCodeFiles;
-	private final BlockingQueue<NativeCodeFile> classesToCompile;
-	private final ConcurrentLinkedQueue<NativeCodeFile> compiledClasses;
+	private final Collection<NativeCodeFile> compiledClasses = Collections.synchronizedList(new ArrayList<NativeCodeFile>());
 	private final AbstractCompiler compiler;
 	private final CompilationSettings settings;
-	private final Object monitor = new Object();
+	private CompilationHistory history;
+	private CompilationListener listener;
 
 	public CompilationOverseer(final CompilationSettings settings, final Log log, final Collection<NativeCodeFile> allClasses, final AbstractCompiler compiler) {
 		this.settings = settings;
 		this.log = log;
 		this.allCodeFiles = allClasses;
 		this.compiler = compiler;
-		this.classesToCompile = new ArrayBlockingQueue<NativeCodeFile>(allClasses.size());
-		this.compiledClasses = new ConcurrentLinkedQueue<NativeCodeFile>();
-
-		final int numberOfCompilerThreads = getNumberOfCompilerThreads();
-		for(int i = 0; i < numberOfCompilerThreads; i++)
-			processors.add(new CompilationProcessor("Compilation Processor " + i, compiler, log, classesToCompile, compiledClasses, numberOfCompilerThreads, monitor));
 	}
 
+	/**
+	 * Threads waiting for a compile worker don't hold a job, so there is one
+	 * thread for every slot on the workers besides the local jobs.
+	 */
 	private int getNumberOfCompilerThreads() {
-		final int numberOfCores = Runtime.getRuntime().availableProcessors();
-		final int numberOfCompilerThreads = numberOfCores;
-		log.info("Found " + numberOfCores + " logical cores. Creating " + numberOfCompilerThreads + " compiler threads.");
+		final CompileWorkerPool workers = compiler.getCompileWorkers();
+		final int workerSlots = workers == null ? 0 : workers.getSlots();
+		final int numberOfCompilerThreads = settings.getJobs() + workerSlots;
+		log.info("Creating " + numberOfCompilerThreads + " compiler threads for " + settings.getJobs() + " jobs and " + workerSlots + " compile worker slots.");
 		return numberOfCompilerThreads;
 	}
 
 	public Collection<NativeCodeFile> compile() throws MojoExecutionException {
-		new DirectoryHandler(log).create(settings.getObjDirectory(compiler.getTargetEnvironment(), settings.isTestCompilation()));
+		return compile(null);
+	}
+
+	/**
+	 * @param listener	Told about the files of each finished compilation task, or null
+	 */
+	public Collection<NativeCodeFile> compile(final CompilationListener listener) throws MojoExecutionException {
+		this.listener = listener;
+
+		final File objDirectory = settings.getObjDirectory(compiler.getTargetEnvironment(), settings.isTestCompilation());
+		new DirectoryHandler(log).create(objDirectory);
 
 		if( allCodeFiles.isEmpty()) {
 			log.info("List of source files is empty. Skipping compilation.");
 			return new ArrayList<NativeCodeFile>();
 		}
-		
-		for(CompilationProcessor processor : processors) {
-			final Thread thread = new Thread(processor);
-			thread.start();
-		}
 
-		populateClassesToCompile(classesToCompile);
+		final int numberOfThreads = getNumberOfCompilerThreads();
+		final CompilationExecutor executor = new CompilationExecutor(log, numberOfThreads);
+		history = new CompilationHistory(log, objDirectory);
+		history.load();
+		boolean completed = false;
+		try {
+			populateClassesToCompile(executor, numberOfThreads);
+			while( executor.hasOutstandingTasks() )
+				collect(executor.awaitNextTask());
+			completed = true;
+		}
+		finally {
+			if( completed )
+				executor.shutdown();
+			else
+				executor.shutdownNow();
+			history.save(allCodeFiles);
+			compiler.persistState();
+		}
 
-		monitorProcessorsUntilAllAreDone();
-		
 		log.debug(compiler.getTargetEnvironment() + ": " + compiledClasses.size() + " files compiled.");
 		return compiledClasses;
 	}
 
-	private void monitorProcessorsUntilAllAreDone() throws MojoExecutionException {
-		synchronized (monitor) {
-			while(processorsAreAlive()) {
-				abortIfThereAreProcessorExceptions();
-				
-				log.debug("Waiting for compilers to finish...");
-				try {
-					monitor.wait();
-				} 
-				catch (InterruptedException e) {
-					throw new MojoExecutionException("Interrupted while sleeping.", e);
-				}
-			}
-		}
-		abortIfThereAreProcessorExceptions();
-	}
+	private void populateClassesToCompile(final CompilationExecutor executor, final int numberOfThreads) throws MojoExecutionException {
+		if( CompilationSettings.BATCHING_PER_FILE.equals(settings.getCompilationBatching()) )
+			submitPerFile(executor, numberOfThreads);
+		else if( CompilationSettings.BATCHING_BY_COST.equals(settings.getCompilationBatching()) )
+			submitCostPacked(executor, numberOfThreads);
+		else
+			throw new MojoExecutionException("Unknown compilation batching \"" + settings.getCompilationBatching() + "\". Expected \"" + CompilationSettings.BATCHING_PER_FILE + "\" or \"" + CompilationSettings.BATCHING_BY_COST + "\".");
 
-	private void abortIfThereAreProcessorExceptions() throws MojoExecutionException {
-		final AbstractMojoExecutionException caughtException = getAnyExceptionInProcessors();
-		if( caughtException != null ) {
-			abortAllProcessors();
-			throw new MojoExecutionException("Exception caught inside compilation processor.", caughtException);
-		}
+		log.debug("Done populating classes to compile.");
 	}
 
-	private void abortAllProcessors() {
-		for(CompilationProcessor processor : processors)
-			processor.abort();
+	private void submitPerFile(final CompilationExecutor executor, final int numberOfThreads) throws MojoExecutionException {
+		new ParallelStalenessJudge(log, compiler, numberOfThreads).judge(history.sortByPriority(allCodeFiles), new StaleFileListener() {
+			@Override
+			public void staleFileFound(final NativeCodeFile codeFile) throws MojoExecutionException {
+				submit(executor, Collections.singletonList(codeFile));
+				collect(executor.collectFinishedTasks());
+			}
+		});
 	}
 
-	private AbstractMojoExecutionException getAnyExceptionInProcessors() {
-		for(CompilationProcessor processor : processors)
-			if( processor.getCaughtException() != null )
-				return processor.getCaughtException();
+	private void submitCostPacked(final CompilationExecutor executor, final int numberOfThreads) throws MojoExecutionException {
+		final Collection<NativeCodeFile> staleCodeFiles = Collections.synchronizedList(new ArrayList<NativeCodeFile>());
+		new ParallelStalenessJudge(log, compiler, numberOfThreads).judge(allCodeFiles, new StaleFileListener() {
+			@Override
+			public void staleFileFound(final NativeCodeFile codeFile) {
+				staleCodeFiles.add(codeFile);
+			}
+		});
 
-		return null;
+		for(Collection<NativeCodeFile> batch : new CostPackedBatchPlanner(log, new HistoryCostEstimator(history, new SourceSizeCostEstimator(), staleCodeFiles)).plan(staleCodeFiles, numberOfThreads))
+			submit(executor, batch);
 	}
 
-	private boolean processorsAreAlive() {
-		for(CompilationProcessor processor : processors)
-			if( !processor.isDone() )
-				return true;
-
-		return false;
+	private void collect(final Collection<NativeCodeFile> codeFiles) throws MojoExecutionException {
+		compiledClasses.addAll(codeFiles);
+		if( listener != null && !codeFiles.isEmpty() )
+			listener.filesCompiled(codeFiles);
 	}
 
-	private void populateClassesToCompile(final BlockingQueue<NativeCodeFile> classesToCompile) throws MojoExecutionException {
-		for(NativeCodeFile codeFile : allCodeFiles) {
-			if( compiler.fileNeedsToBeCompiled(codeFile)) {
-				try {
-					classesToCompile.put(codeFile);
-				} 
-				catch (InterruptedException e) {
-					throw new MojoExecutionException("Failed to add " + codeFile.getSourceFile().toString() + " to list of classes to compile.", e);
-				}
-			}
-		}
-
-		for(CompilationProcessor processor : processors)
-			processor.setClassListingIsComplete(true);
-
-		log.debug("Done populating classes to compile.");
+	private void submit(final CompilationExecutor executor, final Collection<NativeCodeFile> codeFiles) throws MojoExecutionException {
+		compiler.prepare();
+		final CompilationTask task = new CompilationTask(log, compiler, codeFiles, history, settings.getJobBudget());
+		executor.submit(task, task.getPriority());
 	}
 }
@@ -26,4 +26,14 @@ import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 
 public interface IncludesAnalyzer {
 	public List<File> getIncludedFiles(final NativeCodeFile ncf) throws MojoExecutionException;
+
+	/**
+	 * Called after a file has been successfully compiled.
+	 */
+	public void fileCompiled(final NativeCodeFile ncf) throws MojoExecutionException;
+
+	/**
+	 * Called when compilation is done, to save any state worth keeping until the next build.
+	 */
+	public void persistState();
 }
@@ -23,4 +23,21 @@ import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 
 public interface RecompilationJudge {
 	public boolean fileNeedsToBeCompiled(final NativeCodeFile file) throws MojoExecutionException;
+
+	/**
+	 * Called before any file with an object file is judged, and before any file
+	 * is compiled, with a description of the effective compiler command line and
+	 * compiler version, for judges that take it into account.
+	 */
+	public void setCommandSignature(final String commandSignature);
+
+	/**
+	 * Called after a file has been successfully compiled.
+	 */
+	public void fileCompiled(final NativeCodeFile file) throws MojoExecutionException;
+
+	/**
+	 * Called when compilation is done, to save any state worth keeping until the next build.
+	 */
+	public void persistState();
 }
@@ -0,0 +1,207 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.util.Properties;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.tools.FileHashCache;
+
+
+/**
+ * Decides whether to recompile based on content rather than timestamps.<br />
+ * For each object file a signature is stored, made up of the contents of the
+ * source file and all headers it included, the effective compiler command line
+ * and the compiler version. A file is only recompiled when its signature has
+ * changed, so touching files without changing them, for example by switching
+ * branches back and forth, does not trigger recompilation, while changing the
+ * compiler arguments does.<br />
+ * Files without a stored signature are judged by timestamp.
+ */
+public class SignatureRecompilationJudge implements RecompilationJudge {
+	public static final String SIGNATURES_FILE_NAME = "compilation-signatures.properties";
+	public static final String FILE_HASHES_FILE_NAME = "file-hashes.properties";
+
+	private final Log log;
+	private final RecompilationJudge timestampJudge;
+	private final IncludesAnalyzer includesAnalyzer;
+	private final FileHashCache fileHashCache;
+	private final File signaturesFile;
+	private final Properties signatures = new Properties();
+	private String commandSignature = "";
+	private boolean loaded = false;
+	private boolean modified = false;
+
+	public SignatureRecompilationJudge(final Log log, final RecompilationJudge timestampJudge, final IncludesAnalyzer includesAnalyzer, final FileHashCache fileHashCache, final File objDirectory) {
+		this.log = log;
+		this.timestampJudge = timestampJudge;
+		this.includesAnalyzer = includesAnalyzer;
+		this.fileHashCache = fileHashCache;
+		this.signaturesFile = new File(objDirectory, SIGNATURES_FILE_NAME);
+	}
+
+	@Override
+	public synchronized void setCommandSignature(final String commandSignature) {
+		this.commandSignature = commandSignature;
+		timestampJudge.setCommandSignature(commandSignature);
+	}
+
+	@Override
+	public boolean fileNeedsToBeCompiled(final NativeCodeFile ncf) throws MojoExecutionException {
+		if( !ncf.getObjectFile().exists() || !ncf.getDependFile().exists() )
+			return timestampJudge.fileNeedsToBeCompiled(ncf);
+
+		final String storedSignature = getStoredSignature(ncf);
+		if( storedSignature == null ) {
+			final boolean needsToBeCompiled = timestampJudge.fileNeedsToBeCompiled(ncf);
+			if( !needsToBeCompiled )
+				storeSignature(ncf, calculateSignature(ncf));
+
+			return needsToBeCompiled;
+		}
+
+		if( storedSignature.equals(calculateSignature(ncf)) )
+			return false;
+
+		log.debug(ncf.getSourceFile().getName() + " has a changed signature. It needs to be compiled.");
+		return true;
+	}
+
+	@Override
+	public void fileCompiled(final NativeCodeFile ncf) throws MojoExecutionException {
+		timestampJudge.fileCompiled(ncf);
+		storeSignature(ncf, calculateSignature(ncf));
+	}
+
+	@Override
+	public void persistState() {
+		timestampJudge.persistState();
+		fileHashCache.save();
+		saveSignatures();
+	}
+
+	/**
+	 * @return The signature of the file as it is now, or null if it could not be calculated
+	 */
+	private String calculateSignature(final NativeCodeFile ncf) throws MojoExecutionException {
+		ensureLoaded();
+		try {
+			final MessageDigest digest = FileHashCache.createDigest();
+			update(digest, getCommandSignature());
+			update(digest, fileHashCache.getHash(ncf.getSourceFile()));
+			for(File includedFile : includesAnalyzer.getIncludedFiles(ncf)) {
+				update(digest, includedFile.getPath());
+				update(digest, fileHashCache.getHash(includedFile));
+			}
+
+			return FileHashCache.toHex(digest.digest());
+		}
+		catch (IOException e) {
+			log.debug("Failed to calculate signature of " + ncf.getSourceFile() + ": " + e);
+			return null;
+		}
+	}
+
+	private void update(final MessageDigest digest, final String value) throws UnsupportedEncodingException {
+		digest.update(value.getBytes("UTF-8"));
+		digest.update((byte)0);
+	}
+
+	private synchronized String getCommandSignature() {
+		return commandSignature;
+	}
+
+	private synchronized String getStoredSignature(final NativeCodeFile ncf) {
+		ensureLoaded();
+		return signatures.getProperty(ncf.getSourceFile().getPath());
+	}
+
+	private synchronized void storeSignature(final NativeCodeFile ncf, final String signature) {
+		ensureLoaded();
+		if( signature == null )
+			signatures.remove(ncf.getSourceFile().getPath());
+		else
+			signatures.setProperty(ncf.getSourceFile().getPath(), signature);
+
+		modified = true;
+	}
+
+	private synchronized void ensureLoaded() {
+		if( loaded )
+			return;
+
+		loaded = true;
+		fileHashCache.load();
+		if( !signaturesFile.exists() )
+			return;
+
+		InputStream in = null;
+		try {
+			in = new FileInputStream(signaturesFile);
+			signatures.load(in);
+		}
+		catch (IOException e) {
+			log.warn("Failed to read compilation signatures from " + signaturesFile + ". Files will be judged by timestamp.", e);
+			signatures.clear();
+		}
+		finally {
+			close(in);
+		}
+	}
+
+	private synchronized void saveSignatures() {
+		if( !modified )
+			return;
+
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(signaturesFile);
+			signatures.store(out, "Compilation signatures");
+			modified = false;
+		}
+		catch (IOException e) {
+			log.warn("Failed to write compilation signatures to " + signaturesFile + ".", e);
+		}
+		finally {
+			close(out);
+		}
+	}
+
+	private void close(final Closeable closeable) {
+		if( closeable == null )
+			return;
+
+		try {
+			closeable.close();
+		}
+		catch (IOException e) {
+			log.debug("Failed to close " + signaturesFile, e);
+		}
+	}
+}
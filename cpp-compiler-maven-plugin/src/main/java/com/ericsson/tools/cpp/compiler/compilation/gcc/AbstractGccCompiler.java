@@ -17,23 +17,51 @@
 package com.ericsson.tools.cpp.compiler.compilation.gcc;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.cli.StreamConsumer;
 
 import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
 import com.ericsson.tools.cpp.compiler.compilation.RecompilationJudge;
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileRequest;
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileResult;
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorkerPool;
 import com.ericsson.tools.cpp.compiler.files.ColocatedNativeCodeFileBatch;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
+import com.ericsson.tools.cpp.tools.BoundedStreamConsumer;
 import com.ericsson.tools.cpp.tools.CliExecutor;
+import com.ericsson.tools.cpp.tools.CommandTemplate;
+import com.ericsson.tools.cpp.tools.FileHashCache;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 
 
 public abstract class AbstractGccCompiler extends AbstractCompiler {
+	public static final String OBJECT_CACHE_HASHES_FILE_NAME = "object-cache-hashes.properties";
+
+	private static final List<String> PREPROCESSOR_OPTIONS_WITH_VALUE = Arrays.asList("-D", "-U", "-I", "-include", "-imacros", "-isystem", "-iquote", "-idirafter", "-MF", "-MT", "-MQ");
+	private static final List<String> PREPROCESSOR_OPTION_PREFIXES = Arrays.asList("-D", "-U", "-I", "-isystem", "-iquote", "-idirafter", "-M");
+
+	private String commandSignature;
+	private CommandTemplate commandTemplate;
+	private CommandTemplate remoteCommandTemplate;
+	private GccObjectCache objectCache;
+	private boolean objectCacheCreated = false;
+	private GccPrecompiledHeader precompiledHeader;
 
 	public AbstractGccCompiler(final Log log, final CompilationSettings settings, final Environment targetEnvironment, final RecompilationJudge recompilationJudge) {
 		super(log, settings, targetEnvironment, recompilationJudge);
@@ -41,61 +69,488 @@ public abstract class AbstractGccCompiler extends AbstractCompiler {
 
 	@Override
 	public void compile(final Collection<NativeCodeFile> codeFiles) throws MojoFailureException, MojoExecutionException {
-		final Collection<NativeCodeFile> dispersedCodeFiles = new ArrayList<NativeCodeFile>(codeFiles);
-		final ColocatedNativeCodeFileBatch colocatedBatch = new ColocatedNativeCodeFileBatch(log);
-		while(!dispersedCodeFiles.isEmpty()) {
-			colocatedBatch.clear();
-			colocatedBatch.drainDispersedCollection(dispersedCodeFiles);
-			compileColocatedBatch(colocatedBatch);
+		final GccObjectCache objectCache = getObjectCache();
+		final Collection<NativeCodeFile> codeFilesToCompile = new ArrayList<NativeCodeFile>();
+		for(NativeCodeFile codeFile : codeFiles) {
+			if( objectCache != null && objectCache.restore(codeFile) ) {
+				settings.getFileStatusCache().invalidate(codeFile.getObjectFile());
+				settings.getFileStatusCache().invalidate(codeFile.getDependFile());
+			}
+			else {
+				codeFilesToCompile.add(codeFile);
+			}
+		}
+
+		for(ColocatedNativeCodeFileBatch colocatedBatch : ColocatedNativeCodeFileBatch.groupByDirectory(log, codeFilesToCompile)) {
+			for(ColocatedNativeCodeFileBatch batch : splitByPrecompiledHeaderUse(colocatedBatch)) {
+				final String diagnostics = getCompileWorkers() == null ? compileLocally(batch) : compileRemotely(batch);
+				addUndeclaredDependencies(batch.getCodeFiles(), !getPrecompiledHeaderArguments(batch.getCodeFiles().iterator().next()).isEmpty());
+				if( CompilationSettings.PGO_GENERATE.equals(settings.getProfileGuidedOptimization()) )
+					removeProfiles(batch.getCodeFiles());
+
+				if( objectCache != null )
+					storeInObjectCache(objectCache, batch, diagnostics);
+			}
+		}
+	}
+
+	private Collection<ColocatedNativeCodeFileBatch> splitByPrecompiledHeaderUse(final ColocatedNativeCodeFileBatch colocatedBatch) {
+		if( precompiledHeader == null )
+			return Collections.singletonList(colocatedBatch);
+
+		final ColocatedNativeCodeFileBatch withHeader = new ColocatedNativeCodeFileBatch(colocatedBatch.getDirectory());
+		final ColocatedNativeCodeFileBatch withoutHeader = new ColocatedNativeCodeFileBatch(colocatedBatch.getDirectory());
+		for(NativeCodeFile codeFile : colocatedBatch.getCodeFiles()) {
+			if( GccPrecompiledHeader.isUsableBy(codeFile) )
+				withHeader.add(codeFile);
+			else
+				withoutHeader.add(codeFile);
+		}
+
+		final Collection<ColocatedNativeCodeFileBatch> batches = new ArrayList<ColocatedNativeCodeFileBatch>();
+		if( !withHeader.getCodeFiles().isEmpty() )
+			batches.add(withHeader);
+		if( !withoutHeader.getCodeFiles().isEmpty() )
+			batches.add(withoutHeader);
+
+		return batches;
+	}
+
+	/**
+	 * Builds the precompiled header, if configured, before any file with an
+	 * object file is judged, since those files depend on it.
+	 */
+	@Override
+	protected void prepareOnce() throws MojoExecutionException {
+		super.prepareOnce();
+
+		if( !settings.getPrecompiledHeaders().isEmpty() )
+			precompileHeaders();
+	}
+
+	@Override
+	public void persistState() {
+		super.persistState();
+
+		synchronized(this) {
+			if( objectCache != null )
+				objectCache.close();
 		}
-		
-		placeFilesInCorrectDirectories(codeFiles);
 	}
 	
 	protected String getCompilerExecutable() {
 		return "gcc";
 	}
 
+	/**
+	 * Profile data is named by the path the object is compiled to, so files
+	 * are only compiled remotely without profile-guided optimization.
+	 */
+	@Override
+	public CompileWorkerPool getCompileWorkers() {
+		if( !CompilationSettings.PGO_NONE.equals(settings.getProfileGuidedOptimization()) )
+			return null;
+
+		return settings.getCompileWorkers();
+	}
+
+	/**
+	 * @return The arguments that affect compilation after preprocessing
+	 */
+	protected String getCodeGenerationArguments() {
+		String arguments = "-fPIC";
+		if( settings.isLinkTimeOptimization() )
+			arguments += " -flto";
+
+		return arguments;
+	}
+
 	protected String getMandatoryCompilerArguments() {
-		return "-c -MMD -fPIC";
+		String arguments = "-c -MMD " + getCodeGenerationArguments();
+
+		final String profileGuidedOptimization = settings.getProfileGuidedOptimization();
+		if( CompilationSettings.PGO_GENERATE.equals(profileGuidedOptimization) )
+			arguments += " -fprofile-generate=" + settings.getProfileDirectory(getTargetEnvironment()).getAbsolutePath() + " -fprofile-update=atomic";
+		else if( CompilationSettings.PGO_USE.equals(profileGuidedOptimization) )
+			arguments += " -fprofile-use=" + settings.getProfileDirectory(getTargetEnvironment()).getAbsolutePath() + " -fprofile-correction";
+
+		return arguments;
 	}
 
-	private void compileColocatedBatch(final ColocatedNativeCodeFileBatch batch) throws MojoFailureException, MojoExecutionException {
-		final CliExecutor executor = getExecutor(batch.getDirectory(), getCompilerExecutable());
-		executor.getCommandline().createArg().setLine(getMandatoryCompilerArguments());
-		executor.getCommandline().createArg().setLine(settings.getCompilerArguments(getTargetEnvironment()));
-		executor.getCommandline().createArg().setValue("-I" + settings.getIncludeDirectory(null, settings.isTestCompilation()));
-		executor.getCommandline().createArg().setValue("-I" + settings.getIncludeDirectory(getTargetEnvironment(), settings.isTestCompilation()));
+	@Override
+	protected synchronized String getCommandSignature() throws MojoExecutionException {
+		if( commandSignature == null )
+			commandSignature = createCommandSignature();
+
+		return commandSignature;
+	}
+
+	private String createCommandSignature() throws MojoExecutionException {
+		final StringBuilder signature = new StringBuilder(getCompilerExecutable());
+		signature.append(' ').append(getMandatoryCompilerArguments());
+		signature.append(' ').append(settings.getCompilerArguments(getTargetEnvironment()));
+		for(String includeArgument : getIncludeArguments())
+			signature.append(' ').append(includeArgument);
+		if( !settings.getPrecompiledHeaders().isEmpty() )
+			signature.append(" -include ").append(settings.getPrecompiledHeaders());
+
+		signature.append('\n').append(getCompilerVersion());
+		return signature.toString();
+	}
+
+	/**
+	 * The arguments given to every compilation for the target are put together
+	 * once, rather than for every batch.
+	 */
+	private synchronized CommandTemplate getCommandTemplate() throws MojoExecutionException {
+		if( commandTemplate == null ) {
+			final List<String> arguments = new ArrayList<String>();
+			arguments.addAll(CommandTemplate.splitLine(getMandatoryCompilerArguments()));
+			arguments.addAll(CommandTemplate.splitLine(settings.getCompilerArguments(getTargetEnvironment())));
+			arguments.addAll(getIncludeArguments());
+			commandTemplate = new CommandTemplate(getCompilerExecutable(), arguments);
+		}
+
+		return commandTemplate;
+	}
+
+	/**
+	 * Workers compile preprocessed files, so the configured arguments are sent
+	 * without the preprocessor options.
+	 */
+	private synchronized CommandTemplate getRemoteCommandTemplate() throws MojoExecutionException {
+		if( remoteCommandTemplate == null ) {
+			final List<String> arguments = new ArrayList<String>(CommandTemplate.splitLine(getCodeGenerationArguments()));
+			final List<String> configuredArguments = CommandTemplate.splitLine(settings.getCompilerArguments(getTargetEnvironment()));
+			for(int i = 0; i < configuredArguments.size(); i++) {
+				final String argument = configuredArguments.get(i);
+				if( PREPROCESSOR_OPTIONS_WITH_VALUE.contains(argument) )
+					i++;
+				else if( !isPreprocessorOption(argument) )
+					arguments.add(argument);
+			}
+			remoteCommandTemplate = new CommandTemplate(getCompilerExecutable(), arguments);
+		}
+
+		return remoteCommandTemplate;
+	}
+
+	private static boolean isPreprocessorOption(final String argument) {
+		for(String prefix : PREPROCESSOR_OPTION_PREFIXES)
+			if( argument.startsWith(prefix) )
+				return true;
+
+		return false;
+	}
+
+	private String getCompilerVersion() throws MojoExecutionException {
+		final CliExecutor executor = new CliExecutor(log);
+		executor.initialize(getCompilerExecutable());
+		executor.getCommandline().createArg().setValue("--version");
+		try {
+			executor.execute();
+		}
+		catch (MojoFailureException e) {
+			throw new MojoExecutionException("Failed to determine the version of " + getCompilerExecutable() + ".", e);
+		}
+
+		return ((BoundedStreamConsumer)executor.getStdOutConsumer()).getOutput();
+	}
+
+	private List<String> getIncludeArguments() throws MojoExecutionException {
+		final List<String> includeArguments = new ArrayList<String>();
+		includeArguments.add("-I" + settings.getIncludeDirectory(null, settings.isTestCompilation()));
+		includeArguments.add("-I" + settings.getIncludeDirectory(getTargetEnvironment(), settings.isTestCompilation()));
 		for(File includeDirectory : getExtractedDependencyIncludeDirectories("compile"))
-			executor.getCommandline().createArg().setValue("-I" + includeDirectory);
+			includeArguments.add("-I" + includeDirectory);
 
 		if( settings.isTestCompilation() ) {
-			executor.getCommandline().createArg().setValue("-I" + settings.getIncludeDirectory(null, false));
+			includeArguments.add("-I" + settings.getIncludeDirectory(null, false));
 			for(File includeDirectory : getExtractedDependencyIncludeDirectories("test"))
-				executor.getCommandline().createArg().setValue("-I" + includeDirectory);
+				includeArguments.add("-I" + includeDirectory);
 		}
 
-		for(NativeCodeFile codeFile : batch.getCodeFiles())
-			executor.getCommandline().createArg().setValue(codeFile.getSourceFile().getName());
+		return includeArguments;
+	}
 
-		executor.execute();
+	private void precompileHeaders() throws MojoExecutionException {
+		final File objDirectory = settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation());
+		final GccPrecompiledHeader header = new GccPrecompiledHeader(objDirectory, settings.getPrecompiledHeaders());
+
+		if( header.isUpToDate() && !fileNeedsToBeCompiled(header) ) {
+			log.debug(getTargetEnvironment() + ": Precompiled header " + header.getObjectFile() + " is up to date.");
+		}
+		else {
+			log.info(getTargetEnvironment() + ": Precompiling " + settings.getPrecompiledHeaders().size() + " headers.");
+			header.write();
+			settings.getFileStatusCache().invalidate(header.getSourceFile());
+
+			final CliExecutor executor = getExecutor(header.getSourceFile().getParentFile(), getCommandTemplate());
+			executor.getCommandline().createArg().setLine("-x c++-header");
+			executor.getCommandline().createArg().setValue(header.getSourceFile().getName());
+			executor.getCommandline().createArg().setValue("-o");
+			executor.getCommandline().createArg().setValue(header.getObjectFile().getName());
+			executor.getCommandline().createArg().setValue("-MF");
+			executor.getCommandline().createArg().setValue(header.getDependFile().getName());
+			settings.getJobBudget().acquire();
+			try {
+				executor.execute();
+			}
+			catch (MojoFailureException e) {
+				throw new MojoExecutionException("Failed to precompile " + settings.getPrecompiledHeaders() + ".", e);
+			}
+			finally {
+				settings.getJobBudget().release();
+			}
+
+			settings.getFileStatusCache().invalidate(header.getObjectFile());
+			settings.getFileStatusCache().invalidate(header.getDependFile());
+			fileCompiled(header);
+		}
+
+		precompiledHeader = header;
+	}
+
+	/**
+	 * The include directories must be given before the precompiled header,
+	 * since gcc rejects a precompiled header built with other include paths.
+	 */
+	private List<String> getPrecompiledHeaderArguments(final NativeCodeFile codeFile) {
+		if( precompiledHeader == null || !GccPrecompiledHeader.isUsableBy(codeFile) )
+			return Collections.emptyList();
+
+		return Arrays.asList("-Winvalid-pch", "-include", precompiledHeader.getSourceFile().getPath());
 	}
 
-	private void placeFilesInCorrectDirectories(final Collection<NativeCodeFile> batch) throws MojoExecutionException {
+	/**
+	 * gcc leaves the precompiled header and the headers in it out of the depend
+	 * files of the files using it, and the profile data used for optimization as
+	 * well. They are added as prerequisites, to make the files stale whenever the
+	 * precompiled header is rebuilt or new profile data has been collected.
+	 */
+	private void addUndeclaredDependencies(final Collection<NativeCodeFile> batch, final boolean usesPrecompiledHeader) throws MojoExecutionException {
+		final boolean usesProfile = CompilationSettings.PGO_USE.equals(settings.getProfileGuidedOptimization());
 		for(NativeCodeFile codeFile : batch) {
-			final File destDir = codeFile.getObjectFile().getParentFile();
-			if(!destDir.exists())
-				destDir.mkdirs();
-			
-			final File actualObjectFile = new File(codeFile.getSourceFile().getParentFile(), codeFile.getObjectFile().getName());
-			final File actualDependFile = new File(codeFile.getSourceFile().getParentFile(), codeFile.getDependFile().getName());
-			moveFile(actualObjectFile, codeFile.getObjectFile());
-			moveFile(actualDependFile, codeFile.getDependFile());
+			String prerequisite = "";
+			if( usesPrecompiledHeader )
+				prerequisite += precompiledHeader.getObjectFile().getPath().replace(" ", "\\ ") + " ";
+			if( usesProfile && getProfileFile(codeFile).isFile() )
+				prerequisite += getProfileFile(codeFile).getPath().replace(" ", "\\ ") + " ";
+			if( prerequisite.length() == 0 )
+				continue;
+
+			try {
+				final String content = FileUtils.fileRead(codeFile.getDependFile());
+				final int separator = content.indexOf(": ");
+				if( separator == -1 )
+					throw new MojoExecutionException("Unexpected content in depend file " + codeFile.getDependFile() + ".");
+
+				FileUtils.fileWrite(codeFile.getDependFile().getPath(), content.substring(0, separator + 2) + prerequisite + content.substring(separator + 2));
+				settings.getFileStatusCache().invalidate(codeFile.getDependFile());
+			}
+			catch (IOException e) {
+				throw new MojoExecutionException("Failed to add prerequisites to depend file " + codeFile.getDependFile() + ".", e);
+			}
+		}
+	}
+
+	/**
+	 * The profile data of an object is named by the path gcc wrote the object
+	 * to, with the directory separators replaced.
+	 */
+	private File getProfileFile(final NativeCodeFile codeFile) {
+		final String objectPath = codeFile.getObjectFile().getAbsolutePath();
+		final String objectStem = objectPath.substring(0, objectPath.length() - NativeCodeFile.OBJECT_SUFFIX.length());
+		return new File(settings.getProfileDirectory(getTargetEnvironment()), objectStem.replace(File.separatorChar, '#') + ".gcda");
+	}
+
+	/**
+	 * Profile data collected from an earlier version of an object doesn't
+	 * match the recompiled object, and would keep new data from being written.
+	 */
+	private void removeProfiles(final Collection<NativeCodeFile> batch) {
+		for(NativeCodeFile codeFile : batch)
+			if( getProfileFile(codeFile).delete() )
+				log.debug("Removed outdated profile data of " + codeFile.getSourceFile().getName() + ".");
+	}
+
+	private synchronized GccObjectCache getObjectCache() throws MojoExecutionException {
+		if( !objectCacheCreated && settings.getObjectCacheDirectory() != null && !CompilationSettings.PGO_USE.equals(settings.getProfileGuidedOptimization()) ) {
+			final File objDirectory = settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation());
+			final FileHashCache fileHashCache = new FileHashCache(log, new File(objDirectory, OBJECT_CACHE_HASHES_FILE_NAME), settings.getFileStatusCache());
+			objectCache = new GccObjectCache(log, settings.getObjectCacheDirectory(), settings.getObjectCacheMaxSize(), settings.getProject().getBasedir(), getCommandSignature(), fileHashCache);
+		}
+
+		objectCacheCreated = true;
+		return objectCache;
+	}
+
+	/**
+	 * Diagnostics of a batch can't be told apart per file, so files compiled
+	 * together with others are only cached if the compiler had nothing to say.
+	 */
+	private void storeInObjectCache(final GccObjectCache objectCache, final ColocatedNativeCodeFileBatch batch, final String diagnostics) {
+		if( batch.getCodeFiles().size() > 1 && diagnostics.length() > 0 ) {
+			log.debug("Not caching batch of " + batch.getCodeFiles().size() + " files in " + batch.getDirectory() + " since it produced diagnostics.");
+			return;
+		}
+
+		for(NativeCodeFile codeFile : batch.getCodeFiles())
+			objectCache.store(codeFile, diagnostics);
+	}
+
+	/**
+	 * @return Everything the compiler wrote to standard error
+	 */
+	private String compileLocally(final ColocatedNativeCodeFileBatch batch) throws MojoFailureException, MojoExecutionException {
+		final String diagnostics = compileColocatedBatch(batch);
+		invalidateCompiledFiles(batch.getCodeFiles());
+		return diagnostics;
+	}
+
+	/**
+	 * The task compiling the files holds no job, so a job is only taken while
+	 * a file is preprocessed, and not while a worker compiles it. Files no
+	 * worker takes are compiled locally, within a job.
+	 *
+	 * @return Everything the preprocessor and the compilers wrote to standard error
+	 */
+	private String compileRemotely(final ColocatedNativeCodeFileBatch batch) throws MojoFailureException, MojoExecutionException {
+		final StringBuilder diagnostics = new StringBuilder();
+		for(NativeCodeFile codeFile : batch.getCodeFiles()) {
+			try {
+				diagnostics.append(compileRemotely(codeFile));
+			}
+			catch (IOException e) {
+				log.warn(getTargetEnvironment() + ": Compiling " + codeFile.getSourceFile().getName() + " locally. " + e.getMessage());
+				final ColocatedNativeCodeFileBatch localBatch = new ColocatedNativeCodeFileBatch(batch.getDirectory());
+				localBatch.add(codeFile);
+				settings.getJobBudget().acquire();
+				try {
+					diagnostics.append(compileLocally(localBatch));
+				}
+				finally {
+					settings.getJobBudget().release();
+				}
+			}
+		}
+
+		return diagnostics.toString();
+	}
+
+	private String compileRemotely(final NativeCodeFile codeFile) throws IOException, MojoFailureException, MojoExecutionException {
+		final File objectDirectory = codeFile.getObjectFile().getParentFile();
+		if( !objectDirectory.isDirectory() )
+			objectDirectory.mkdirs();
+
+		final String sourceName = codeFile.getSourceFile().getName();
+		final String objectName = codeFile.getObjectFile().getName();
+		final File preprocessedFile = new File(objectDirectory, objectName.substring(0, objectName.length() - NativeCodeFile.OBJECT_SUFFIX.length()) + (sourceName.endsWith(".c") ? ".i" : ".ii"));
+		final StringBuilder diagnostics = new StringBuilder();
+		final CliExecutor executor = getExecutor(codeFile.getSourceFile().getParentFile(), getCommandTemplate());
+		executor.setStdErrConsumer(createDiagnosticsConsumer(diagnostics));
+		executor.appendArguments(getPrecompiledHeaderArguments(codeFile));
+		executor.appendArguments(Arrays.asList("-E", "-MF", codeFile.getDependFile().getPath(), "-MT", codeFile.getObjectFile().getName(), "-o", preprocessedFile.getPath()));
+		executor.appendInputs(Collections.singletonList(sourceName));
+
+		final CompileResult result;
+		try {
+			settings.getJobBudget().acquire();
+			try {
+				executor.execute();
+			}
+			finally {
+				settings.getJobBudget().release();
+			}
+
+			final CompileRequest request = new CompileRequest(getRemoteCommandTemplate().getExecutable(), getRemoteCommandTemplate().getArguments(), preprocessedFile.getName(), readBytes(preprocessedFile));
+			result = getCompileWorkers().compile(request);
+		}
+		catch (InterruptedException e) {
+			throw new MojoExecutionException("Interrupted while compiling " + sourceName + " on a compile worker.", e);
+		}
+		finally {
+			preprocessedFile.delete();
+		}
+
+		if( result.isRejected() )
+			throw new IOException(result.getDiagnostics());
+
+		final StreamConsumer remoteDiagnostics = createDiagnosticsConsumer(diagnostics);
+		for(String line : result.getDiagnostics().split("\r?\n"))
+			if( line.length() > 0 )
+				remoteDiagnostics.consumeLine(line);
+
+		if( !result.isSuccessful() )
+			throw new MojoFailureException("Failed to compile " + codeFile.getSourceFile() + " on a compile worker. Result: '" + result.getStatus() + "'.");
+
+		writeBytes(codeFile.getObjectFile(), result.getObject());
+		settings.getFileStatusCache().invalidate(codeFile.getObjectFile());
+		settings.getFileStatusCache().invalidate(codeFile.getDependFile());
+		return diagnostics.toString();
+	}
+
+	private StreamConsumer createDiagnosticsConsumer(final StringBuilder diagnostics) {
+		return new StreamConsumer() {
+			@Override
+			public void consumeLine(final String line) {
+				log.warn(line);
+				diagnostics.append(line).append('\n');
+			}
+		};
+	}
+
+	private static byte[] readBytes(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			return IOUtil.toByteArray(in);
+		}
+		finally {
+			in.close();
 		}
 	}
 
-	private void moveFile(File source, File target) throws MojoExecutionException {
-		if(!source.renameTo(target))
-			throw new MojoExecutionException("Failed to move " + source + " to " + target);
+	private static void writeBytes(final File file, final byte[] bytes) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * The compiler runs in the object directory of the target, where it writes
+	 * the object and depend files, so targets compiling the same sources at the
+	 * same time never share an output file.
+	 *
+	 * @return Everything the compiler wrote to standard error
+	 */
+	private String compileColocatedBatch(final ColocatedNativeCodeFileBatch batch) throws MojoFailureException, MojoExecutionException {
+		final File objectDirectory = batch.getCodeFiles().iterator().next().getObjectFile().getParentFile();
+		if( !objectDirectory.isDirectory() )
+			objectDirectory.mkdirs();
+
+		final CliExecutor executor = getExecutor(objectDirectory, getCommandTemplate());
+		final StringBuilder diagnostics = new StringBuilder();
+		executor.setStdErrConsumer(createDiagnosticsConsumer(diagnostics));
+		executor.appendArguments(getPrecompiledHeaderArguments(batch.getCodeFiles().iterator().next()));
+
+		final List<String> sourceFilePaths = new ArrayList<String>();
+		for(NativeCodeFile codeFile : batch.getCodeFiles())
+			sourceFilePaths.add(codeFile.getSourceFile().getAbsolutePath());
+
+		executor.appendInputs(sourceFilePaths);
+
+		executor.execute();
+		return diagnostics.toString();
+	}
+
+	private void invalidateCompiledFiles(final Collection<NativeCodeFile> batch) {
+		for(NativeCodeFile codeFile : batch) {
+			settings.getFileStatusCache().invalidate(codeFile.getObjectFile());
+			settings.getFileStatusCache().invalidate(codeFile.getDependFile());
+		}
 	}
 }
@@ -0,0 +1,117 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * Streaming parser for the make rules written by gcc -MMD.<br />
+ * Only the prerequisites of the first rule are returned. Further rules, such
+ * as the phony header targets written by -MP, are skipped. Handles line
+ * continuations, escaped spaces and hashes, and doubled dollar signs.
+ */
+public class DependFileParser {
+
+	/**
+	 * @param reader	The depend file, through a reader supporting mark and reset
+	 */
+	public List<String> parsePrerequisites(final Reader reader) throws IOException {
+		final List<String> prerequisites = new ArrayList<String>();
+		final StringBuilder word = new StringBuilder();
+		boolean inPrerequisites = false;
+
+		int c = reader.read();
+		while( c != -1 ) {
+			if( c == '\\' ) {
+				final int next = reader.read();
+				if( next == '\n' || next == '\r' ) {
+					if( next == '\r' )
+						reader.read();
+					inPrerequisites = endWord(word, inPrerequisites, prerequisites);
+				}
+				else if( next == ' ' || next == '#' ) {
+					word.append((char)next);
+				}
+				else {
+					word.append('\\');
+					if( next == -1 )
+						break;
+					c = next;
+					continue;
+				}
+			}
+			else if( c == '$' ) {
+				final int next = reader.read();
+				word.append('$');
+				if( next != '$' ) {
+					c = next;
+					continue;
+				}
+			}
+			else if( c == '\n' || c == '\r' ) {
+				endWord(word, inPrerequisites, prerequisites);
+				if( inPrerequisites )
+					break;
+			}
+			else if( c == ' ' || c == '\t' ) {
+				inPrerequisites = endWord(word, inPrerequisites, prerequisites);
+			}
+			else if( c == ':' && !inPrerequisites && isFollowedByWhitespace(reader) ) {
+				word.setLength(0);
+				inPrerequisites = true;
+			}
+			else {
+				word.append((char)c);
+			}
+
+			c = reader.read();
+		}
+
+		endWord(word, inPrerequisites, prerequisites);
+		return prerequisites;
+	}
+
+	/**
+	 * @return Whether the prerequisite is the source file of the rule. gcc lists
+	 * it the way it was passed on the command line, which is the absolute path
+	 * for local compiles and the bare name for remote ones.
+	 */
+	public static boolean isSourceFile(final String prerequisite, final NativeCodeFile ncf) {
+		return prerequisite.equals(ncf.getSourceFile().getAbsolutePath()) || prerequisite.equals(ncf.getSourceFile().getName());
+	}
+
+	private boolean endWord(final StringBuilder word, final boolean inPrerequisites, final List<String> prerequisites) {
+		if( word.length() > 0 && inPrerequisites )
+			prerequisites.add(word.toString());
+
+		word.setLength(0);
+		return inPrerequisites;
+	}
+
+	private boolean isFollowedByWhitespace(final Reader reader) throws IOException {
+		reader.mark(1);
+		final int next = reader.read();
+		reader.reset();
+		return next == -1 || Character.isWhitespace(next);
+	}
+}
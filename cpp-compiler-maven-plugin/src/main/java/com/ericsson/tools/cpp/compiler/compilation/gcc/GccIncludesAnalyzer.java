@@ -16,58 +16,103 @@
 
 package com.ericsson.tools.cpp.compiler.compilation.gcc;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 import org.apache.maven.plugin.MojoExecutionException;
 
 import com.ericsson.tools.cpp.compiler.compilation.IncludesAnalyzer;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
 
 
 public class GccIncludesAnalyzer implements IncludesAnalyzer {
+	private final FileStatusCache fileStatusCache;
+	private final IncludeGraphIndex includeGraphIndex;
+	private final DependFileParser dependFileParser = new DependFileParser();
+
+	public GccIncludesAnalyzer() {
+		this(new FileStatusCache());
+	}
+
+	public GccIncludesAnalyzer(final FileStatusCache fileStatusCache) {
+		this(fileStatusCache, null);
+	}
+
+	/**
+	 * @param includeGraphIndex		Persistent index of included files, or null to always read the depend files
+	 */
+	public GccIncludesAnalyzer(final FileStatusCache fileStatusCache, final IncludeGraphIndex includeGraphIndex) {
+		this.fileStatusCache = fileStatusCache;
+		this.includeGraphIndex = includeGraphIndex;
+	}
 
 	@Override
 	public List<File> getIncludedFiles(final NativeCodeFile ncf) throws MojoExecutionException {
-		final List<File> includedFiles = new ArrayList<File>();
+		if( includeGraphIndex == null )
+			return readDependFile(ncf);
 
-		try {
-			Scanner scan = new Scanner(ncf.getDependFile());  
-			scan.useDelimiter("\\Z");  
+		final long objectLastModified = ncf.getObjectFile().lastModified();
+		final List<File> indexedFiles = includeGraphIndex.getIncludedFiles(ncf, objectLastModified);
+		if( indexedFiles != null )
+			return indexedFiles;
 
-			for(String path : scan.next().split(" ")) {
-				if( path.isEmpty() )
-					continue;
+		final List<File> includedFiles = readDependFile(ncf);
+		includeGraphIndex.update(ncf, objectLastModified, includedFiles);
+		return includedFiles;
+	}
 
-				if( path.startsWith("\\") )
-					continue;
+	@Override
+	public void fileCompiled(final NativeCodeFile ncf) throws MojoExecutionException {
+		if( includeGraphIndex != null )
+			includeGraphIndex.update(ncf, ncf.getObjectFile().lastModified(), readDependFile(ncf));
+	}
 
-				if( path.equals(ncf.getSourceFile().getName()) )
-					continue;
+	@Override
+	public void persistState() {
+		if( includeGraphIndex != null )
+			includeGraphIndex.persist();
+	}
 
-				if( path.equals(ncf.getObjectFile().getName() + ":") )
-					continue;
+	private List<File> readDependFile(final NativeCodeFile ncf) throws MojoExecutionException {
+		final List<File> includedFiles = new ArrayList<File>();
 
-				includedFiles.add(findIncludedFile(ncf, path));
+		try {
+			final BufferedReader reader = new BufferedReader(new FileReader(ncf.getDependFile()));
+			try {
+				for(String path : dependFileParser.parsePrerequisites(reader)) {
+					if( DependFileParser.isSourceFile(path, ncf) )
+						continue;
+
+					includedFiles.add(findIncludedFile(ncf, path));
+				}
+			}
+			finally {
+				reader.close();
 			}
 		} 
 		catch (FileNotFoundException e) {
 			throw new MojoExecutionException("Could not open depend file.", e);
 		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Could not read depend file " + ncf.getDependFile() + ".", e);
+		}
 
 		return includedFiles;
 	}
 
 	private File findIncludedFile(final NativeCodeFile ncf, final String path) throws MojoExecutionException {
 		final File includedFileAbsolute = new File(path);
-		if( includedFileAbsolute.exists() )
+		if( fileStatusCache.exists(includedFileAbsolute) )
 			return includedFileAbsolute;
 
 		final File includedFileRelative = new File(ncf.getSourceFile().getParent(), path);
-		if( includedFileRelative.exists() )
+		if( fileStatusCache.exists(includedFileRelative) )
 			return includedFileRelative;
 
 		throw new MojoExecutionException(ncf.getDependFile().getName() + " lists a non-existent dependency (" + path + " could not be resolved as " + includedFileAbsolute.getPath() + " or " + includedFileRelative.getPath() + ".");
@@ -0,0 +1,470 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.tools.FileHashCache;
+
+
+/**
+ * A compilation cache shared by all builds on a machine, in the spirit of ccache's direct mode.<br />
+ * <br />
+ * A manifest is looked up using a hash of the compiler command line (including the compiler
+ * version), the path of the source file relative to the project and the contents of the source
+ * file. The manifest lists the include closures seen for that source, each with the hashes of
+ * all headers and the key of the resulting object. If all headers of a listed closure are
+ * unchanged, the object file, depend file and compiler diagnostics are restored by copying them
+ * from the cache. Paths inside the project are stored relative to the project base directory,
+ * so that the cache can be shared between workspaces. Debug information holds the absolute
+ * paths of the sources and the compilation directory, so objects compiled with it are only
+ * shared within the same base directory.<br />
+ * <br />
+ * Files are written to temporary names and renamed into place, so concurrent builds never see
+ * partially written entries. Manifest updates and eviction are serialized between processes
+ * through a lock file. When the cache grows beyond its maximum size, the least recently used
+ * objects and manifests are evicted.
+ */
+public class GccObjectCache {
+	private static final String BASEDIR_PLACEHOLDER = "@BASEDIR@";
+	private static final int MAX_MANIFEST_ENTRIES = 16;
+	private static final double EVICTION_TARGET = 0.9;
+	private static final String UTF8 = "UTF-8";
+	private static final Object JVM_LOCK = new Object();
+
+	private final Log log;
+	private final File cacheDirectory;
+	private final long maxSize;
+	private final String basedir;
+	private final String commandSignature;
+	private final boolean debugInfo;
+	private final FileHashCache fileHashCache;
+	private final DependFileParser dependFileParser = new DependFileParser();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	public GccObjectCache(final Log log, final File cacheDirectory, final long maxSize, final File basedir, final String commandSignature, final FileHashCache fileHashCache) {
+		this.log = log;
+		this.cacheDirectory = cacheDirectory;
+		this.maxSize = maxSize;
+		this.basedir = basedir.getAbsolutePath();
+		this.commandSignature = normalize(commandSignature);
+		this.debugInfo = hasDebugInfo(commandSignature);
+		this.fileHashCache = fileHashCache;
+		fileHashCache.load();
+	}
+
+	/**
+	 * Restores the object and depend file of a code file from the cache, and replays the
+	 * diagnostics of the original compilation.
+	 *
+	 * @return Whether the files were found in the cache and restored
+	 */
+	public boolean restore(final NativeCodeFile ncf) {
+		try {
+			final File manifest = getEntryFile("manifests", getManifestKey(ncf), ".manifest");
+			if( manifest.exists() ) {
+				for(ManifestEntry entry : readManifest(manifest)) {
+					if( entry.matchesCurrentHeaders() && restoreResult(ncf, entry.resultKey) ) {
+						manifest.setLastModified(System.currentTimeMillis());
+						hits.incrementAndGet();
+						return true;
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			log.debug("Failed to look up " + ncf.getSourceFile() + " in object cache: " + e);
+		}
+
+		misses.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Stores the freshly compiled object and depend file of a code file in the cache.
+	 * Failures are logged and otherwise ignored.
+	 */
+	public void store(final NativeCodeFile ncf, final String diagnostics) {
+		try {
+			final String manifestKey = getManifestKey(ncf);
+			final ManifestEntry entry = createManifestEntry(ncf, manifestKey);
+
+			writeAtomically(getEntryFile("objects", entry.resultKey, ".o"), ncf.getObjectFile());
+			writeAtomically(getEntryFile("objects", entry.resultKey, ".d"), normalize(FileUtils.fileRead(ncf.getDependFile(), UTF8)));
+			writeAtomically(getEntryFile("objects", entry.resultKey, ".stderr"), diagnostics);
+			bytesWritten.addAndGet(ncf.getObjectFile().length() + ncf.getDependFile().length() + diagnostics.length());
+
+			final File manifest = getEntryFile("manifests", manifestKey, ".manifest");
+			synchronized(JVM_LOCK) {
+				final FileLock lock = lock();
+				try {
+					final List<ManifestEntry> entries = manifest.exists() ? readManifest(manifest) : new ArrayList<ManifestEntry>();
+					final Iterator<ManifestEntry> iterator = entries.iterator();
+					while( iterator.hasNext() )
+						if( iterator.next().resultKey.equals(entry.resultKey) )
+							iterator.remove();
+
+					entries.add(0, entry);
+					final long previousLength = manifest.length();
+					writeAtomically(manifest, formatManifest(entries.subList(0, Math.min(entries.size(), MAX_MANIFEST_ENTRIES))));
+					bytesWritten.addAndGet(manifest.length() - previousLength);
+				}
+				finally {
+					release(lock);
+				}
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to store " + ncf.getSourceFile() + " in object cache " + cacheDirectory + ": " + e);
+		}
+	}
+
+	/**
+	 * Updates the recorded cache size, evicts the least recently used objects and
+	 * manifests if the cache has grown too big, and saves the file hashes.
+	 */
+	public void close() {
+		fileHashCache.save();
+		log.info("Object cache: " + hits.get() + " hits, " + misses.get() + " misses.");
+
+		if( bytesWritten.get() == 0 )
+			return;
+
+		try {
+			synchronized(JVM_LOCK) {
+				final FileLock lock = lock();
+				try {
+					final File sizeFile = new File(cacheDirectory, "size");
+					long size = readSize(sizeFile) + bytesWritten.getAndSet(0);
+					if( size > maxSize )
+						size = evict();
+
+					writeAtomically(sizeFile, Long.toString(size));
+				}
+				finally {
+					release(lock);
+				}
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to update size of object cache " + cacheDirectory + ": " + e);
+		}
+	}
+
+	private boolean restoreResult(final NativeCodeFile ncf, final String resultKey) throws IOException {
+		final File cachedObject = getEntryFile("objects", resultKey, ".o");
+		final File cachedDepend = getEntryFile("objects", resultKey, ".d");
+		final File cachedDiagnostics = getEntryFile("objects", resultKey, ".stderr");
+		if( !cachedObject.exists() || !cachedDepend.exists() || !cachedDiagnostics.exists() )
+			return false;
+
+		final String dependContent = denormalize(FileUtils.fileRead(cachedDepend, UTF8));
+		final String diagnostics = FileUtils.fileRead(cachedDiagnostics, UTF8);
+		ncf.getObjectFile().getParentFile().mkdirs();
+		writeAtomically(ncf.getObjectFile(), cachedObject);
+		writeAtomically(ncf.getDependFile(), dependContent);
+
+		final long now = System.currentTimeMillis();
+		cachedObject.setLastModified(now);
+		cachedDepend.setLastModified(now);
+		cachedDiagnostics.setLastModified(now);
+
+		log.debug(ncf.getSourceFile().getName() + " restored from object cache.");
+		for(String line : diagnostics.split("\n"))
+			if( line.length() > 0 )
+				log.warn(line);
+
+		return true;
+	}
+
+	private String getManifestKey(final NativeCodeFile ncf) throws IOException {
+		final MessageDigest digest = FileHashCache.createDigest();
+		update(digest, commandSignature);
+		if( debugInfo )
+			update(digest, basedir);
+		update(digest, normalize(ncf.getSourceFile().getAbsolutePath()));
+		update(digest, fileHashCache.getHash(ncf.getSourceFile()));
+		return FileHashCache.toHex(digest.digest());
+	}
+
+	private ManifestEntry createManifestEntry(final NativeCodeFile ncf, final String manifestKey) throws IOException {
+		final List<String> headerPaths = new ArrayList<String>();
+		final List<String> headerHashes = new ArrayList<String>();
+		final MessageDigest digest = FileHashCache.createDigest();
+		update(digest, manifestKey);
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(ncf.getDependFile()), UTF8));
+		try {
+			for(String path : dependFileParser.parsePrerequisites(reader)) {
+				if( DependFileParser.isSourceFile(path, ncf) )
+					continue;
+
+				final File header = new File(path).isAbsolute() ? new File(path) : new File(ncf.getSourceFile().getParentFile(), path);
+				final String normalizedPath = normalize(header.getAbsolutePath());
+				final String hash = fileHashCache.getHash(header);
+				headerPaths.add(normalizedPath);
+				headerHashes.add(hash);
+				update(digest, normalizedPath);
+				update(digest, hash);
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		return new ManifestEntry(FileHashCache.toHex(digest.digest()), headerPaths, headerHashes);
+	}
+
+	private List<ManifestEntry> readManifest(final File manifest) throws IOException {
+		final List<ManifestEntry> entries = new ArrayList<ManifestEntry>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), UTF8));
+		try {
+			ManifestEntry entry = null;
+			String line;
+			while( (line = reader.readLine()) != null ) {
+				if( line.startsWith("result ") ) {
+					entry = new ManifestEntry(line.substring("result ".length()), new ArrayList<String>(), new ArrayList<String>());
+					entries.add(entry);
+				}
+				else if( entry != null && line.length() > 33 && line.charAt(32) == ' ' ) {
+					entry.headerHashes.add(line.substring(0, 32));
+					entry.headerPaths.add(line.substring(33));
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		return entries;
+	}
+
+	private String formatManifest(final List<ManifestEntry> entries) {
+		final StringBuilder manifest = new StringBuilder();
+		for(ManifestEntry entry : entries) {
+			manifest.append("result ").append(entry.resultKey).append('\n');
+			for(int i = 0; i < entry.headerPaths.size(); i++)
+				manifest.append(entry.headerHashes.get(i)).append(' ').append(entry.headerPaths.get(i)).append('\n');
+		}
+
+		return manifest.toString();
+	}
+
+	/**
+	 * Evicts objects and manifests alike. A manifest whose objects are gone only
+	 * causes misses, and objects whose manifest is gone are evicted in turn.
+	 */
+	private long evict() {
+		final List<File> files = new ArrayList<File>();
+		long size = listEntryFiles("objects", files) + listEntryFiles("manifests", files);
+
+		Collections.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(final File f1, final File f2) {
+				final long m1 = f1.lastModified();
+				final long m2 = f2.lastModified();
+				return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+			}
+		});
+
+		final long targetSize = (long)(maxSize * EVICTION_TARGET);
+		int evicted = 0;
+		for(File file : files) {
+			if( size <= targetSize )
+				break;
+
+			final long length = file.length();
+			if( file.delete() ) {
+				size -= length;
+				evicted++;
+			}
+		}
+
+		log.info("Evicted " + evicted + " files from object cache " + cacheDirectory + ".");
+		return size;
+	}
+
+	/**
+	 * @return The total size of the listed files
+	 */
+	private long listEntryFiles(final String type, final List<File> entryFiles) {
+		long size = 0;
+		final File[] buckets = new File(cacheDirectory, type).listFiles();
+		for(File bucket : buckets == null ? new File[0] : buckets) {
+			final File[] files = bucket.listFiles();
+			if( files == null )
+				continue;
+
+			entryFiles.addAll(Arrays.asList(files));
+			for(File file : files)
+				size += file.length();
+		}
+
+		return size;
+	}
+
+	private long readSize(final File sizeFile) {
+		try {
+			return sizeFile.exists() ? Long.parseLong(FileUtils.fileRead(sizeFile, UTF8).trim()) : 0;
+		}
+		catch (IOException e) {
+			return 0;
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private FileLock lock() throws IOException {
+		cacheDirectory.mkdirs();
+		final RandomAccessFile lockFile = new RandomAccessFile(new File(cacheDirectory, "lock"), "rw");
+		try {
+			return lockFile.getChannel().lock();
+		}
+		catch (IOException e) {
+			lockFile.close();
+			throw e;
+		}
+	}
+
+	private void release(final FileLock lock) throws IOException {
+		try {
+			lock.release();
+		}
+		finally {
+			lock.channel().close();
+		}
+	}
+
+	private File getEntryFile(final String type, final String key, final String suffix) {
+		return new File(cacheDirectory, type + "/" + key.substring(0, 2) + "/" + key.substring(2) + suffix);
+	}
+
+	private void writeAtomically(final File target, final File source) throws IOException {
+		final File temporaryFile = createTemporaryFile(target);
+		try {
+			FileUtils.copyFile(source, temporaryFile);
+			rename(temporaryFile, target);
+		}
+		finally {
+			temporaryFile.delete();
+		}
+	}
+
+	private void writeAtomically(final File target, final String content) throws IOException {
+		final File temporaryFile = createTemporaryFile(target);
+		try {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), UTF8);
+			try {
+				writer.write(content);
+			}
+			finally {
+				writer.close();
+			}
+			rename(temporaryFile, target);
+		}
+		finally {
+			temporaryFile.delete();
+		}
+	}
+
+	private File createTemporaryFile(final File target) {
+		target.getParentFile().mkdirs();
+		return new File(target.getParentFile(), "." + target.getName() + "." + UUID.randomUUID() + ".tmp");
+	}
+
+	private void rename(final File source, final File target) throws IOException {
+		if( !source.renameTo(target) )
+			throw new IOException("Failed to move " + source + " to " + target + ".");
+	}
+
+	/**
+	 * The last -g option decides, and -g0 turns debug information off again.
+	 */
+	private static boolean hasDebugInfo(final String commandSignature) {
+		boolean debugInfo = false;
+		for(String argument : commandSignature.split("\\s+"))
+			if( argument.startsWith("-g") && !argument.startsWith("-gno-") )
+				debugInfo = !argument.equals("-g0");
+
+		return debugInfo;
+	}
+
+	private String normalize(final String text) {
+		return text.replace(basedir, BASEDIR_PLACEHOLDER);
+	}
+
+	private String denormalize(final String text) {
+		return text.replace(BASEDIR_PLACEHOLDER, basedir);
+	}
+
+	private void update(final MessageDigest digest, final String value) throws IOException {
+		digest.update(value.getBytes(UTF8));
+		digest.update((byte)0);
+	}
+
+	private class ManifestEntry {
+		private final String resultKey;
+		private final List<String> headerPaths;
+		private final List<String> headerHashes;
+
+		public ManifestEntry(final String resultKey, final List<String> headerPaths, final List<String> headerHashes) {
+			this.resultKey = resultKey;
+			this.headerPaths = headerPaths;
+			this.headerHashes = headerHashes;
+		}
+
+		public boolean matchesCurrentHeaders() {
+			for(int i = 0; i < headerPaths.size(); i++) {
+				final File header = new File(denormalize(headerPaths.get(i)));
+				try {
+					if( !headerHashes.get(i).equals(fileHashCache.getHash(header)) )
+						return false;
+				}
+				catch (IOException e) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
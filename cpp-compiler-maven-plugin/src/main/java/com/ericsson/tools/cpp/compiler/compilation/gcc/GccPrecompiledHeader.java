@@ -0,0 +1,95 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * An umbrella header including all configured precompiled headers, compiled
+ * into a .gch next to it. Since gcc looks for "&lt;header&gt;.gch" before
+ * reading a header given through -include, the compiled header is named after
+ * the umbrella header rather than after its class name like other objects.
+ */
+public class GccPrecompiledHeader extends NativeCodeFile {
+	public static final String DIRECTORY_NAME = "pch";
+	public static final String HEADER_NAME = "precompiled.hh";
+	public static final String PRECOMPILED_SUFFIX = ".gch";
+
+	private final List<String> headers;
+
+	public GccPrecompiledHeader(final File objDirectory, final List<String> headers) {
+		super(HEADER_NAME, new File(objDirectory, DIRECTORY_NAME), new File(objDirectory, DIRECTORY_NAME));
+		this.headers = headers;
+	}
+
+	@Override
+	public synchronized File getObjectFile() {
+		return new File(getSourceFile().getPath() + PRECOMPILED_SUFFIX);
+	}
+
+	/**
+	 * @return Whether the umbrella header exists and includes exactly the configured headers
+	 */
+	public boolean isUpToDate() throws MojoExecutionException {
+		if( !getSourceFile().exists() )
+			return false;
+
+		try {
+			return FileUtils.fileRead(getSourceFile()).equals(getContent());
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to read " + getSourceFile(), e);
+		}
+	}
+
+	/**
+	 * (Re)writes the umbrella header. This also makes every file compiled with
+	 * the previous precompiled header stale, since they all depend on it.
+	 */
+	public void write() throws MojoExecutionException {
+		getSourceFile().getParentFile().mkdirs();
+		try {
+			FileUtils.fileWrite(getSourceFile().getPath(), getContent());
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to write " + getSourceFile(), e);
+		}
+	}
+
+	/**
+	 * C files can't use a precompiled C++ header.
+	 */
+	public static boolean isUsableBy(final NativeCodeFile codeFile) {
+		return !codeFile.getSourceFile().getName().endsWith(".c");
+	}
+
+	private String getContent() {
+		final StringBuilder content = new StringBuilder();
+		for(String header : headers)
+			content.append("#include <").append(header).append(">\n");
+
+		return content.toString();
+	}
+}
@@ -23,16 +23,45 @@ import org.apache.maven.plugin.logging.Log;
 
 import com.ericsson.tools.cpp.compiler.compilation.IncludesAnalyzer;
 import com.ericsson.tools.cpp.compiler.compilation.RecompilationJudge;
+import com.ericsson.tools.cpp.compiler.compilation.SignatureRecompilationJudge;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
+import com.ericsson.tools.cpp.tools.FileHashCache;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
+import com.ericsson.tools.cpp.tools.environment.Environment;
 
 
 public class GccRecompilationJudge implements RecompilationJudge {
 	private final Log log;
 	private final IncludesAnalyzer includesAnalyzer;
+	private final FileStatusCache fileStatusCache;
 
 	public GccRecompilationJudge(final Log log, final IncludesAnalyzer includesAnalyzer) {
+		this(log, includesAnalyzer, new FileStatusCache());
+	}
+
+	public GccRecompilationJudge(final Log log, final IncludesAnalyzer includesAnalyzer, final FileStatusCache fileStatusCache) {
 		this.log = log;
 		this.includesAnalyzer = includesAnalyzer;
+		this.fileStatusCache = fileStatusCache;
+	}
+
+	/**
+	 * Creates the judge for a target compiled with gcc, keeping the include graph in the
+	 * object directory of the target, and judging by signature if that is the configured
+	 * recompilation strategy.
+	 */
+	public static RecompilationJudge create(final Log log, final CompilationSettings settings, final Environment target) {
+		final File objDirectory = settings.getObjDirectory(target, settings.isTestCompilation());
+		final IncludesAnalyzer includesAnalyzer = new GccIncludesAnalyzer(settings.getFileStatusCache(), new IncludeGraphIndex(log, objDirectory));
+		final RecompilationJudge timestampJudge = new GccRecompilationJudge(log, includesAnalyzer, settings.getFileStatusCache());
+
+		if( CompilationSettings.RECOMPILATION_BY_SIGNATURE.equals(settings.getRecompilationStrategy()) ) {
+			final FileHashCache fileHashCache = new FileHashCache(log, new File(objDirectory, SignatureRecompilationJudge.FILE_HASHES_FILE_NAME), settings.getFileStatusCache());
+			return new SignatureRecompilationJudge(log, timestampJudge, includesAnalyzer, fileHashCache, objDirectory);
+		}
+
+		return timestampJudge;
 	}
 
 	@Override
@@ -47,12 +76,13 @@ public class GccRecompilationJudge implements RecompilationJudge {
 			return true;
 		}
 
-		if( ncf.getSourceFile().lastModified() > ncf.getObjectFile().lastModified() ) {
+		final long objectFileLastModified = ncf.getObjectFile().lastModified();
+		if( fileStatusCache.lastModified(ncf.getSourceFile()) > objectFileLastModified ) {
 			log.debug(ncf.getSourceFile().getName() + " is newer than its object file. It needs to be compiled.");
 			return true;
 		}
 
-		if( anyIncludedDependencyHasBeenUpdated(ncf) ) {
+		if( anyIncludedDependencyHasBeenUpdated(ncf, objectFileLastModified) ) {
 			log.debug(ncf.getSourceFile().getName() + " includes one or more files that are newer than the object file. It needs to be compiled.");
 			return true;
 		}
@@ -60,10 +90,30 @@ public class GccRecompilationJudge implements RecompilationJudge {
 		return false;
 	}
 
-	private boolean anyIncludedDependencyHasBeenUpdated(final NativeCodeFile ncf) throws MojoExecutionException {
-		for(File includedFile : includesAnalyzer.getIncludedFiles(ncf))
-			if( includedFile.lastModified() > ncf.getObjectFile().lastModified() )
+	@Override
+	public void setCommandSignature(final String commandSignature) {
+	}
+
+	@Override
+	public void fileCompiled(final NativeCodeFile ncf) throws MojoExecutionException {
+		includesAnalyzer.fileCompiled(ncf);
+	}
+
+	@Override
+	public void persistState() {
+		includesAnalyzer.persistState();
+	}
+
+	private boolean anyIncludedDependencyHasBeenUpdated(final NativeCodeFile ncf, final long objectFileLastModified) throws MojoExecutionException {
+		for(File includedFile : includesAnalyzer.getIncludedFiles(ncf)) {
+			if( fileStatusCache.lastModified(includedFile) > objectFileLastModified )
+				return true;
+
+			if( !fileStatusCache.exists(includedFile) ) {
+				log.debug(ncf.getSourceFile().getName() + " includes " + includedFile + ", which no longer exists.");
 				return true;
+			}
+		}
 		
 		return false;
 	}
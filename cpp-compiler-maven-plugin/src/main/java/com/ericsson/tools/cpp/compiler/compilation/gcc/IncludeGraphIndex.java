@@ -0,0 +1,286 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+/**
+ * A persistent index of which headers each translation unit includes.<br />
+ * The index is kept in a binary file in the obj directory, holding every
+ * header path once and a list of header numbers per translation unit. Each
+ * list is tagged with the modification time of the object file it was
+ * recorded for, and is only trusted as long as the object file is unchanged.
+ * This way depend files only need to be read for translation units compiled
+ * since the index was last written.<br />
+ * <br />
+ * File layout: magic, version, number of paths, the paths (length and UTF-8
+ * bytes), number of translation units, and for each translation unit its
+ * path number, object file modification time, number of headers and header
+ * path numbers.
+ */
+public class IncludeGraphIndex {
+	public static final String INDEX_FILE_NAME = "include-graph.idx";
+	private static final int MAGIC = 0x43504947;
+	private static final int VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Log log;
+	private final File indexFile;
+	private final List<String> paths = new ArrayList<String>();
+	private final List<File> files = new ArrayList<File>();
+	private final Map<String, Integer> pathNumbers = new HashMap<String, Integer>();
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private final Set<String> usedEntries = new HashSet<String>();
+	private boolean loaded = false;
+	private boolean modified = false;
+
+	public IncludeGraphIndex(final Log log, final File objDirectory) {
+		this.log = log;
+		this.indexFile = new File(objDirectory, INDEX_FILE_NAME);
+	}
+
+	/**
+	 * @return The included files recorded for the object file as it is now, or null if unknown
+	 */
+	public synchronized List<File> getIncludedFiles(final NativeCodeFile ncf, final long objectLastModified) {
+		ensureLoaded();
+
+		final String key = getKey(ncf);
+		final Entry entry = entries.get(key);
+		if( entry == null || entry.objectLastModified != objectLastModified )
+			return null;
+
+		usedEntries.add(key);
+		final List<File> includedFiles = new ArrayList<File>(entry.includes.length);
+		for(int pathNumber : entry.includes)
+			includedFiles.add(files.get(pathNumber));
+
+		return includedFiles;
+	}
+
+	public synchronized void update(final NativeCodeFile ncf, final long objectLastModified, final List<File> includedFiles) {
+		ensureLoaded();
+
+		final int[] includes = new int[includedFiles.size()];
+		for(int i = 0; i < includes.length; i++)
+			includes[i] = intern(includedFiles.get(i).getPath());
+
+		final String key = getKey(ncf);
+		entries.put(key, new Entry(intern(key), objectLastModified, includes));
+		usedEntries.add(key);
+		modified = true;
+	}
+
+	/**
+	 * Writes the index if anything has changed. Translation units that were
+	 * not looked at during this build, and whose source no longer exists,
+	 * are dropped.
+	 */
+	public synchronized void persist() {
+		if( !loaded )
+			return;
+
+		final Iterator<String> keys = entries.keySet().iterator();
+		while( keys.hasNext() ) {
+			final String key = keys.next();
+			if( !usedEntries.contains(key) && !new File(key).exists() ) {
+				keys.remove();
+				modified = true;
+			}
+		}
+
+		if( !modified )
+			return;
+
+		try {
+			write();
+			modified = false;
+			log.debug("Wrote include graph for " + entries.size() + " translation units and " + paths.size() + " paths to " + indexFile);
+		}
+		catch (IOException e) {
+			log.warn("Failed to write include graph to " + indexFile + ". Depend files will be read again next build.", e);
+			indexFile.delete();
+		}
+	}
+
+	private void ensureLoaded() {
+		if( loaded )
+			return;
+
+		loaded = true;
+		if( !indexFile.exists() )
+			return;
+
+		try {
+			read();
+			log.debug("Read include graph for " + entries.size() + " translation units and " + paths.size() + " paths from " + indexFile);
+		}
+		catch (IOException e) {
+			discard(e);
+		}
+		catch (BufferUnderflowException e) {
+			discard(e);
+		}
+	}
+
+	private void discard(final Exception e) {
+		log.warn("Discarding unreadable include graph " + indexFile + ". All depend files will be read.", e);
+		paths.clear();
+		files.clear();
+		pathNumbers.clear();
+		entries.clear();
+	}
+
+	private void read() throws IOException {
+		final FileInputStream in = new FileInputStream(indexFile);
+		try {
+			final FileChannel channel = in.getChannel();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if( buffer.getInt() != MAGIC || buffer.getInt() != VERSION )
+				throw new IOException("Unknown include graph format.");
+
+			final int numberOfPaths = buffer.getInt();
+			for(int i = 0; i < numberOfPaths; i++) {
+				final byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				intern(new String(bytes, UTF8));
+			}
+
+			final int numberOfEntries = buffer.getInt();
+			for(int i = 0; i < numberOfEntries; i++) {
+				final int sourcePathNumber = readPathNumber(buffer.getInt());
+				final long objectLastModified = buffer.getLong();
+				final int[] includes = new int[buffer.getInt()];
+				for(int j = 0; j < includes.length; j++)
+					includes[j] = readPathNumber(buffer.getInt());
+
+				entries.put(paths.get(sourcePathNumber), new Entry(sourcePathNumber, objectLastModified, includes));
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private int readPathNumber(final int pathNumber) throws IOException {
+		if( pathNumber < 0 || pathNumber >= paths.size() )
+			throw new IOException("Include graph refers to unknown path number " + pathNumber + ".");
+
+		return pathNumber;
+	}
+
+	private void write() throws IOException {
+		final int[] newPathNumbers = new int[paths.size()];
+		Arrays.fill(newPathNumbers, -1);
+		final List<String> usedPaths = new ArrayList<String>();
+		for(Entry entry : entries.values()) {
+			renumber(entry.sourcePathNumber, newPathNumbers, usedPaths);
+			for(int pathNumber : entry.includes)
+				renumber(pathNumber, newPathNumbers, usedPaths);
+		}
+
+		final File temporaryFile = new File(indexFile.getPath() + ".tmp");
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 65536));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			out.writeInt(usedPaths.size());
+			for(String path : usedPaths) {
+				final byte[] bytes = path.getBytes(UTF8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+
+			out.writeInt(entries.size());
+			for(Entry entry : entries.values()) {
+				out.writeInt(newPathNumbers[entry.sourcePathNumber]);
+				out.writeLong(entry.objectLastModified);
+				out.writeInt(entry.includes.length);
+				for(int pathNumber : entry.includes)
+					out.writeInt(newPathNumbers[pathNumber]);
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		if( !temporaryFile.renameTo(indexFile) )
+			throw new IOException("Failed to move " + temporaryFile + " to " + indexFile + ".");
+	}
+
+	/**
+	 * Paths no longer referenced by any translation unit are left out when writing.
+	 */
+	private void renumber(final int pathNumber, final int[] newPathNumbers, final List<String> usedPaths) {
+		if( newPathNumbers[pathNumber] >= 0 )
+			return;
+
+		newPathNumbers[pathNumber] = usedPaths.size();
+		usedPaths.add(paths.get(pathNumber));
+	}
+
+	private int intern(final String path) {
+		final Integer pathNumber = pathNumbers.get(path);
+		if( pathNumber != null )
+			return pathNumber;
+
+		paths.add(path);
+		files.add(new File(path));
+		pathNumbers.put(path, paths.size() - 1);
+		return paths.size() - 1;
+	}
+
+	private String getKey(final NativeCodeFile ncf) {
+		return ncf.getSourceFile().getPath();
+	}
+
+	private static class Entry {
+		private final int sourcePathNumber;
+		private final long objectLastModified;
+		private final int[] includes;
+
+		public Entry(final int sourcePathNumber, final long objectLastModified, final int[] includes) {
+			this.sourcePathNumber = sourcePathNumber;
+			this.objectLastModified = objectLastModified;
+			this.includes = includes;
+		}
+	}
+}
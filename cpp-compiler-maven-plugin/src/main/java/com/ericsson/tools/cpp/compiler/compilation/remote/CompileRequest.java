@@ -0,0 +1,87 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.remote;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A preprocessed translation unit to compile to an object on a worker. The
+ * arguments are the code generation options only; the worker adds the input
+ * and output files itself.
+ */
+public class CompileRequest {
+	private final String executable;
+	private final List<String> arguments;
+	private final String fileName;
+	private final byte[] source;
+
+	/**
+	 * @param fileName	The name of the preprocessed file, ending in .i for C or .ii for C++
+	 */
+	public CompileRequest(final String executable, final List<String> arguments, final String fileName, final byte[] source) {
+		this.executable = executable;
+		this.arguments = Collections.unmodifiableList(new ArrayList<String>(arguments));
+		this.fileName = fileName;
+		this.source = source;
+	}
+
+	public String getExecutable() {
+		return executable;
+	}
+
+	public List<String> getArguments() {
+		return arguments;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public byte[] getSource() {
+		return source;
+	}
+
+	void writeTo(final DataOutputStream out) throws IOException {
+		WorkerProtocol.writeHeader(out);
+		WorkerProtocol.writeString(out, executable);
+		out.writeInt(arguments.size());
+		for(String argument : arguments)
+			WorkerProtocol.writeString(out, argument);
+		WorkerProtocol.writeString(out, fileName);
+		WorkerProtocol.writeBlob(out, source);
+	}
+
+	static CompileRequest readFrom(final DataInputStream in) throws IOException {
+		WorkerProtocol.readHeader(in);
+		final String executable = WorkerProtocol.readString(in);
+		final int numberOfArguments = in.readInt();
+		if( numberOfArguments < 0 || numberOfArguments > 4096 )
+			throw new IOException("Invalid number of arguments " + numberOfArguments + " in compile request.");
+
+		final List<String> arguments = new ArrayList<String>(numberOfArguments);
+		for(int i = 0; i < numberOfArguments; i++)
+			arguments.add(WorkerProtocol.readString(in));
+		final String fileName = WorkerProtocol.readString(in);
+
+		return new CompileRequest(executable, arguments, fileName, WorkerProtocol.readBlob(in));
+	}
+}
@@ -0,0 +1,79 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.remote;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The outcome of a {@link CompileRequest}: the exit status of the compiler,
+ * what it wrote to standard error, and the object if it succeeded.
+ */
+public class CompileResult {
+	private final int status;
+	private final String diagnostics;
+	private final byte[] object;
+
+	public CompileResult(final int status, final String diagnostics, final byte[] object) {
+		this.status = status;
+		this.diagnostics = diagnostics;
+		this.object = object;
+	}
+
+	static CompileResult rejected(final String reason) {
+		return new CompileResult(WorkerProtocol.STATUS_REJECTED, reason, null);
+	}
+
+	public boolean isSuccessful() {
+		return status == 0;
+	}
+
+	/**
+	 * @return Whether the worker refused the request without running the compiler
+	 */
+	public boolean isRejected() {
+		return status == WorkerProtocol.STATUS_REJECTED;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getDiagnostics() {
+		return diagnostics;
+	}
+
+	public byte[] getObject() {
+		return object;
+	}
+
+	void writeTo(final DataOutputStream out) throws IOException {
+		WorkerProtocol.writeHeader(out);
+		out.writeInt(status);
+		WorkerProtocol.writeString(out, diagnostics);
+		if( isSuccessful() )
+			WorkerProtocol.writeBlob(out, object);
+	}
+
+	static CompileResult readFrom(final DataInputStream in) throws IOException {
+		WorkerProtocol.readHeader(in);
+		final int status = in.readInt();
+		final String diagnostics = WorkerProtocol.readString(in);
+		return new CompileResult(status, diagnostics, status == 0 ? WorkerProtocol.readBlob(in) : null);
+	}
+}
@@ -0,0 +1,297 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.ericsson.tools.cpp.tools.BoundedStreamConsumer;
+import com.ericsson.tools.cpp.tools.CliExecutor;
+
+/**
+ * A daemon compiling preprocessed files sent by {@link CompileWorkerPool}
+ * to objects. Every request is compiled in a temporary directory of its own,
+ * with at most as many compilers running as the worker has jobs. Requests
+ * are only read by a few more threads than that, and further connections wait
+ * to be accepted, so that the memory taken by requests is bounded.<br />
+ * Only compilers on the allowed list are run, and only with code generation
+ * and warning options, whose values can't name paths, since anyone able to
+ * connect may send requests. Workers listen on the loopback interface unless
+ * told otherwise.
+ * <br />
+ * Besides the worker goal of the plugin, a worker can be started with
+ * java -cp &lt;plugin classpath&gt; com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorker
+ * [--listen address] [--port port] [--jobs jobs] [--compilers gcc,g++].
+ */
+public class CompileWorker {
+	public static final String DEFAULT_COMPILERS = "gcc,g++,cc,c++";
+
+	private static final int READ_TIMEOUT = 60 * 1000;
+	private static final int CONNECTION_BACKLOG = 2;
+	private static final Pattern ALLOWED_OPTION = Pattern.compile("-(O\\w*|g\\w*|f\\w[\\w+.-]*|m\\w[\\w+.-]*|W\\w[\\w+-]*|w|std|ansi|pedantic|pedantic-errors|pthread|pipe)");
+	private static final Pattern ALLOWED_VALUE = Pattern.compile("[\\w+,.:%-]*");
+	private static final String[] LOADING_OPTIONS = { "-fplugin" };
+	private static final Pattern PREPROCESSED_FILE_NAME = Pattern.compile("[\\w.+-]+\\.(i|ii)");
+
+	private final Log log;
+	private final InetSocketAddress address;
+	private final Semaphore jobs;
+	private final Set<String> compilers = new HashSet<String>();
+	private final Semaphore connectionSlots;
+	private final ExecutorService connections;
+	private ServerSocket serverSocket;
+
+	public CompileWorker(final Log log, final InetSocketAddress address, final int jobs, final Collection<String> compilers) {
+		this.log = log;
+		this.address = address;
+		this.jobs = new Semaphore(jobs, true);
+		this.connectionSlots = new Semaphore(jobs + CONNECTION_BACKLOG);
+		this.connections = Executors.newFixedThreadPool(jobs + CONNECTION_BACKLOG);
+		for(String compiler : compilers)
+			this.compilers.add(compiler.trim());
+	}
+
+	public static void main(final String[] args) throws Exception {
+		String listen = "127.0.0.1";
+		int port = CompileWorkerPool.DEFAULT_PORT;
+		int jobs = Runtime.getRuntime().availableProcessors();
+		String compilers = DEFAULT_COMPILERS;
+
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			if( args[i].equals("--listen") )
+				listen = args[i + 1];
+			else if( args[i].equals("--port") )
+				port = Integer.parseInt(args[i + 1]);
+			else if( args[i].equals("--jobs") )
+				jobs = Integer.parseInt(args[i + 1]);
+			else if( args[i].equals("--compilers") )
+				compilers = args[i + 1];
+			else
+				throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+		}
+
+		final CompileWorker worker = new CompileWorker(new SystemStreamLog(), new InetSocketAddress(InetAddress.getByName(listen), port), jobs, Arrays.asList(compilers.split(",")));
+		worker.start();
+		worker.serve();
+	}
+
+	/**
+	 * Binds the worker to its address.
+	 */
+	public void start() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(address);
+		log.info("Compile worker listening on " + serverSocket.getLocalSocketAddress() + " with " + jobs.availablePermits() + " jobs, running " + compilers + ".");
+	}
+
+	/**
+	 * Accepts requests until the worker is stopped. A connection is only
+	 * accepted once a thread is free to read its request.
+	 */
+	public void serve() {
+		while( !serverSocket.isClosed() ) {
+			try {
+				connectionSlots.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			try {
+				final Socket socket = serverSocket.accept();
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							handle(socket);
+						}
+						finally {
+							connectionSlots.release();
+						}
+					}
+				});
+			}
+			catch (IOException e) {
+				connectionSlots.release();
+				if( !serverSocket.isClosed() )
+					log.warn("Failed to accept a compile request: " + e);
+			}
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public void stop() {
+		try {
+			serverSocket.close();
+		}
+		catch (IOException e) {
+			log.debug("Failed to close the worker socket: " + e);
+		}
+		connections.shutdownNow();
+	}
+
+	private void handle(final Socket socket) {
+		try {
+			try {
+				socket.setSoTimeout(READ_TIMEOUT);
+				final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+				final CompileRequest request = CompileRequest.readFrom(in);
+				final CompileResult result = compile(request);
+
+				final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+				result.writeTo(out);
+				out.flush();
+			}
+			finally {
+				socket.close();
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to serve compile request from " + socket.getRemoteSocketAddress() + ": " + e);
+		}
+		catch (InterruptedException e) {
+			log.debug("Stopped serving compile request from " + socket.getRemoteSocketAddress() + ".");
+		}
+	}
+
+	CompileResult compile(final CompileRequest request) throws IOException, InterruptedException {
+		final String rejection = validate(request);
+		if( rejection != null ) {
+			log.warn("Rejected compile request for " + request.getFileName() + ": " + rejection);
+			return CompileResult.rejected(rejection);
+		}
+
+		final File directory = File.createTempFile("cpp-worker-", "");
+		if( !directory.delete() || !directory.mkdir() )
+			throw new IOException("Failed to create temporary directory " + directory + ".");
+
+		jobs.acquire();
+		try {
+			final File sourceFile = new File(directory, request.getFileName());
+			final File objectFile = new File(directory, request.getFileName().substring(0, request.getFileName().lastIndexOf('.')) + ".o");
+			writeBytes(sourceFile, request.getSource());
+
+			final CliExecutor executor = new CliExecutor(log);
+			executor.initialize(directory, request.getExecutable());
+			executor.appendArguments(request.getArguments());
+			executor.appendArguments(Arrays.asList("-c", sourceFile.getName(), "-o", objectFile.getName()));
+			final int status = executor.execute(false);
+
+			final String diagnostics = ((BoundedStreamConsumer)executor.getStdErrConsumer()).getOutput();
+			log.debug("Compiled " + request.getFileName() + " with status " + status + ".");
+			if( status == 0 && objectFile.length() > WorkerProtocol.MAX_BLOB_LENGTH )
+				return CompileResult.rejected("The object of " + request.getFileName() + " is too large to be sent back.");
+
+			return new CompileResult(status, diagnostics, status == 0 ? readBytes(objectFile) : null);
+		}
+		catch (MojoFailureException e) {
+			return CompileResult.rejected(e.getMessage());
+		}
+		catch (MojoExecutionException e) {
+			return CompileResult.rejected(e.getMessage());
+		}
+		finally {
+			jobs.release();
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	/**
+	 * @return Why the request may not be run, or null if it may
+	 */
+	private String validate(final CompileRequest request) {
+		if( !compilers.contains(request.getExecutable()) )
+			return "Compiler " + request.getExecutable() + " isn't allowed on this worker. Allowed compilers are " + compilers + ".";
+
+		if( !PREPROCESSED_FILE_NAME.matcher(request.getFileName()).matches() )
+			return "Invalid file name " + request.getFileName() + ". Expected a preprocessed C or C++ file.";
+
+		for(String argument : request.getArguments())
+			if( !isAllowed(argument) )
+				return "Argument " + argument + " isn't allowed on this worker.";
+
+		return null;
+	}
+
+	/**
+	 * Options are allowed by name. Values may not contain a slash, so files
+	 * an option reads or writes stay within the temporary directory.
+	 */
+	private static boolean isAllowed(final String argument) {
+		final int separator = argument.indexOf('=');
+		final String option = separator < 0 ? argument : argument.substring(0, separator);
+		if( !ALLOWED_OPTION.matcher(option).matches() )
+			return false;
+
+		for(String loadingOption : LOADING_OPTIONS)
+			if( option.startsWith(loadingOption) )
+				return false;
+
+		return separator < 0 || ALLOWED_VALUE.matcher(argument.substring(separator + 1)).matches();
+	}
+
+	private static void writeBytes(final File file, final byte[] bytes) throws IOException {
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static byte[] readBytes(final File file) throws IOException {
+		final DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			final byte[] bytes = new byte[(int)file.length()];
+			in.readFully(bytes);
+			return bytes;
+		}
+		finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * The compile workers a build sends preprocessed files to, given as
+ * host:port/slots, where slots is the number of files the worker is sent at
+ * the same time, 1 if left out. A request waits for a free slot on any
+ * worker. A worker that can't be reached is left out for the rest of the
+ * build, and requests fail with an IOException once no worker is left, so
+ * that the caller can compile locally instead.
+ */
+public class CompileWorkerPool {
+	public static final int DEFAULT_PORT = 3633;
+
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final int READ_TIMEOUT = 30 * 60 * 1000;
+	private static final Map<String, CompileWorkerPool> shared = new HashMap<String, CompileWorkerPool>();
+
+	private final List<InetSocketAddress> workers = new ArrayList<InetSocketAddress>();
+	private final Map<InetSocketAddress, Integer> slotsPerWorker = new HashMap<InetSocketAddress, Integer>();
+	private final Set<InetSocketAddress> unreachableWorkers = new HashSet<InetSocketAddress>();
+	private final BlockingQueue<InetSocketAddress> freeSlots = new LinkedBlockingQueue<InetSocketAddress>();
+	private final AtomicInteger liveSlots = new AtomicInteger();
+
+	/**
+	 * @param workers	Comma or whitespace separated host:port/slots entries
+	 */
+	public CompileWorkerPool(final String workers) throws MojoExecutionException {
+		for(String entry : workers.trim().split("[,\\s]+")) {
+			if( entry.length() > 0 )
+				addWorker(entry);
+		}
+
+		int slot = 0;
+		boolean added = true;
+		while( added ) {
+			added = false;
+			for(InetSocketAddress worker : this.workers) {
+				if( slot < slotsPerWorker.get(worker) ) {
+					freeSlots.add(worker);
+					added = true;
+				}
+			}
+			slot++;
+		}
+		liveSlots.set(freeSlots.size());
+	}
+
+	/**
+	 * The pool of a list of workers is shared by all targets and modules built
+	 * in the JVM, so that they don't send more files to a worker than it has slots.
+	 */
+	public static synchronized CompileWorkerPool getShared(final String workers) throws MojoExecutionException {
+		if( !shared.containsKey(workers) )
+			shared.put(workers, new CompileWorkerPool(workers));
+
+		return shared.get(workers);
+	}
+
+	/**
+	 * @return The number of files that may be compiled remotely at the same time
+	 */
+	public int getSlots() {
+		return liveSlots.get();
+	}
+
+	/**
+	 * Sends a file to the next free worker, and waits for the result.
+	 *
+	 * @throws IOException	Thrown if the worker failed to answer, no worker is reachable, or the file is too large to be sent
+	 */
+	public CompileResult compile(final CompileRequest request) throws IOException, InterruptedException {
+		if( request.getSource().length > WorkerProtocol.MAX_BLOB_LENGTH )
+			throw new IOException(request.getFileName() + " is too large to be sent to a compile worker.");
+
+		final InetSocketAddress worker = takeSlot();
+		boolean reachable = false;
+		try {
+			final CompileResult result = send(worker, request);
+			reachable = true;
+			return result;
+		}
+		finally {
+			giveBack(worker, reachable);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return workers.toString();
+	}
+
+	private InetSocketAddress takeSlot() throws IOException, InterruptedException {
+		while( true ) {
+			if( liveSlots.get() <= 0 )
+				throw new IOException("None of the compile workers " + workers + " is reachable.");
+
+			final InetSocketAddress worker = freeSlots.poll(1, TimeUnit.SECONDS);
+			if( worker != null )
+				return worker;
+		}
+	}
+
+	private CompileResult send(final InetSocketAddress worker, final CompileRequest request) throws IOException {
+		final Socket socket = new Socket();
+		try {
+			socket.connect(worker, CONNECT_TIMEOUT);
+			socket.setSoTimeout(READ_TIMEOUT);
+			socket.setTcpNoDelay(true);
+
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+			request.writeTo(out);
+			out.flush();
+
+			return CompileResult.readFrom(new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024)));
+		}
+		catch (IOException e) {
+			throw new IOException("Compile worker " + worker + " failed: " + e.getMessage());
+		}
+		finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * The free slots of an unreachable worker are dropped at once, and the
+	 * ones still in use as they are given back.
+	 */
+	private synchronized void giveBack(final InetSocketAddress worker, final boolean reachable) {
+		if( !reachable && unreachableWorkers.add(worker) ) {
+			while( freeSlots.remove(worker) )
+				liveSlots.decrementAndGet();
+		}
+
+		if( unreachableWorkers.contains(worker) )
+			liveSlots.decrementAndGet();
+		else
+			freeSlots.add(worker);
+	}
+
+	private void addWorker(final String entry) throws MojoExecutionException {
+		final int slotsSeparator = entry.indexOf('/');
+		final String address = slotsSeparator < 0 ? entry : entry.substring(0, slotsSeparator);
+		final int portSeparator = address.lastIndexOf(':');
+
+		try {
+			final String host = portSeparator < 0 ? address : address.substring(0, portSeparator);
+			final int port = portSeparator < 0 ? DEFAULT_PORT : Integer.parseInt(address.substring(portSeparator + 1));
+			final int slots = slotsSeparator < 0 ? 1 : Integer.parseInt(entry.substring(slotsSeparator + 1));
+			if( host.length() == 0 || slots < 1 )
+				throw new MojoExecutionException("Invalid compile worker \"" + entry + "\". Expected host:port/slots.");
+
+			final InetSocketAddress worker = new InetSocketAddress(host, port);
+			workers.add(worker);
+			slotsPerWorker.put(worker, slots);
+		}
+		catch (IllegalArgumentException e) {
+			throw new MojoExecutionException("Invalid compile worker \"" + entry + "\". Expected host:port/slots.", e);
+		}
+	}
+}
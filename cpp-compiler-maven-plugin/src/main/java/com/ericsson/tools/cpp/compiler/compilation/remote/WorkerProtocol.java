@@ -0,0 +1,136 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The wire format shared by {@link CompileWorkerPool} and {@link CompileWorker}.
+ * A connection carries one request and its result. Each message starts with
+ * a magic number and the protocol version, strings are sent as UTF-8 with
+ * their length, and sources and objects are compressed with deflate, since
+ * preprocessed C++ shrinks to a fraction of its size.
+ */
+final class WorkerProtocol {
+	static final int MAGIC = 0x43505057;
+	static final int VERSION = 1;
+
+	/**
+	 * The status of a request the worker refused to run, in which case the
+	 * file may still be compiled locally.
+	 */
+	static final int STATUS_REJECTED = -1;
+
+	private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+	/**
+	 * Larger than any preprocessed source or object seen in practice, and small
+	 * enough for a worker to hold one for each of its connections.
+	 */
+	static final int MAX_BLOB_LENGTH = 64 * 1024 * 1024;
+
+	private WorkerProtocol() {
+	}
+
+	static void writeHeader(final DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	static void readHeader(final DataInputStream in) throws IOException {
+		final int magic = in.readInt();
+		if( magic != MAGIC )
+			throw new IOException("Not a compile worker message: 0x" + Integer.toHexString(magic) + ".");
+
+		final int version = in.readInt();
+		if( version != VERSION )
+			throw new IOException("Unsupported compile worker protocol version " + version + ". Expected " + VERSION + ".");
+	}
+
+	static void writeString(final DataOutputStream out, final String string) throws IOException {
+		final byte[] bytes = string.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(final DataInputStream in) throws IOException {
+		return new String(readBytes(in, MAX_STRING_LENGTH), "UTF-8");
+	}
+
+	static void writeBlob(final DataOutputStream out, final byte[] blob) throws IOException {
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(blob);
+			deflater.finish();
+
+			final ByteArrayOutputStream compressed = new ByteArrayOutputStream(blob.length / 4 + 64);
+			final byte[] buffer = new byte[64 * 1024];
+			while( !deflater.finished() )
+				compressed.write(buffer, 0, deflater.deflate(buffer));
+
+			out.writeInt(blob.length);
+			out.writeInt(compressed.size());
+			compressed.writeTo(out);
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	static byte[] readBlob(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if( length < 0 || length > MAX_BLOB_LENGTH )
+			throw new IOException("Invalid length " + length + " in compile worker message.");
+
+		final byte[] compressed = readBytes(in, length + length / 1000 + 64);
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			final byte[] blob = new byte[length];
+			int inflated = 0;
+			while( inflated < length ) {
+				final int count = inflater.inflate(blob, inflated, length - inflated);
+				if( count == 0 && (inflater.finished() || inflater.needsInput()) )
+					throw new IOException("Truncated data in compile worker message.");
+				inflated += count;
+			}
+
+			return blob;
+		}
+		catch (DataFormatException e) {
+			throw new IOException("Corrupt data in compile worker message: " + e.getMessage());
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
+	private static byte[] readBytes(final DataInputStream in, final int maxLength) throws IOException {
+		final int length = in.readInt();
+		if( length < 0 || length > maxLength )
+			throw new IOException("Invalid length " + length + " in compile worker message.");
+
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
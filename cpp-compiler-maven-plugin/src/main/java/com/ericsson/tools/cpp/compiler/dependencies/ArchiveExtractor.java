@@ -0,0 +1,113 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.dependencies;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * Extracts the parts of a dependency archive in a single pass over its entries.
+ * A part is selected by the prefix of its entry names, such as noarch or the
+ * canonical name of a target.
+ */
+class ArchiveExtractor {
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+	private final Set<File> createdDirectories = new HashSet<File>();
+
+	/**
+	 * @return The number of extracted entries
+	 */
+	public int extract(final File archive, final File destination, final Collection<String> parts) throws IOException {
+		int extractedEntries = 0;
+		final ZipFile zipFile = new ZipFile(archive);
+		try {
+			final Enumeration<? extends ZipEntry> entriesEnum = zipFile.entries();
+			while (entriesEnum.hasMoreElements()) {
+				final ZipEntry entry = entriesEnum.nextElement();
+				if( entryMatchesAnyPart(entry, parts) ) {
+					extractEntry(entry, zipFile, destination);
+					extractedEntries++;
+				}
+			}
+		}
+		finally {
+			zipFile.close();
+			createdDirectories.clear();
+		}
+
+		return extractedEntries;
+	}
+
+	private void extractEntry(final ZipEntry entry, final ZipFile zipFile, final File destination) throws IOException {
+		final File targetFile = new File(destination, entry.getName()); 
+
+		if( entry.isDirectory() ) {
+			if( createdDirectories.add(targetFile) )
+				targetFile.mkdirs();
+		}
+		else {
+			final File parent = targetFile.getParentFile();
+			if( createdDirectories.add(parent) )
+				parent.mkdirs();
+			writeFile(zipFile, entry, targetFile);
+		}
+	}
+
+	private boolean entryMatchesAnyPart(final ZipEntry entry, final Collection<String> parts) {
+		for(String part : parts)
+			if( entry.getName().startsWith(part) )
+				return true;
+
+		return false;
+	}
+
+	private void writeFile(final ZipFile zipFile, final ZipEntry entry, final File targetFile) throws IOException {
+		try {
+			final InputStream in = zipFile.getInputStream(entry);
+			try {
+				final OutputStream out = new FileOutputStream(targetFile);
+				try {
+					int bufferLength;
+					while ((bufferLength = in.read(buffer)) >= 0)
+						out.write(buffer, 0, bufferLength);
+				}
+				finally {
+					out.close();
+				}
+			}
+			finally {
+				in.close();
+			}
+			targetFile.setReadOnly();
+		} 
+		catch (IOException e) {
+			throw (IOException)new IOException("Failed to extract " + entry.getName() + " from " + zipFile.getName() + " to " + targetFile.getPath()).initCause(e);
+		}
+	}
+}
@@ -16,17 +16,18 @@
 
 package com.ericsson.tools.cpp.compiler.dependencies;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -45,18 +46,73 @@ public class DependencyExtractor {
 	private final Log log;
 	private final DependencyExtractionSettings settings;
 	private final ArtifactManager artifactManager;
-	private final List<DependencyIdentifier> securedDependencies = new ArrayList<DependencyIdentifier>();
+	private final ExtractedDependencyStore store;
+	private final Set<DependencyIdentifier> securedDependencies = new HashSet<DependencyIdentifier>();
 
 	public DependencyExtractor(final Log log, final DependencyExtractionSettings settings, final ArtifactManager artifactManager) {
 		this.log = log;
 		this.settings = settings;
 		this.artifactManager = artifactManager;
+		this.store = settings.getDependencyStoreDirectory() != null ? new ExtractedDependencyStore(log, settings.getDependencyStoreDirectory(), settings.getDependencyStoreMaxSize()) : null;
 	}
 
-	public void secureAvailabilityOfExtractedDependencies(final Environment targetEnvironment) throws MojoExecutionException {
+	/**
+	 * Starts securing the extracted dependencies of the given targets on a thread of
+	 * its own, so that sources can be scanned and judged in the meantime.
+	 *
+	 * @return	Awaited by everything that reads the extracted dependencies
+	 */
+	public ExtractionBarrier secureAvailabilityOfExtractedDependenciesInBackground(final Environment... targetEnvironments) {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return new ExtractionBarrier(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws MojoExecutionException {
+					secureAvailabilityOfExtractedDependencies(targetEnvironments);
+					return null;
+				}
+			}));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Extracts the noarch part and the parts of the given targets of all
+	 * dependencies, unless already extracted. Each archive is read once for
+	 * all of its missing parts, and the archives are extracted in parallel.
+	 * With a dependency store, the parts are linked from the store instead.
+	 * Synchronized, since targets built concurrently share the extraction of noarch dependencies.
+	 */
+	public synchronized void secureAvailabilityOfExtractedDependencies(final Environment... targetEnvironments) throws MojoExecutionException {
+		final List<Callable<Collection<DependencyIdentifier>>> extractions = new ArrayList<Callable<Collection<DependencyIdentifier>>>();
 		for(Artifact artifact : artifactManager.getDependencyArtifacts()) {
-			secureAvailabilityOfExtractedDependency(new DependencyIdentifier(artifact, EnvironmentManager.NOARCH_NAME, settings));
-			secureAvailabilityOfExtractedDependency(new DependencyIdentifier(artifact, targetEnvironment.getCanonicalName(), settings));
+			final Collection<DependencyIdentifier> deps = new ArrayList<DependencyIdentifier>();
+			addUnsecuredDependency(deps, new DependencyIdentifier(artifact, EnvironmentManager.NOARCH_NAME, settings));
+			for(Environment targetEnvironment : targetEnvironments)
+				addUnsecuredDependency(deps, new DependencyIdentifier(artifact, targetEnvironment.getCanonicalName(), settings));
+
+			if( !deps.isEmpty() )
+				extractions.add(createExtraction(artifact, deps));
+		}
+
+		if( extractions.isEmpty() )
+			return;
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(extractions.size(), settings.getJobs()));
+		try {
+			final List<Future<Collection<DependencyIdentifier>>> futures = new ArrayList<Future<Collection<DependencyIdentifier>>>();
+			for(Callable<Collection<DependencyIdentifier>> extraction : extractions)
+				futures.add(executor.submit(extraction));
+
+			for(Future<Collection<DependencyIdentifier>> future : futures)
+				securedDependencies.addAll(awaitExtraction(future));
+		}
+		finally {
+			executor.shutdownNow();
+			if( store != null )
+				store.close();
 		}
 	}
 
@@ -66,29 +122,82 @@ public class DependencyExtractor {
 		
 		return artifact.getFile().lastModified() > destination.lastModified();
 	}
-	
-	private void secureAvailabilityOfExtractedDependency(final DependencyIdentifier dep) throws MojoExecutionException {
-		if ( securedDependencies.contains(dep) )
-			return;
 
-		log.debug("Dependency is not yet secured: " + dep + ". It should go into destination: " + dep.getDestination());
+	private void addUnsecuredDependency(final Collection<DependencyIdentifier> deps, final DependencyIdentifier dep) {
+		if( !securedDependencies.contains(dep) && !deps.contains(dep) ) {
+			log.debug("Dependency is not yet secured: " + dep + ". It should go into destination: " + dep.getDestination());
+			deps.add(dep);
+		}
+	}
+
+	private Callable<Collection<DependencyIdentifier>> createExtraction(final Artifact artifact, final Collection<DependencyIdentifier> deps) {
+		return new Callable<Collection<DependencyIdentifier>>() {
+			@Override
+			public Collection<DependencyIdentifier> call() throws MojoExecutionException {
+				secureAvailabilityOfExtractedDependency(artifact, deps);
+				return deps;
+			}
+		};
+	}
+
+	private Collection<DependencyIdentifier> awaitExtraction(final Future<Collection<DependencyIdentifier>> future) throws MojoExecutionException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			if( e.getCause() instanceof MojoExecutionException )
+				throw (MojoExecutionException)e.getCause();
+
+			throw new MojoExecutionException("Unexpected exception caught while extracting dependencies.", e.getCause());
+		}
+		catch (InterruptedException e) {
+			throw new MojoExecutionException("Interrupted while waiting for dependencies to be extracted.", e);
+		}
+	}
+
+	/**
+	 * All parts of an artifact share its destination, which is validated once
+	 * before the missing parts are extracted in a single pass over the archive.
+	 */
+	private void secureAvailabilityOfExtractedDependency(final Artifact artifact, final Collection<DependencyIdentifier> deps) throws MojoExecutionException {
+		final File destination = deps.iterator().next().getDestination();
 
-		if( dep.getDestination().exists() ) {
-			log.debug("Destination " + dep.getDestination() + " already exists. It will be checked for validity.");
+		if( destination.exists() ) {
+			log.debug("Destination " + destination + " already exists. It will be checked for validity.");
 			
-			if(isDestinationInvalid(dep.getArtifact(), dep.getDestination()))
-				deleteInvalidatedDestination(dep.getDestination());
+			if(isDestinationInvalid(artifact, destination))
+				deleteInvalidatedDestination(destination);
 		}
 
-		if( !dep.getDestination().exists() ) {
-			log.debug("Destination " + dep.getDestination() + " does not exist. It will be created");
-			setupDestination(dep.getArtifact(), dep.getDestination());
+		if( !destination.exists() ) {
+			log.debug("Destination " + destination + " does not exist. It will be created");
+			setupDestination(artifact, destination);
 		}
 
-		if(!dependencyIsAlreadyExtracted(dep)) 
-			extractDependency(dep);
+		final Collection<DependencyIdentifier> depsToExtract = new ArrayList<DependencyIdentifier>();
+		for(DependencyIdentifier dep : deps)
+			if(!dependencyIsAlreadyExtracted(dep))
+				depsToExtract.add(dep);
 
-		securedDependencies.add(dep);
+		if( !depsToExtract.isEmpty() && !linkFromStore(artifact, destination, depsToExtract) ) {
+			for(DependencyIdentifier dep : depsToExtract)
+				removeLink(new File(destination, dep.getTarget()));
+			extractDependencies(artifact, destination, depsToExtract);
+		}
+	}
+
+	private boolean linkFromStore(final Artifact artifact, final File destination, final Collection<DependencyIdentifier> deps) {
+		if( store == null )
+			return false;
+
+		try {
+			store.link(artifact.getFile(), getTargets(deps), destination);
+			return true;
+		}
+		catch (IOException e) {
+			log.warn("Failed to link " + deps + " from dependency store. Extracting into " + destination + " instead: " + e);
+			return false;
+		}
 	}
 
 	private boolean dependencyIsAlreadyExtracted(final DependencyIdentifier dep) {
@@ -96,40 +205,25 @@ public class DependencyExtractor {
 		return targetSubDirectory.exists();
 	}
 
-	private void extractDependency(final DependencyIdentifier dep) throws MojoExecutionException {
-		int extractedFiles = 0;
+	private void extractDependencies(final Artifact artifact, final File destination, final Collection<DependencyIdentifier> deps) throws MojoExecutionException {
+		final int extractedFiles;
 		try {
-			final ZipFile zipFile = new ZipFile(dep.getArtifact().getFile());
-			final Enumeration<? extends ZipEntry> entriesEnum = zipFile.entries();
-			while (entriesEnum.hasMoreElements()) {
-				final ZipEntry entry = entriesEnum.nextElement();
-				if( entryMatchesDependency(entry, dep) ) {
-					extractEntry(entry, zipFile, dep.getDestination());
-					extractedFiles++;
-				}
-			}
-
-			zipFile.close();
+			extractedFiles = new ArchiveExtractor().extract(artifact.getFile(), destination, getTargets(deps));
 		}
 		catch(IOException e) {
-			throw new MojoExecutionException("Failed to extract " + dep.getArtifact() + ".", e);
+			throw new MojoExecutionException("Failed to extract " + artifact + ".", e);
 		} 
 
 		if(extractedFiles > 0)
-			log.debug("Extracted " + extractedFiles + " files from \"" + dep + "\" to " + dep.getDestination());
+			log.debug("Extracted " + extractedFiles + " files from \"" + deps + "\" to " + destination);
 	}
 
-	private void extractEntry(final ZipEntry entry, final ZipFile zipFile, final File destination) throws MojoExecutionException {
-		final File targetFile = new File(destination, entry.getName()); 
+	private Collection<String> getTargets(final Collection<DependencyIdentifier> deps) {
+		final Collection<String> targets = new ArrayList<String>();
+		for(DependencyIdentifier dep : deps)
+			targets.add(dep.getTarget());
 
-		if( entry.isDirectory() )
-			targetFile.mkdirs();
-		else
-			writeFile(zipFile, entry, targetFile);
-	}
-
-	private boolean entryMatchesDependency(final ZipEntry entry, final DependencyIdentifier dep) {
-		return entry.getName().startsWith(dep.getTarget());
+		return targets;
 	}
 
 	protected boolean isDestinationInvalid(final Artifact artifact, final File destination) throws MojoExecutionException {
@@ -170,33 +264,30 @@ public class DependencyExtractor {
 		}
 	}
 
-	private void writeFile(final ZipFile zipFile, final ZipEntry entry, final File targetFile) throws MojoExecutionException {
-		InputStream in;
-		try {
-			in = zipFile.getInputStream(entry);
-			final OutputStream out = new BufferedOutputStream(new FileOutputStream(targetFile));
-
-			byte[] buffer = new byte[1024];
-			int bufferLength;
-
-			while ((bufferLength = in.read(buffer)) >= 0)
-				out.write(buffer, 0, bufferLength);
+	protected void deleteInvalidatedDestination(final File destination) throws MojoExecutionException {
+		final File[] files = destination.listFiles();
+		for(File file : files == null ? new File[0] : files)
+			removeLink(file);
 
-			in.close();
-			out.close();
-			targetFile.setReadOnly();
-		} 
+		try {
+			FileUtils.deleteDirectory(destination);
+		}
 		catch (IOException e) {
-			throw new MojoExecutionException("Failed to extract " + entry.getName() + " from " + zipFile.getName() + " to " + targetFile.getPath(), e);
+			throw new MojoExecutionException("Deletion of invalidated directory \"" + destination + "\" failed.", e);
 		}
 	}
 
-	protected void deleteInvalidatedDestination(final File destination) throws MojoExecutionException {
+	/**
+	 * Links into the dependency store are removed before deleting or extracting into
+	 * a destination, so that the shared files behind them are never touched.
+	 */
+	private void removeLink(final File file) throws MojoExecutionException {
 		try {
-			FileUtils.deleteDirectory(destination);
+			if( ExtractedDependencyStore.isSymbolicLink(file) && !file.delete() )
+				throw new MojoExecutionException("Failed to remove link " + file + ".");
 		}
 		catch (IOException e) {
-			throw new MojoExecutionException("Deletion of invalidated directory \"" + destination + "\" failed.", e);
+			throw new MojoExecutionException("Inspection of " + file + " failed.", e);
 		}
 	}
 }
@@ -0,0 +1,386 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.dependencies;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.ericsson.tools.cpp.tools.CliExecutor;
+import com.ericsson.tools.cpp.tools.FileHashCache;
+
+
+/**
+ * A store of extracted dependencies shared by all builds on a machine.<br />
+ * <br />
+ * Each part of a dependency archive, noarch or a target, is extracted once into a directory
+ * keyed by the MD5 hash of the archive contents. Projects see the parts through symbolic
+ * links in their own extraction destinations instead of copies. The hash of an archive is
+ * remembered together with its path, modification time and size, so unchanged archives
+ * are not read again.<br />
+ * <br />
+ * The parts of an archive are extracted into a temporary directory and renamed into place
+ * while holding a lock file of the archive, so concurrent builds extract each part once and
+ * never see partially extracted parts. Linking and evicting parts take the same lock, so a
+ * part is never evicted between being found and being linked. Extracted directories are
+ * write protected, so that deleting a destination through its links cannot remove the
+ * shared files. When the store grows beyond its maximum size, the least recently linked
+ * parts are evicted, except for parts linked within the last hour, which running builds
+ * may still be reading.
+ */
+public class ExtractedDependencyStore {
+	private static final String UTF8 = "UTF-8";
+	private static final double EVICTION_TARGET = 0.9;
+	private static final long EVICTION_GRACE_PERIOD = 60 * 60 * 1000;
+	private static final ConcurrentMap<File, Object> JVM_LOCKS = new ConcurrentHashMap<File, Object>();
+
+	private final Log log;
+	private final File storeDirectory;
+	private final long maxSize;
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	public ExtractedDependencyStore(final Log log, final File storeDirectory, final long maxSize) {
+		this.log = log;
+		this.storeDirectory = storeDirectory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Links the given parts of an archive into a destination, extracting them into the
+	 * store first if needed. Existing links of the same names are replaced.
+	 */
+	public void link(final File archive, final Collection<String> parts, final File destination) throws IOException {
+		final File entryDirectory = getEntryDirectory(getArchiveHash(archive));
+		final File lockFile = new File(entryDirectory, "lock");
+		synchronized(getJvmLock(lockFile)) {
+			final FileLock lock = lock(lockFile);
+			try {
+				final List<String> missingParts = getMissingParts(entryDirectory, parts);
+				if( !missingParts.isEmpty() )
+					extract(archive, entryDirectory, missingParts);
+
+				linkParts(entryDirectory, parts, destination);
+			}
+			finally {
+				release(lock);
+			}
+		}
+
+		log.debug("Linked " + parts + " of " + archive + " from " + entryDirectory + " into " + destination);
+	}
+
+	private void linkParts(final File entryDirectory, final Collection<String> parts, final File destination) throws IOException {
+		final CliExecutor cli = new CliExecutor(log);
+		cli.initialize("ln");
+		cli.getCommandline().createArg().setValue("-sfn");
+		final long now = System.currentTimeMillis();
+		for(String part : parts) {
+			final File partDirectory = new File(entryDirectory, part);
+			partDirectory.setLastModified(now);
+			cli.getCommandline().createArg().setValue(partDirectory.getAbsolutePath());
+		}
+		cli.getCommandline().createArg().setValue(destination.getAbsolutePath());
+
+		try {
+			cli.execute();
+		}
+		catch (MojoExecutionException e) {
+			throw (IOException)new IOException("Failed to link " + parts + " of " + entryDirectory + " into " + destination + ".").initCause(e);
+		}
+		catch (MojoFailureException e) {
+			throw (IOException)new IOException("Failed to link " + parts + " of " + entryDirectory + " into " + destination + ".").initCause(e);
+		}
+	}
+
+	/**
+	 * Updates the recorded store size, and evicts the least recently linked parts
+	 * if the store has grown too big.
+	 */
+	public void close() {
+		if( bytesWritten.get() == 0 )
+			return;
+
+		try {
+			final File lockFile = new File(storeDirectory, "lock");
+			synchronized(getJvmLock(lockFile)) {
+				final FileLock lock = lock(lockFile);
+				try {
+					final File sizeFile = new File(storeDirectory, "size");
+					long size = readSize(sizeFile) + bytesWritten.getAndSet(0);
+					if( size > maxSize )
+						size = evict();
+
+					writeAtomically(sizeFile, Long.toString(size));
+				}
+				finally {
+					release(lock);
+				}
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to update size of dependency store " + storeDirectory + ": " + e);
+		}
+	}
+
+	/**
+	 * Java 6 has no notion of symbolic links, so a link is recognized by its canonical
+	 * path differing from the path of its parent directory joined with its name.
+	 */
+	public static boolean isSymbolicLink(final File file) throws IOException {
+		final File canonicalParent = file.getAbsoluteFile().getParentFile().getCanonicalFile();
+		return !new File(canonicalParent, file.getName()).getCanonicalFile().equals(new File(canonicalParent, file.getName()));
+	}
+
+	private List<String> getMissingParts(final File entryDirectory, final Collection<String> parts) {
+		final List<String> missingParts = new ArrayList<String>();
+		for(String part : parts)
+			if( !new File(entryDirectory, part).isDirectory() )
+				missingParts.add(part);
+
+		return missingParts;
+	}
+
+	/**
+	 * Must be called holding the lock of the entry.
+	 */
+	private void extract(final File archive, final File entryDirectory, final Collection<String> missingParts) throws IOException {
+		final File temporaryDirectory = new File(entryDirectory, ".extracting");
+		deleteDirectory(temporaryDirectory);
+		try {
+			final int extractedFiles = new ArchiveExtractor().extract(archive, temporaryDirectory, missingParts);
+			for(String part : missingParts) {
+				final File partDirectory = new File(entryDirectory, part);
+				final File extractedPart = new File(temporaryDirectory, part);
+				extractedPart.mkdirs();
+				bytesWritten.addAndGet(FileUtils.sizeOfDirectory(extractedPart));
+				rename(extractedPart, partDirectory);
+				setWritable(partDirectory, false);
+			}
+
+			log.info("Extracted " + extractedFiles + " files of " + missingParts + " from " + archive + " into dependency store " + entryDirectory + ".");
+		}
+		finally {
+			deleteDirectory(temporaryDirectory);
+		}
+	}
+
+	private long evict() throws IOException {
+		final List<File> parts = new ArrayList<File>();
+		long size = 0;
+
+		for(File bucket : listFiles(new File(storeDirectory, "parts"))) {
+			for(File entry : listFiles(bucket)) {
+				for(File part : listFiles(entry)) {
+					if( part.isDirectory() && !part.getName().startsWith(".") ) {
+						parts.add(part);
+						size += FileUtils.sizeOfDirectory(part);
+					}
+				}
+			}
+		}
+
+		Collections.sort(parts, new Comparator<File>() {
+			@Override
+			public int compare(final File f1, final File f2) {
+				final long m1 = f1.lastModified();
+				final long m2 = f2.lastModified();
+				return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+			}
+		});
+
+		final long targetSize = (long)(maxSize * EVICTION_TARGET);
+		final long gracePeriodStart = System.currentTimeMillis() - EVICTION_GRACE_PERIOD;
+		int evicted = 0;
+		for(File part : parts) {
+			if( size <= targetSize || part.lastModified() > gracePeriodStart )
+				break;
+
+			final long length = FileUtils.sizeOfDirectory(part);
+			if( evict(part, gracePeriodStart) ) {
+				size -= length;
+				evicted++;
+			}
+		}
+
+		log.info("Evicted " + evicted + " parts from dependency store " + storeDirectory + ".");
+		return size;
+	}
+
+	/**
+	 * Deletes a part while holding the lock of its entry, unless it has been
+	 * linked since the parts were listed.
+	 *
+	 * @return Whether the part was deleted
+	 */
+	private boolean evict(final File part, final long gracePeriodStart) throws IOException {
+		final File lockFile = new File(part.getParentFile(), "lock");
+		synchronized(getJvmLock(lockFile)) {
+			final FileLock lock = lock(lockFile);
+			try {
+				if( !part.isDirectory() || part.lastModified() > gracePeriodStart )
+					return false;
+
+				deleteDirectory(part);
+				return true;
+			}
+			finally {
+				release(lock);
+			}
+		}
+	}
+
+	private String getArchiveHash(final File archive) throws IOException {
+		final String stamp = archive.lastModified() + "," + archive.length() + ",";
+		final File hashFile = new File(storeDirectory, "archives/" + FileHashCache.toHex(FileHashCache.createDigest().digest(archive.getAbsolutePath().getBytes(UTF8))));
+		if( hashFile.exists() ) {
+			final String recorded = FileUtils.fileRead(hashFile, UTF8);
+			if( recorded.startsWith(stamp) )
+				return recorded.substring(stamp.length());
+		}
+
+		final String hash = hash(archive);
+		writeAtomically(hashFile, stamp + hash);
+		return hash;
+	}
+
+	private String hash(final File file) throws IOException {
+		final MessageDigest digest = FileHashCache.createDigest();
+		final byte[] buffer = new byte[64 * 1024];
+		final InputStream in = new FileInputStream(file);
+		try {
+			int length;
+			while( (length = in.read(buffer)) >= 0 )
+				digest.update(buffer, 0, length);
+		}
+		finally {
+			in.close();
+		}
+
+		return FileHashCache.toHex(digest.digest());
+	}
+
+	private File getEntryDirectory(final String hash) {
+		return new File(storeDirectory, "parts/" + hash.substring(0, 2) + "/" + hash.substring(2));
+	}
+
+	private static Object getJvmLock(final File lockFile) {
+		final Object lock = new Object();
+		final Object existingLock = JVM_LOCKS.putIfAbsent(lockFile.getAbsoluteFile(), lock);
+		return existingLock != null ? existingLock : lock;
+	}
+
+	private FileLock lock(final File lockFile) throws IOException {
+		lockFile.getParentFile().mkdirs();
+		final RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+		try {
+			return file.getChannel().lock();
+		}
+		catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	private void release(final FileLock lock) throws IOException {
+		try {
+			lock.release();
+		}
+		finally {
+			lock.channel().close();
+		}
+	}
+
+	private void setWritable(final File directory, final boolean writable) {
+		if( writable )
+			directory.setWritable(true);
+
+		for(File child : listFiles(directory))
+			if( child.isDirectory() )
+				setWritable(child, writable);
+
+		if( !writable )
+			directory.setWritable(false);
+	}
+
+	private void deleteDirectory(final File directory) throws IOException {
+		if( directory.exists() ) {
+			setWritable(directory, true);
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	private File[] listFiles(final File directory) {
+		final File[] files = directory.listFiles();
+		return files == null ? new File[0] : files;
+	}
+
+	private long readSize(final File sizeFile) {
+		try {
+			return sizeFile.exists() ? Long.parseLong(FileUtils.fileRead(sizeFile, UTF8).trim()) : 0;
+		}
+		catch (IOException e) {
+			return 0;
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private void writeAtomically(final File target, final String content) throws IOException {
+		target.getParentFile().mkdirs();
+		final File temporaryFile = new File(target.getParentFile(), "." + target.getName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), UTF8);
+			try {
+				writer.write(content);
+			}
+			finally {
+				writer.close();
+			}
+			rename(temporaryFile, target);
+		}
+		finally {
+			temporaryFile.delete();
+		}
+	}
+
+	private void rename(final File source, final File target) throws IOException {
+		if( !source.renameTo(target) )
+			throw new IOException("Failed to move " + source + " to " + target + ".");
+	}
+}
@@ -0,0 +1,56 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.dependencies;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+
+/**
+ * Lets the parts of a build that read extracted dependencies wait for their
+ * extraction, which runs in the background while sources are scanned and judged.
+ */
+public class ExtractionBarrier {
+	private final Future<?> extraction;
+
+	public ExtractionBarrier(final Future<?> extraction) {
+		this.extraction = extraction;
+	}
+
+	/**
+	 * Waits until the dependencies are extracted.
+	 *
+	 * @throws MojoExecutionException	Thrown if the extraction failed, or if interrupted while waiting
+	 */
+	public void await() throws MojoExecutionException {
+		try {
+			extraction.get();
+		}
+		catch (ExecutionException e) {
+			if( e.getCause() instanceof MojoExecutionException )
+				throw (MojoExecutionException)e.getCause();
+
+			throw new MojoExecutionException("Unexpected exception caught while extracting dependencies.", e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for dependencies to be extracted.", e);
+		}
+	}
+}
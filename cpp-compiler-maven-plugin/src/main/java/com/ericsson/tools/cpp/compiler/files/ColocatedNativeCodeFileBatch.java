@@ -19,47 +19,51 @@ package com.ericsson.tools.cpp.compiler.files;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.maven.plugin.logging.Log;
 
 public class ColocatedNativeCodeFileBatch {
-	private File directory = null;
+	private final File directory;
 	private final Collection<NativeCodeFile> codeFiles = new ArrayList<NativeCodeFile>();
-	private final Log log;
 	
-	public ColocatedNativeCodeFileBatch(final Log log) {
-		this.log = log;
+	public ColocatedNativeCodeFileBatch(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Groups code files by the directory of their source file. The groups are
+	 * found through a hash index on the directory, and are returned in the order
+	 * their directories first appear among the given files.
+	 */
+	public static Collection<ColocatedNativeCodeFileBatch> groupByDirectory(final Log log, final Collection<NativeCodeFile> dispersedFiles) {
+		final Map<File, ColocatedNativeCodeFileBatch> batches = new LinkedHashMap<File, ColocatedNativeCodeFileBatch>();
+
+		for(NativeCodeFile file : dispersedFiles) {
+			final File directory = file.getSourceFile().getParentFile();
+			ColocatedNativeCodeFileBatch batch = batches.get(directory);
+			if( batch == null ) {
+				batch = new ColocatedNativeCodeFileBatch(directory);
+				batches.put(directory, batch);
+			}
+
+			batch.add(file);
+			log.debug(file.getSourceFile() + " is in " + directory + ", adding to batch.");
+		}
+
+		return batches.values();
 	}
 
 	public Collection<NativeCodeFile> getCodeFiles() {
 		return codeFiles;
 	}
 	
-	public void clear() {
-		codeFiles.clear();
-		directory = null;
+	public void add(final NativeCodeFile file) {
+		codeFiles.add(file);
 	}
 
 	public File getDirectory() {
 		return directory;
 	}
-
-	public void drainDispersedCollection(final Collection<NativeCodeFile> dispersedFiles) {
-		for(NativeCodeFile file : dispersedFiles) {
-			if( directory == null )
-				directory = file.getSourceFile().getParentFile();
-			
-			if( file.getSourceFile().getParentFile().equals(directory) ) {
-				codeFiles.add(file);
-				log.debug(file + " is in " + directory + ", adding to batch.");
-			}
-			else {
-				log.debug(file + " is NOT in " + directory + ", saving for later.");
-			}
-
-			log.debug("Colocated collection contains " + codeFiles.size() + " code files in " + directory);
-		}
-		
-		dispersedFiles.removeAll(codeFiles);
-	}
 }
@@ -0,0 +1,179 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.ericsson.tools.cpp.tools.FileHashCache;
+
+
+/**
+ * Groups the source files of a source set into unity translation units.<br />
+ * Files are ordered by path, and a group ends after a file whose path hashes to
+ * a multiple of the group size. Adding or removing a file therefore only
+ * changes the group it belongs to, instead of shifting every following group.
+ * Groups are named after their first file, and unity files are only rewritten
+ * when their content changes, so that unaffected groups are not recompiled.
+ */
+public class UnityBuildPlanner {
+	public static final String DIRECTORY_NAME = "unity";
+	public static final String UNIT_PREFIX = "unity_";
+
+	private final Log log;
+	private final int groupSize;
+	private final Collection<File> excludedFiles;
+	private final File unityDirectory;
+	private final File objectDirectory;
+	private final Set<String> plannedUnits = new HashSet<String>();
+
+	/**
+	 * @param groupSize		The average number of files to include in each unit
+	 * @param excludedFiles	Source files to compile on their own
+	 */
+	public UnityBuildPlanner(final Log log, final int groupSize, final Collection<File> excludedFiles, final File objectDirectory) {
+		this.log = log;
+		this.groupSize = groupSize;
+		this.excludedFiles = excludedFiles;
+		this.objectDirectory = objectDirectory;
+		this.unityDirectory = new File(objectDirectory, DIRECTORY_NAME);
+	}
+
+	/**
+	 * @return The unity units replacing the grouped files, and the files that were not grouped
+	 */
+	public Collection<NativeCodeFile> plan(final File sourceDirectory, final Collection<NativeCodeFile> codeFiles) throws MojoExecutionException {
+		final List<NativeCodeFile> cFiles = new ArrayList<NativeCodeFile>();
+		final List<NativeCodeFile> cppFiles = new ArrayList<NativeCodeFile>();
+		final Collection<NativeCodeFile> plannedFiles = new ArrayList<NativeCodeFile>();
+
+		for(NativeCodeFile codeFile : codeFiles) {
+			if( excludedFiles.contains(codeFile.getSourceFile().getAbsoluteFile()) )
+				plannedFiles.add(codeFile);
+			else if( codeFile.getSourceFile().getName().endsWith(".c") )
+				cFiles.add(codeFile);
+			else
+				cppFiles.add(codeFile);
+		}
+
+		plannedFiles.addAll(group(sourceDirectory, cFiles, ".c"));
+		plannedFiles.addAll(group(sourceDirectory, cppFiles, ".cc"));
+
+		log.debug("Planned " + codeFiles.size() + " files in " + sourceDirectory + " as " + plannedFiles.size() + " translation units.");
+		return plannedFiles;
+	}
+
+	/**
+	 * Deletes units, and their objects, that are no longer part of the plan.
+	 *
+	 * @return Whether any unit was deleted
+	 */
+	public boolean removeObsoleteUnits() {
+		boolean removed = false;
+		final File[] files = unityDirectory.listFiles();
+		if( files == null )
+			return false;
+
+		for(File file : files) {
+			if( !file.getName().startsWith(UNIT_PREFIX) || plannedUnits.contains(file.getName()) )
+				continue;
+
+			final NativeCodeFile obsoleteUnit = new NativeCodeFile(file.getName(), unityDirectory, objectDirectory);
+			log.debug("Removing obsolete unity unit " + file.getName() + ".");
+			file.delete();
+			obsoleteUnit.getObjectFile().delete();
+			obsoleteUnit.getDependFile().delete();
+			removed = true;
+		}
+
+		return removed;
+	}
+
+	private Collection<NativeCodeFile> group(final File sourceDirectory, final List<NativeCodeFile> codeFiles, final String suffix) throws MojoExecutionException {
+		final String sourcePath = sourceDirectory.getAbsolutePath();
+		Collections.sort(codeFiles, new Comparator<NativeCodeFile>() {
+			@Override
+			public int compare(final NativeCodeFile f1, final NativeCodeFile f2) {
+				return f1.getSourceFile().getPath().compareTo(f2.getSourceFile().getPath());
+			}
+		});
+
+		final Collection<NativeCodeFile> units = new ArrayList<NativeCodeFile>();
+		List<NativeCodeFile> group = new ArrayList<NativeCodeFile>();
+		for(NativeCodeFile codeFile : codeFiles) {
+			group.add(codeFile);
+
+			final String relativePath = codeFile.getSourceFile().getAbsolutePath().substring(sourcePath.length());
+			if( group.size() >= 2 * groupSize || (relativePath.hashCode() & Integer.MAX_VALUE) % groupSize == 0 ) {
+				units.add(createUnit(sourcePath, group, suffix));
+				group = new ArrayList<NativeCodeFile>();
+			}
+		}
+
+		if( !group.isEmpty() )
+			units.add(createUnit(sourcePath, group, suffix));
+
+		return units;
+	}
+
+	private NativeCodeFile createUnit(final String sourcePath, final List<NativeCodeFile> group, final String suffix) throws MojoExecutionException {
+		if( group.size() == 1 )
+			return group.get(0);
+
+		final String name = UNIT_PREFIX + getGroupId(sourcePath, group.get(0)) + suffix;
+		final UnityNativeCodeFile unit = new UnityNativeCodeFile(name, unityDirectory, objectDirectory, group);
+		plannedUnits.add(name);
+
+		final StringBuilder content = new StringBuilder();
+		for(NativeCodeFile member : group)
+			content.append("#include \"").append(member.getSourceFile().getAbsolutePath().replace("\\", "\\\\")).append("\"\n");
+
+		try {
+			if( !unit.getSourceFile().exists() || !FileUtils.fileRead(unit.getSourceFile()).equals(content.toString()) ) {
+				unityDirectory.mkdirs();
+				FileUtils.fileWrite(unit.getSourceFile().getPath(), content.toString());
+			}
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to write unity unit " + unit.getSourceFile(), e);
+		}
+
+		return unit;
+	}
+
+	private String getGroupId(final String sourcePath, final NativeCodeFile firstMember) {
+		try {
+			final byte[] path = (sourcePath + "|" + firstMember.getSourceFile().getAbsolutePath()).getBytes("UTF-8");
+			return FileHashCache.toHex(FileHashCache.createDigest().digest(path)).substring(0, 16);
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 is not supported.", e);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.files;
+
+import java.io.File;
+import java.util.List;
+
+
+/**
+ * A generated translation unit including a group of source files, which is
+ * compiled in their place when building in unity mode.
+ */
+public class UnityNativeCodeFile extends NativeCodeFile {
+	private final List<NativeCodeFile> members;
+
+	public UnityNativeCodeFile(final String sourceFilename, final File unityDirectory, final File objectDirectory, final List<NativeCodeFile> members) {
+		super(sourceFilename, unityDirectory, objectDirectory);
+		this.members = members;
+	}
+
+	public List<NativeCodeFile> getMembers() {
+		return members;
+	}
+}
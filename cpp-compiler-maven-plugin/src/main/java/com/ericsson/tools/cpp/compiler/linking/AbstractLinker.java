@@ -25,6 +25,7 @@ import org.apache.maven.plugin.logging.Log;
 
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 
 
@@ -32,6 +33,7 @@ public abstract class AbstractLinker {
 	protected final CompilationSettings settings;
 	protected final Log log;
 	private final Environment targetEnvironment;
+	private String linker;
 
 	public AbstractLinker(final Log log, final CompilationSettings settings, final Environment targetEnvironment) {
 		this.log = log;
@@ -45,6 +47,87 @@ public abstract class AbstractLinker {
 		return targetEnvironment;
 	}
 
+	/**
+	 * @param linker	The linker to link with, such as mold, lld or gold, or null for the default linker of the compiler
+	 */
+	public void setLinker(final String linker) {
+		this.linker = linker;
+	}
+
+	protected String getLinker() {
+		return linker;
+	}
+
+	/**
+	 * @return The argument that makes the compiler driver use the selected linker, or an empty string
+	 */
+	protected String getLinkerSelectionArgument() {
+		if( linker == null )
+			return "";
+
+		return "-fuse-ld=" + linker;
+	}
+
+	/**
+	 * @return The argument linking the profiling runtime into instrumented binaries, or an empty string
+	 */
+	protected String getProfileArgument() {
+		if( CompilationSettings.PGO_GENERATE.equals(settings.getProfileGuidedOptimization()) )
+			return "-fprofile-generate";
+
+		return "";
+	}
+
+	/**
+	 * @param jobs	The number of LTO partitions to link in parallel, or 0 for an argument that doesn't depend on it
+	 * @return		The argument enabling link-time optimization, or an empty string
+	 */
+	protected String getLinkTimeOptimizationArgument(final int jobs) {
+		if( !settings.isLinkTimeOptimization() )
+			return "";
+
+		if( jobs == 0 )
+			return "-flto";
+
+		if( settings.getJobBudget().hasJobServer() )
+			return "-flto=jobserver";
+
+		return "-flto=" + jobs;
+	}
+
+	/**
+	 * Takes the free slots of the job budget for the LTO partitions of a
+	 * link, which already holds a slot of its own.
+	 *
+	 * @return The number of jobs the link may run, to be given back with {@link #releaseLinkTimeOptimizationJobs(int)}
+	 */
+	protected int acquireLinkTimeOptimizationJobs() {
+		if( !settings.isLinkTimeOptimization() )
+			return 1;
+
+		return 1 + settings.getJobBudget().tryAcquire(settings.getJobBudget().getJobs() - 1);
+	}
+
+	protected void releaseLinkTimeOptimizationJobs(final int jobs) {
+		settings.getJobBudget().release(jobs - 1);
+	}
+
+	/**
+	 * @return Whether any of the files has been modified more recently than the reference
+	 */
+	protected boolean containsUpdatedFile(final File reference, final Collection<File> files) {
+		final FileStatusCache fileStatusCache = settings.getFileStatusCache();
+		final long referenceLastModified = fileStatusCache.lastModified(reference);
+		for(File file : files) {
+			if( fileStatusCache.lastModified(file) > referenceLastModified ) {
+				log.debug(getTargetEnvironment() + ": " + file.getName() + " has been updated more recently than " + reference.getName());
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	protected String getMandatoryLinkerArguments() {
 		return "";
 	}
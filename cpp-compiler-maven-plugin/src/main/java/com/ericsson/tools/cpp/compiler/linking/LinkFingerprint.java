@@ -0,0 +1,89 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.FileUtils;
+
+import com.ericsson.tools.cpp.tools.FileHashCache;
+
+
+/**
+ * A hash of the command an output was linked with, kept in a file of its own
+ * among the objects. Links whose inputs are all older than the output are
+ * still redone when the command has changed since, for instance when linker
+ * arguments or the set of objects have changed.
+ */
+public class LinkFingerprint {
+	public static final String FINGERPRINT_SUFFIX = ".link";
+
+	private final File file;
+	private final String fingerprint;
+
+	/**
+	 * @param directory		Directory to keep the fingerprint in
+	 * @param outputName	Name of the linked output
+	 * @param command		The complete link command, including the working directory
+	 */
+	public LinkFingerprint(final File directory, final String outputName, final String command) throws MojoExecutionException {
+		this.file = new File(directory, outputName + FINGERPRINT_SUFFIX);
+		try {
+			this.fingerprint = FileHashCache.toHex(FileHashCache.createDigest().digest(command.getBytes("UTF-8")));
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new MojoExecutionException("Failed to calculate the fingerprint of " + outputName + ".", e);
+		}
+	}
+
+	/**
+	 * @return Whether the output was last linked with the same command
+	 */
+	public boolean matches() {
+		if( !file.isFile() )
+			return false;
+
+		try {
+			return fingerprint.equals(FileUtils.fileRead(file).trim());
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Records the command after a successful link.
+	 */
+	public void record() throws MojoExecutionException {
+		try {
+			FileUtils.fileWrite(file.getPath(), fingerprint);
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to write link fingerprint " + file + ".", e);
+		}
+	}
+
+	/**
+	 * Forgets the command before linking, so that a failed link is redone.
+	 */
+	public void invalidate() {
+		file.delete();
+	}
+}
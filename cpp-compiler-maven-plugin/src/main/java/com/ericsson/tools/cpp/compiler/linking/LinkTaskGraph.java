@@ -0,0 +1,207 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.tools.JobBudget;
+
+
+/**
+ * Runs link steps concurrently, each as soon as the steps it depends on are
+ * done. Every running step holds a slot of the job budget, and its estimated
+ * memory use is reserved from a memory budget, so that memory hungry links
+ * don't run more at once than the machine can hold. Graphs created with
+ * {@link #createShared(Log, JobBudget, int)} reserve from one memory budget
+ * shared by everything linking in the JVM.
+ */
+public class LinkTaskGraph {
+	public interface LinkTask {
+		public void link() throws MojoExecutionException, MojoFailureException;
+	}
+
+	private static Semaphore sharedMemory;
+	private static int sharedMemoryBudget;
+
+	private final Log log;
+	private final JobBudget jobBudget;
+	private final int memoryBudget;
+	private final Semaphore memory;
+	private final List<Node> nodes = new ArrayList<Node>();
+
+	/**
+	 * @param memoryBudget	Megabytes available to concurrently running link steps
+	 */
+	public LinkTaskGraph(final Log log, final JobBudget jobBudget, final int memoryBudget) {
+		this(log, jobBudget, memoryBudget, new Semaphore(memoryBudget, true));
+	}
+
+	private LinkTaskGraph(final Log log, final JobBudget jobBudget, final int memoryBudget, final Semaphore memory) {
+		this.log = log;
+		this.jobBudget = jobBudget;
+		this.memoryBudget = memoryBudget;
+		this.memory = memory;
+	}
+
+	/**
+	 * The JVM-wide memory budget is created by the first caller, so that
+	 * concurrent targets and modules built with mvn -T together stay within
+	 * it. Later callers share it regardless of the budget they ask for.
+	 *
+	 * @param memoryBudget	Megabytes available to concurrently running link steps
+	 */
+	public static synchronized LinkTaskGraph createShared(final Log log, final JobBudget jobBudget, final int memoryBudget) {
+		if( sharedMemory == null ) {
+			sharedMemory = new Semaphore(memoryBudget, true);
+			sharedMemoryBudget = memoryBudget;
+		}
+		else if( memoryBudget != sharedMemoryBudget ) {
+			log.warn("Link steps share the memory budget of " + sharedMemoryBudget + " MB that was set first in this JVM, rather than " + memoryBudget + " MB.");
+		}
+
+		return new LinkTaskGraph(log, jobBudget, sharedMemoryBudget, sharedMemory);
+	}
+
+	/**
+	 * @param memoryEstimate	Megabytes the step is expected to use
+	 * @param dependencies		Steps that must be done before this one starts
+	 */
+	public Node add(final String name, final int memoryEstimate, final LinkTask task, final Node... dependencies) {
+		final Node node = new Node(name, Math.min(memoryEstimate, memoryBudget), task, dependencies);
+		nodes.add(node);
+		return node;
+	}
+
+	/**
+	 * Runs all steps, and waits for them to finish. The first failing step
+	 * stops all steps that haven't finished.
+	 */
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if( nodes.isEmpty() )
+			return;
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(nodes.size(), jobBudget.getJobs()));
+		final CompletionService<Node> completionService = new ExecutorCompletionService<Node>(executor);
+		final List<Node> waiting = new ArrayList<Node>(nodes);
+		int running = 0;
+
+		try {
+			while( !waiting.isEmpty() || running > 0 ) {
+				for(Iterator<Node> iterator = waiting.iterator(); iterator.hasNext(); ) {
+					final Node node = iterator.next();
+					if( node.isReady() ) {
+						iterator.remove();
+						completionService.submit(node);
+						running++;
+					}
+				}
+
+				if( running == 0 )
+					throw new MojoExecutionException("Link steps " + waiting + " wait for steps that will never finish.");
+
+				getResult(completionService.take()).done = true;
+				running--;
+			}
+		}
+		catch (InterruptedException e) {
+			throw new MojoExecutionException("Interrupted while waiting for link steps.", e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Node getResult(final Future<Node> future) throws MojoExecutionException, MojoFailureException, InterruptedException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			if( e.getCause() instanceof MojoFailureException )
+				throw (MojoFailureException)e.getCause();
+			if( e.getCause() instanceof MojoExecutionException )
+				throw (MojoExecutionException)e.getCause();
+
+			throw new MojoExecutionException("Unexpected exception caught while linking.", e.getCause());
+		}
+	}
+
+	public class Node implements Callable<Node> {
+		private final String name;
+		private final int memoryEstimate;
+		private final LinkTask task;
+		private final Collection<Node> dependencies;
+		private boolean done = false;
+
+		private Node(final String name, final int memoryEstimate, final LinkTask task, final Node[] dependencies) {
+			this.name = name;
+			this.memoryEstimate = memoryEstimate;
+			this.task = task;
+			this.dependencies = new ArrayList<Node>();
+			for(Node dependency : dependencies)
+				if( dependency != null )
+					this.dependencies.add(dependency);
+		}
+
+		private boolean isReady() {
+			for(Node dependency : dependencies)
+				if( !dependency.done )
+					return false;
+
+			return true;
+		}
+
+		@Override
+		public Node call() throws MojoExecutionException, MojoFailureException, InterruptedException {
+			memory.acquire(memoryEstimate);
+			try {
+				jobBudget.acquire();
+				try {
+					log.debug("Running link step " + name + ".");
+					task.link();
+				}
+				finally {
+					jobBudget.release();
+				}
+			}
+			finally {
+				memory.release(memoryEstimate);
+			}
+
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
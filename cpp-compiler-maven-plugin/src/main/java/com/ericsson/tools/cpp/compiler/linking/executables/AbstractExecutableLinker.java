@@ -25,6 +25,7 @@ import org.apache.maven.plugin.logging.Log;
 
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.linking.AbstractLinker;
+import com.ericsson.tools.cpp.compiler.linking.LinkFingerprint;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 
@@ -46,51 +47,58 @@ public abstract class AbstractExecutableLinker extends AbstractLinker {
 			return;
 		}
 
-		if( isBinaryUpToDate(libsToLink) ) {
+		final LinkFingerprint fingerprint = new LinkFingerprint(settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation()), executable.getName(), getLinkCommand(libsToLink));
+		if( isBinaryUpToDate(libsToLink, fingerprint) ) {
 			log.debug(getTargetEnvironment() + ": Executable " + executable + " is up to date.");
 			return;
 		}
 
+		fingerprint.invalidate();
 		buildExecutable(libsToLink);
+		fingerprint.record();
 
 		postBuild();
 		log.info(getTargetEnvironment() + ": " + executable + " linked.");
 	}
 
-	private boolean isBinaryUpToDate(final Collection<File> libsToLink) throws MojoFailureException {
+	private boolean isBinaryUpToDate(final Collection<File> libsToLink, final LinkFingerprint fingerprint) throws MojoFailureException {
 		final File preExistingExecutableFile = new File(settings.getExecutablesOutputDirectory(getTargetEnvironment(), settings.isTestCompilation()), executable.getName());
 		if( !preExistingExecutableFile.exists() )
 			return false;
 
-		if( collectionContainsUpdatedFile(preExistingExecutableFile, executable.getAllFilesToLink()) )
+		if( !fingerprint.matches() ) {
+			log.debug(getTargetEnvironment() + ": The link command of " + executable + " has changed.");
+			return false;
+		}
+
+		if( containsUpdatedFile(preExistingExecutableFile, executable.getAllFilesToLink()) )
 			return false;
 		
-		if( collectionContainsUpdatedFile(preExistingExecutableFile, libsToLink) )
+		if( containsUpdatedFile(preExistingExecutableFile, libsToLink) )
 			return false;
 		
 		return true;
 	}
 
-	private boolean collectionContainsUpdatedFile(final File reference, final Collection<File> collection) {
-		for(File file : collection) {
-			if( file.lastModified() > reference.lastModified() ) {
-				log.debug(getTargetEnvironment() + ": " + file.getName() + " has been updated more recently than " + reference.getName());
-				return true;
-			}
-		}
-		
-		return false;
-	}
-
 	protected void preBuild() throws MojoExecutionException, MojoFailureException {
 	}
 	
 	protected void postBuild() throws MojoExecutionException, MojoFailureException {
 	}
 	
+	/**
+	 * @return The command that links the executable, used to notice when it changes
+	 */
+	protected abstract String getLinkCommand(final Collection<File> libsToLink) throws MojoExecutionException, MojoFailureException;
+
 	protected abstract void buildExecutable(final Collection<File> libsToLink) throws MojoExecutionException, MojoFailureException;
 
 	protected Executable getExecutable() {
 		return executable;
 	}
+
+	@Override
+	public String toString() {
+		return "executable " + executable;
+	}
 }
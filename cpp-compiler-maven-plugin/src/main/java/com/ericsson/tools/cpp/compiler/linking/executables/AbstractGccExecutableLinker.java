@@ -34,17 +34,39 @@ public abstract class AbstractGccExecutableLinker extends AbstractExecutableLink
 		super(log, settings, targetEnvironment, executable);
 	}
 
+	@Override
+	protected String getLinkCommand(final Collection<File> libsToLink) throws MojoExecutionException, MojoFailureException {
+		final CliExecutor executor = createExecutor(libsToLink, 0);
+		return executor.getCommandline().getWorkingDirectory() + ": " + executor.getCommandline();
+	}
+
 	@Override
 	public void buildExecutable(final Collection<File> libsToLink) throws MojoExecutionException, MojoFailureException {
 		final DirectoryHandler directoryHandler = new DirectoryHandler(log);
 		directoryHandler.create(settings.getExecutablesOutputDirectory(getTargetEnvironment(), settings.isTestCompilation()));
 
+		final int jobs = acquireLinkTimeOptimizationJobs();
+		try {
+			createExecutor(libsToLink, jobs).execute();
+		}
+		finally {
+			releaseLinkTimeOptimizationJobs(jobs);
+		}
+	}
+
+	/**
+	 * @param jobs	The number of LTO partitions to link in parallel, or 0 for the command fingerprint
+	 */
+	private CliExecutor createExecutor(final Collection<File> libsToLink, final int jobs) throws MojoExecutionException, MojoFailureException {
 		final CliExecutor executor = new CliExecutor(log);
 		executor.initialize(settings.getExecutablesOutputDirectory(getTargetEnvironment(), settings.isTestCompilation()), getLinkerExecutable());
 		executor.getCommandline().createArg().setLine(getRuntimePathArgument());
 		executor.getCommandline().createArg().setValue("-o");
 		executor.getCommandline().createArg().setValue(getExecutable().getName());
 		executor.getCommandline().createArg().setLine(getMandatoryLinkerArguments());
+		executor.getCommandline().createArg().setLine(getLinkerSelectionArgument());
+		executor.getCommandline().createArg().setLine(getLinkTimeOptimizationArgument(jobs));
+		executor.getCommandline().createArg().setLine(getProfileArgument());
 		
 		executor.getCommandline().createArg().setValue(getStartGroupArgument());
 		executor.appendFiles(getExecutable().getAllFilesToLink());
@@ -53,7 +75,7 @@ public abstract class AbstractGccExecutableLinker extends AbstractExecutableLink
 		executor.getCommandline().createArg().setValue(getEndGroupArgument());
 		
 		executor.getCommandline().createArg().setLine(settings.getLinkerArguments(getTargetEnvironment()));
-		executor.execute();
+		return executor;
 	}
 
 	private String getRuntimePathArgument() {
@@ -31,6 +31,7 @@ import com.ericsson.tools.cpp.tools.environment.Environment;
 
 public class Executable {
 	public final static String ENUMERATION_SYMBOL = "[]";
+	public final static String DEFAULT_ENTRY_POINT_PATTERN = "src/main/cpp/*.c*";
 	
 	private String name;
 	private String entryPointPattern;
@@ -55,7 +56,7 @@ public class Executable {
 			throw new MojoExecutionException("Mandatory executable parameter \"name\" has not been set.");
 
 		if( entryPointPattern == null )
-			entryPointPattern = "src/main/cpp/*.c*";
+			entryPointPattern = DEFAULT_ENTRY_POINT_PATTERN;
 
 		if( targets == null )
 			targets = "all";
@@ -67,6 +68,13 @@ public class Executable {
 			addNativeCodeFiles(findNativeCodeFiles(log, projectBasedir, compiledFiles));
 	}
 
+	/**
+	 * @return An uninitialized executable with the same definition as this one
+	 */
+	public Executable copyDefinition() {
+		return new Executable(name, entryPointPattern, targets, rpath);
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -136,7 +144,22 @@ public class Executable {
 		return allCppFiles;
 	}
 
+	/**
+	 * @return The absolute source files matching the entry point pattern, or the default pattern if none is set
+	 */
+	public Collection<File> findEntryPointFiles(final File projectBasedir) {
+		final Collection<File> entryPointFiles = new ArrayList<File>();
+		for(File file : findMatchingSourceFiles(projectBasedir, entryPointPattern != null ? entryPointPattern : DEFAULT_ENTRY_POINT_PATTERN))
+			entryPointFiles.add(file.getAbsoluteFile());
+
+		return entryPointFiles;
+	}
+
 	private Collection<File> findMatchingSourceFiles(final File projectBasedir) {
+		return findMatchingSourceFiles(projectBasedir, entryPointPattern);
+	}
+
+	private static Collection<File> findMatchingSourceFiles(final File projectBasedir, final String entryPointPattern) {
 		final Collection<File> l = new ArrayList<File>();
 		for(String patternElement : entryPointPattern.split(",")) {
 			File f = new File(patternElement);
@@ -38,9 +38,14 @@ public class ExecutableCollection {
 		this.log = log;
 	}
 
+	/**
+	 * Executables are initialized with the files of one target, so each
+	 * collection works on its own copies of the given definitions.
+	 */
 	public void addExecutables(final Executable[] executables) throws MojoExecutionException {
 		if(executables != null) {
-			for(Executable e: executables) {
+			for(Executable definition: executables) {
+				final Executable e = definition.copyDefinition();
 				e.initialize(log, projectBasedir, compiledFiles);
 			
 				if(e.getName().equals(Executable.ENUMERATION_SYMBOL))
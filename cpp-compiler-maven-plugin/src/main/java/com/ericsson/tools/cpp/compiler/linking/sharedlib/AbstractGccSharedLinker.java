@@ -17,6 +17,7 @@
 package com.ericsson.tools.cpp.compiler.linking.sharedlib;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 
 import org.apache.maven.plugin.MojoExecutionException;
@@ -34,21 +35,46 @@ public abstract class AbstractGccSharedLinker extends AbstractSharedLinker {
 		super(log, settings, targetEnvironment);
 	}
 
+	@Override
+	protected String getLinkCommand(final Collection<NativeCodeFile> allFiles, final File libFile, final String libName) throws MojoFailureException, MojoExecutionException {
+		final CliExecutor executor = createExecutor(allFiles, libFile, libName, 0);
+		return executor.getCommandline().getWorkingDirectory() + ": " + executor.getCommandline();
+	}
+
 	@Override
 	protected void createSharedLibrary(final Collection<NativeCodeFile> allFiles, final File libFile, final String libName) throws MojoFailureException, MojoExecutionException {
-		CliExecutor executor = new CliExecutor(log);
+		final int jobs = acquireLinkTimeOptimizationJobs();
+		try {
+			createExecutor(allFiles, libFile, libName, jobs).execute();
+		}
+		finally {
+			releaseLinkTimeOptimizationJobs(jobs);
+		}
+	}
+
+	/**
+	 * @param jobs	The number of LTO partitions to link in parallel, or 0 for the command fingerprint
+	 */
+	private CliExecutor createExecutor(final Collection<NativeCodeFile> allFiles, final File libFile, final String libName, final int jobs) throws MojoFailureException, MojoExecutionException {
+		final CliExecutor executor = new CliExecutor(log);
 		executor.initialize(libFile.getParentFile(), "gcc");
 		executor.getCommandline().createArg().setValue("-shared");
 		executor.getCommandline().createArg().setValue(getSoName(libName));
 		executor.getCommandline().createArg().setLine(getMandatoryLinkerArguments());
+		executor.getCommandline().createArg().setLine(getLinkerSelectionArgument());
+		executor.getCommandline().createArg().setLine(getLinkTimeOptimizationArgument(jobs));
+		executor.getCommandline().createArg().setLine(getProfileArgument());
 		executor.getCommandline().createArg().setValue("-o");
 		executor.getCommandline().createArg().setValue(libFile.getName());
 		executor.getCommandline().createArg().setLine(getDefaultLibraries());
 
+		final Collection<File> objectFiles = new ArrayList<File>();
 		for(NativeCodeFile file : allFiles)
-			executor.getCommandline().createArg().setValue(file.getObjectFile().getPath());
+			objectFiles.add(file.getObjectFile());
+
+		executor.appendFiles(objectFiles);
 
-		executor.execute();
+		return executor;
 	}
 
         protected String getSoName( final String libName ) {
@@ -17,6 +17,7 @@
 package com.ericsson.tools.cpp.compiler.linking.sharedlib;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 
 import org.apache.maven.plugin.MojoExecutionException;
@@ -25,6 +26,7 @@ import org.apache.maven.plugin.logging.Log;
 
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.linking.AbstractLinker;
+import com.ericsson.tools.cpp.compiler.linking.LinkFingerprint;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
 import com.ericsson.tools.cpp.tools.DirectoryHandler;
 import com.ericsson.tools.cpp.tools.environment.Environment;
@@ -41,19 +43,48 @@ public abstract class AbstractSharedLinker extends AbstractLinker {
 
 		final String libName = "lib" + settings.getProject().getArtifactId() + getTargetEnvironment().getSharedLibraryIdentifier(); 
 		final File libFile = getLibFile(libName);
+		final LinkFingerprint fingerprint = new LinkFingerprint(settings.getObjDirectory(getTargetEnvironment(), settings.isTestCompilation()), libFile.getName(), getLinkCommand(allFiles, libFile, libName));
+		if( isLibraryUpToDate(libFile, allFiles, libsToLink, fingerprint) ) {
+			log.debug(getTargetEnvironment() + ": " + libFile.getName() + " is up to date.");
+			return;
+		}
+
+		if(libFile.exists())
+			libFile.delete();
+		fingerprint.invalidate();
+
 		createSharedLibrary(allFiles, libFile, libName);
+		fingerprint.record();
+		settings.getFileStatusCache().invalidate(libFile);
 		log.info(getTargetEnvironment() + ": " + libFile.getName() + " linked.");
 	}
 
 	private File getLibFile(final String name) {
 		final File path = settings.getSharedOutputDirectory(getTargetEnvironment(), settings.isTestCompilation());
 		final String versionSuffix = "." + settings.getProject().getVersion();
-		final File libFile = new File(path, name + versionSuffix);
-		if(libFile.exists())
-			libFile.delete();
-		
-		return libFile;
+		return new File(path, name + versionSuffix);
 	}
-	
+
+	private boolean isLibraryUpToDate(final File libFile, final Collection<NativeCodeFile> allFiles, final Collection<File> libsToLink, final LinkFingerprint fingerprint) {
+		if( !libFile.exists() )
+			return false;
+
+		if( !fingerprint.matches() ) {
+			log.debug(getTargetEnvironment() + ": The link command of " + libFile.getName() + " has changed.");
+			return false;
+		}
+
+		final Collection<File> objectFiles = new ArrayList<File>();
+		for(NativeCodeFile file : allFiles)
+			objectFiles.add(file.getObjectFile());
+
+		return !containsUpdatedFile(libFile, objectFiles) && !containsUpdatedFile(libFile, libsToLink);
+	}
+
+	/**
+	 * @return The command that links the library, used to notice when it changes
+	 */
+	protected abstract String getLinkCommand(final Collection<NativeCodeFile> allFiles, final File libFile, final String libName) throws MojoExecutionException, MojoFailureException;
+
 	protected abstract void createSharedLibrary(final Collection<NativeCodeFile> allFiles, final File libFile, final String libName) throws MojoExecutionException, MojoFailureException;
 }
@@ -0,0 +1,152 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking.staticlib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Reads the names of the symbols an ELF object defines, which is what ar
+ * puts in the symbol index of an archive.
+ */
+class ElfSymbolReader {
+	private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+	private static final String LTO_SLIM_SYMBOL = "__gnu_lto_slim";
+	private static final int SHT_SYMTAB = 2;
+	private static final int SHN_UNDEF = 0;
+	private static final int STB_GLOBAL = 1;
+	private static final int STB_WEAK = 2;
+	private static final int STB_GNU_UNIQUE = 10;
+
+	private final byte[] bytes;
+	private final ByteBuffer buffer;
+	private final boolean is64Bit;
+
+	private ElfSymbolReader(final byte[] bytes) {
+		this.bytes = bytes;
+		this.buffer = ByteBuffer.wrap(bytes).order(bytes[5] == 2 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+		this.is64Bit = bytes[4] == 2;
+	}
+
+	public static boolean isElf(final File file) throws IOException {
+		final byte[] magic = new byte[4];
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			if( in.read(magic) < magic.length )
+				return false;
+		}
+		finally {
+			in.close();
+		}
+
+		return isElf(magic);
+	}
+
+	private static boolean isElf(final byte[] bytes) {
+		return bytes[0] == 0x7f && bytes[1] == 'E' && bytes[2] == 'L' && bytes[3] == 'F';
+	}
+
+	/**
+	 * @param offset	Position of the object within the file
+	 * @param size		Size of the object
+	 * @return			The global symbols defined by the object, or null if it isn't an ELF object, or if it
+	 * 					only has intermediate code for link-time optimization, whose symbols only the LTO plugin knows
+	 */
+	public static List<String> readDefinedSymbols(final File file, final long offset, final long size) throws IOException {
+		if( size < 64 || size > Integer.MAX_VALUE )
+			return null;
+
+		final byte[] bytes = new byte[(int)size];
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			in.seek(offset);
+			in.readFully(bytes);
+		}
+		finally {
+			in.close();
+		}
+
+		if( !isElf(bytes) )
+			return null;
+
+		try {
+			return new ElfSymbolReader(bytes).readDefinedSymbols();
+		}
+		catch (IndexOutOfBoundsException e) {
+			throw new IOException(file + " is a truncated or malformed ELF object.", e);
+		}
+	}
+
+	private List<String> readDefinedSymbols() {
+		final long sectionHeaders = is64Bit ? buffer.getLong(0x28) : getUnsignedInt(0x20);
+		final int sectionHeaderSize = getUnsignedShort(is64Bit ? 0x3a : 0x2e);
+		long sections = getUnsignedShort(is64Bit ? 0x3c : 0x30);
+		if( sections == 0 && sectionHeaders != 0 )
+			sections = getSectionField(sectionHeaders, 20, 32);
+
+		final List<String> symbols = new ArrayList<String>();
+		for(long section = 0; section < sections; section++) {
+			final long header = sectionHeaders + section * sectionHeaderSize;
+			if( buffer.getInt((int)header + 4) != SHT_SYMTAB )
+				continue;
+
+			final long symbolTable = getSectionField(header, 16, 24);
+			final long symbolTableSize = getSectionField(header, 20, 32);
+			final long symbolSize = getSectionField(header, 36, 56);
+			final long stringTable = getSectionField(sectionHeaders + getUnsignedInt((int)header + (is64Bit ? 40 : 24)) * sectionHeaderSize, 16, 24);
+
+			for(long symbol = symbolTable + symbolSize; symbol < symbolTable + symbolTableSize; symbol += symbolSize) {
+				final int binding = (bytes[(int)symbol + (is64Bit ? 4 : 12)] & 0xff) >> 4;
+				final int sectionIndex = getUnsignedShort((int)symbol + (is64Bit ? 6 : 14));
+				if( sectionIndex != SHN_UNDEF && (binding == STB_GLOBAL || binding == STB_WEAK || binding == STB_GNU_UNIQUE) )
+					symbols.add(getString(stringTable + getUnsignedInt((int)symbol)));
+			}
+		}
+
+		if( symbols.contains(LTO_SLIM_SYMBOL) )
+			return null;
+
+		return symbols;
+	}
+
+	private long getSectionField(final long header, final int offset32, final int offset64) {
+		return is64Bit ? buffer.getLong((int)header + offset64) : getUnsignedInt((int)header + offset32);
+	}
+
+	private long getUnsignedInt(final int position) {
+		return buffer.getInt(position) & 0xffffffffL;
+	}
+
+	private int getUnsignedShort(final int position) {
+		return buffer.getShort(position) & 0xffff;
+	}
+
+	private String getString(final long position) {
+		int end = (int)position;
+		while( bytes[end] != 0 )
+			end++;
+
+		return new String(bytes, (int)position, end - (int)position, CHARSET);
+	}
+}
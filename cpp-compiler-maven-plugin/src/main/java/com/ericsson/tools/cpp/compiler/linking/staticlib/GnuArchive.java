@@ -0,0 +1,421 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking.staticlib;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * A GNU ar archive. An existing archive is read by its headers only, members
+ * are replaced or removed in memory, and the result is written in a single
+ * pass, symbol index included. Symbols of members that are carried over are
+ * taken from the index of the existing archive, so only new objects are read.
+ * <br />
+ * Members are written sorted by name with zeroed timestamps and owners, so the
+ * same objects always give the same archive. A thin archive only refers to the
+ * objects by path, relative to the archive, instead of containing them.
+ */
+public class GnuArchive {
+	private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+	private static final String MAGIC = "!<arch>\n";
+	private static final String THIN_MAGIC = "!<thin>\n";
+	private static final int HEADER_SIZE = 60;
+	private static final int MAX_SHORT_NAME_LENGTH = 15;
+	private static final String SYMBOL_INDEX_NAME = "/";
+	private static final String SYMBOL_INDEX_64_NAME = "/SYM64/";
+	private static final String LONG_NAMES_NAME = "//";
+
+	private final boolean thin;
+	private final SortedMap<String, Member> members = new TreeMap<String, Member>();
+	private boolean modified = false;
+	private boolean rebuilt = false;
+
+	public GnuArchive(final boolean thin) {
+		this.thin = thin;
+	}
+
+	/**
+	 * Reads the members of an existing archive. An archive of the other
+	 * kind, thin or not, or one that can't be understood, is ignored, and
+	 * will be rebuilt from scratch.
+	 */
+	public static GnuArchive read(final File file, final boolean thin) throws IOException {
+		final GnuArchive archive = new GnuArchive(thin);
+		if( !file.isFile() )
+			return archive;
+
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			archive.readMembers(file, in);
+		}
+		catch (IllegalArgumentException e) {
+			archive.discardMembers();
+		}
+		catch (IndexOutOfBoundsException e) {
+			archive.discardMembers();
+		}
+		finally {
+			in.close();
+		}
+
+		return archive;
+	}
+
+	/**
+	 * Adds an object, replacing any member of the same name.
+	 */
+	public void put(final String name, final File objectFile) throws IOException {
+		final Member member = new Member(name, objectFile, 0, objectFile.length());
+		member.symbols = ElfSymbolReader.readDefinedSymbols(objectFile, 0, member.size);
+		members.put(name, member);
+		modified = true;
+	}
+
+	/**
+	 * Removes every member not listed.
+	 *
+	 * @return The number of members removed
+	 */
+	public int retainAll(final Collection<String> names) {
+		int removed = 0;
+		for(Iterator<String> iterator = members.keySet().iterator(); iterator.hasNext(); ) {
+			if( !names.contains(iterator.next()) ) {
+				iterator.remove();
+				removed++;
+			}
+		}
+
+		if( removed > 0 )
+			modified = true;
+
+		return removed;
+	}
+
+	public boolean contains(final String name) {
+		return members.containsKey(name);
+	}
+
+	/**
+	 * @return Whether members have been added or removed since the archive was read
+	 */
+	public boolean isModified() {
+		return modified || rebuilt;
+	}
+
+	/**
+	 * @return Whether an existing archive was discarded when read
+	 */
+	public boolean isRebuilt() {
+		return rebuilt;
+	}
+
+	/**
+	 * Writes the archive next to the given file, and moves it into place.
+	 *
+	 * @return Whether the symbol index is complete. It isn't if any member is not an ELF object.
+	 */
+	public boolean write(final File file) throws IOException {
+		boolean indexComplete = true;
+		for(Member member : members.values()) {
+			if( member.symbols == null )
+				member.symbols = ElfSymbolReader.readDefinedSymbols(member.source, member.offset, member.size);
+			if( member.symbols == null )
+				indexComplete = false;
+		}
+
+		final byte[] longNames = createLongNames();
+		final boolean is64Bit = getMemberPositions(4, longNames) > 0xffffffffL;
+		if( is64Bit )
+			getMemberPositions(8, longNames);
+		final byte[] symbolIndex = createSymbolIndex(is64Bit ? 8 : 4);
+
+		final File temporaryFile = new File(file.getPath() + ".tmp");
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+		try {
+			out.write((thin ? THIN_MAGIC : MAGIC).getBytes(CHARSET));
+			writeHeader(out, is64Bit ? SYMBOL_INDEX_64_NAME : SYMBOL_INDEX_NAME, symbolIndex.length);
+			writePadded(out, symbolIndex);
+			if( longNames.length > 0 ) {
+				writeHeader(out, LONG_NAMES_NAME, longNames.length);
+				writePadded(out, longNames);
+			}
+
+			for(Member member : members.values()) {
+				writeHeader(out, member.headerName, member.size);
+				if( !thin )
+					copy(member, out);
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		if( file.exists() && !file.delete() )
+			throw new IOException("Failed to replace " + file + ".");
+		if( !temporaryFile.renameTo(file) )
+			throw new IOException("Failed to rename " + temporaryFile + " to " + file + ".");
+
+		modified = false;
+		rebuilt = false;
+		return indexComplete;
+	}
+
+	private void discardMembers() {
+		members.clear();
+		rebuilt = true;
+	}
+
+	private void readMembers(final File file, final RandomAccessFile in) throws IOException {
+		final byte[] magic = new byte[MAGIC.length()];
+		if( in.length() < magic.length )
+			throw new IllegalArgumentException("Not an archive.");
+		in.readFully(magic);
+		if( !new String(magic, CHARSET).equals(thin ? THIN_MAGIC : MAGIC) )
+			throw new IllegalArgumentException("Not an archive of the expected kind.");
+
+		Map<Long, List<String>> symbolIndex = null;
+		byte[] longNames = new byte[0];
+		long position = magic.length;
+		final byte[] header = new byte[HEADER_SIZE];
+		while( position + HEADER_SIZE <= in.length() ) {
+			in.seek(position);
+			in.readFully(header);
+			final String name = new String(header, 0, 16, CHARSET).trim();
+			final long size = Long.parseLong(new String(header, 48, 10, CHARSET).trim());
+			final long data = position + HEADER_SIZE;
+			boolean hasData = true;
+
+			if( name.equals(SYMBOL_INDEX_NAME) )
+				symbolIndex = readSymbolIndex(in, size, 4);
+			else if( name.equals(SYMBOL_INDEX_64_NAME) )
+				symbolIndex = readSymbolIndex(in, size, 8);
+			else if( name.equals(LONG_NAMES_NAME) ) {
+				longNames = new byte[(int)size];
+				in.readFully(longNames);
+			}
+			else {
+				final String memberName = getMemberName(name, longNames);
+				final Member member = thin ? new Member(memberName, new File(file.getParentFile(), memberName), 0, size) : new Member(memberName, file, data, size);
+				if( symbolIndex != null ) {
+					member.symbols = symbolIndex.get(position);
+					if( member.symbols == null )
+						member.symbols = new ArrayList<String>();
+				}
+				members.put(memberName, member);
+				hasData = !thin;
+			}
+
+			position = hasData ? data + padded(size) : data;
+		}
+	}
+
+	private Map<Long, List<String>> readSymbolIndex(final RandomAccessFile in, final long size, final int wordSize) throws IOException {
+		final byte[] index = new byte[(int)size];
+		in.readFully(index);
+
+		final long count = readWord(index, 0, wordSize);
+		final Map<Long, List<String>> symbols = new HashMap<Long, List<String>>();
+		int name = (int)(wordSize * (count + 1));
+		for(int i = 0; i < count; i++) {
+			final long position = readWord(index, wordSize * (i + 1), wordSize);
+			int end = name;
+			while( index[end] != 0 )
+				end++;
+
+			if( !symbols.containsKey(position) )
+				symbols.put(position, new ArrayList<String>());
+			symbols.get(position).add(new String(index, name, end - name, CHARSET));
+			name = end + 1;
+		}
+
+		return symbols;
+	}
+
+	private static String getMemberName(final String name, final byte[] longNames) {
+		if( name.startsWith("/") ) {
+			final int start = Integer.parseInt(name.substring(1));
+			int end = start;
+			while( end < longNames.length && longNames[end] != '\n' )
+				end++;
+
+			return new String(longNames, start, end - start - 1, CHARSET);
+		}
+
+		if( !name.endsWith("/") )
+			throw new IllegalArgumentException("Not a GNU archive member name: " + name);
+
+		return name.substring(0, name.length() - 1);
+	}
+
+	private byte[] createLongNames() {
+		final ByteArrayOutputStream longNames = new ByteArrayOutputStream();
+		for(Member member : members.values()) {
+			if( thin || member.name.length() > MAX_SHORT_NAME_LENGTH || member.name.contains("/") ) {
+				member.headerName = "/" + longNames.size();
+				final byte[] name = (member.name + "/\n").getBytes(CHARSET);
+				longNames.write(name, 0, name.length);
+			}
+			else {
+				member.headerName = member.name + "/";
+			}
+		}
+
+		return longNames.toByteArray();
+	}
+
+	private static long getLongNamesSize(final byte[] longNames) {
+		return longNames.length == 0 ? 0 : HEADER_SIZE + padded(longNames.length);
+	}
+
+	/**
+	 * Members follow the magic, the symbol index and the long names.
+	 *
+	 * @return The end of the archive
+	 */
+	private long getMemberPositions(final int wordSize, final byte[] longNames) {
+		long position = MAGIC.length() + HEADER_SIZE + padded(getSymbolIndexSize(wordSize)) + getLongNamesSize(longNames);
+		for(Member member : members.values()) {
+			member.position = position;
+			position += HEADER_SIZE + (thin ? 0 : padded(member.size));
+		}
+
+		return position;
+	}
+
+	private long getSymbolIndexSize(final int wordSize) {
+		long size = wordSize;
+		for(Member member : members.values()) {
+			if( member.symbols == null )
+				continue;
+
+			for(String symbol : member.symbols)
+				size += wordSize + symbol.getBytes(CHARSET).length + 1;
+		}
+
+		return size;
+	}
+
+	/**
+	 * The index has the number of symbols, the position of the member
+	 * defining each symbol, and then the names of all symbols.
+	 */
+	private byte[] createSymbolIndex(final int wordSize) {
+		final ByteArrayOutputStream names = new ByteArrayOutputStream();
+		final List<Long> positions = new ArrayList<Long>();
+		for(Member member : members.values()) {
+			if( member.symbols == null )
+				continue;
+
+			for(String symbol : member.symbols) {
+				final byte[] name = symbol.getBytes(CHARSET);
+				names.write(name, 0, name.length);
+				names.write(0);
+				positions.add(member.position);
+			}
+		}
+
+		final ByteArrayOutputStream index = new ByteArrayOutputStream();
+		writeWord(index, positions.size(), wordSize);
+		for(Long position : positions)
+			writeWord(index, position, wordSize);
+		final byte[] nameBytes = names.toByteArray();
+		index.write(nameBytes, 0, nameBytes.length);
+
+		return index.toByteArray();
+	}
+
+	private void copy(final Member member, final OutputStream out) throws IOException {
+		final RandomAccessFile in = new RandomAccessFile(member.source, "r");
+		try {
+			in.seek(member.offset);
+			final byte[] buffer = new byte[64 * 1024];
+			long remaining = member.size;
+			while( remaining > 0 ) {
+				final int read = in.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+				if( read < 0 )
+					throw new IOException(member.source + " was truncated while archiving it.");
+				out.write(buffer, 0, read);
+				remaining -= read;
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		if( member.size % 2 != 0 )
+			out.write('\n');
+	}
+
+	private static void writeHeader(final OutputStream out, final String name, final long size) throws IOException {
+		out.write(String.format("%-16s%-12s%-6s%-6s%-8s%-10d`\n", name, "0", "0", "0", "644", size).getBytes(CHARSET));
+	}
+
+	private static void writePadded(final OutputStream out, final byte[] data) throws IOException {
+		out.write(data);
+		if( data.length % 2 != 0 )
+			out.write('\n');
+	}
+
+	private static void writeWord(final ByteArrayOutputStream out, final long value, final int wordSize) {
+		for(int shift = 8 * (wordSize - 1); shift >= 0; shift -= 8)
+			out.write((int)(value >>> shift) & 0xff);
+	}
+
+	private static long readWord(final byte[] data, final int position, final int wordSize) {
+		long value = 0;
+		for(int i = 0; i < wordSize; i++)
+			value = (value << 8) | (data[position + i] & 0xff);
+
+		return value;
+	}
+
+	private static long padded(final long size) {
+		return size + size % 2;
+	}
+
+	private static class Member {
+		private final String name;
+		private final File source;
+		private final long offset;
+		private final long size;
+		private List<String> symbols;
+		private String headerName;
+		private long position;
+
+		public Member(final String name, final File source, final long offset, final long size) {
+			this.name = name;
+			this.source = source;
+			this.offset = offset;
+			this.size = size;
+		}
+	}
+}
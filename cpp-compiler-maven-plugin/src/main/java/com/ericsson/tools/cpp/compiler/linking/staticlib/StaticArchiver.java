@@ -0,0 +1,330 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking.staticlib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.maven.plugin.AbstractMojoExecutionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.ericsson.tools.cpp.compiler.compilation.CompilationListener;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
+import com.ericsson.tools.cpp.tools.CliExecutor;
+import com.ericsson.tools.cpp.tools.DirectoryHandler;
+import com.ericsson.tools.cpp.tools.environment.Environment;
+
+
+/**
+ * Maintains the static library while compilation is still running. Every
+ * time a compilation task finishes, its objects are queued, and a thread of
+ * its own reads their symbols and replaces their members in the archive.
+ * Once compilation is done, members of objects that no longer exist are
+ * dropped, and the archive is written in a single pass.
+ * <br />
+ * Nothing is written when compilation fails, so objects that are newer than
+ * an existing library are archived as well, even if they weren't compiled in
+ * this build. Otherwise objects compiled before a failure would be up to date
+ * in the next build and never reach the library.
+ * <br />
+ * Archives of objects that aren't ELF, such as Mach-O, are left to the ar of
+ * the system, which is run on the objects in batches once compilation is done.
+ * With link-time optimization, the gcc wrappers of ar and ranlib are used, so
+ * that the symbols of LTO objects are indexed through the LTO plugin. gcc-ar
+ * reads response files, and archives all objects in a single run.
+ */
+public class StaticArchiver implements CompilationListener {
+	/**
+	 * The number of objects per run of an ar that can't read response files.
+	 */
+	public static final int ARCHIVING_BATCH_SIZE = 250;
+
+	private static final NativeCodeFile END_OF_QUEUE = new NativeCodeFile("", null, null);
+
+	private final Log log;
+	private final CompilationSettings settings;
+	private final Environment targetEnvironment;
+	private final File libFile;
+	private final boolean jobHeld;
+	private final BlockingQueue<NativeCodeFile> queue = new LinkedBlockingQueue<NativeCodeFile>();
+	private final Set<File> archivedObjects = new HashSet<File>();
+	private GnuArchive archive;
+	private Thread thread;
+	private boolean libraryExisted;
+	private long libraryModified;
+	private boolean finished = false;
+	private volatile AbstractMojoExecutionException failure;
+
+	public StaticArchiver(final Log log, final CompilationSettings settings, final Environment targetEnvironment) {
+		this(log, settings, targetEnvironment, false);
+	}
+
+	/**
+	 * @param jobHeld	Whether the caller holds a slot of the job budget while archiving, so the archiver must not take another
+	 */
+	public StaticArchiver(final Log log, final CompilationSettings settings, final Environment targetEnvironment, final boolean jobHeld) {
+		this.log = log;
+		this.settings = settings;
+		this.targetEnvironment = targetEnvironment;
+		this.libFile = StaticLinker.getLibraryFile(settings, targetEnvironment);
+		this.jobHeld = jobHeld;
+	}
+
+	public void start() throws MojoExecutionException {
+		new DirectoryHandler(log).create(libFile.getParentFile());
+		libraryExisted = libFile.exists();
+		libraryModified = libFile.lastModified();
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				archiveQueuedObjects();
+			}
+		}, targetEnvironment + " Static Archiver");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void filesCompiled(final Collection<NativeCodeFile> codeFiles) {
+		queue.addAll(codeFiles);
+	}
+
+	/**
+	 * Waits for all queued objects to be archived, and writes the library.
+	 * A library that didn't exist before compilation also gets the objects
+	 * that were already up to date, and an existing library the objects that
+	 * are newer than it.
+	 */
+	public void finish(final Collection<NativeCodeFile> allClasses) throws MojoExecutionException, MojoFailureException {
+		stop();
+		if( failure instanceof MojoFailureException )
+			throw (MojoFailureException)failure;
+		if( failure != null )
+			throw (MojoExecutionException)failure;
+
+		try {
+			if( isElf(allClasses) )
+				archive(allClasses);
+			else
+				archiveWithAr(getObjectsToArchive(allClasses));
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to archive objects to " + libFile + ".", e);
+		}
+		finally {
+			settings.getFileStatusCache().invalidate(libFile);
+		}
+
+		finished = true;
+	}
+
+	private void archive(final Collection<NativeCodeFile> allClasses) throws IOException, MojoExecutionException, MojoFailureException {
+		final Collection<String> memberNames = new HashSet<String>();
+		for(NativeCodeFile codeFile : allClasses)
+			memberNames.add(getMemberName(codeFile));
+
+		final boolean newLibrary = !libraryExisted || archive.isRebuilt();
+		for(NativeCodeFile codeFile : allClasses)
+			if( newLibrary ? !archive.contains(getMemberName(codeFile)) : isNewerThanLibrary(codeFile) )
+				put(codeFile);
+
+		final int removed = archive.retainAll(memberNames);
+		if( removed > 0 )
+			log.debug("Removed " + removed + " obsolete members from " + libFile.getName() + ".");
+
+		if( archive.isModified() )
+			write();
+
+		logArchivedObjects(archivedObjects);
+	}
+
+	/**
+	 * Stops the archiving thread once it has read what has been queued.
+	 */
+	public void stop() throws MojoExecutionException {
+		if( thread == null )
+			return;
+
+		queue.add(END_OF_QUEUE);
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			thread.interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for static archiving to finish.", e);
+		}
+
+		thread = null;
+	}
+
+	/**
+	 * @return Whether the static library has been completely built
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	private void archiveQueuedObjects() {
+		try {
+			archive = GnuArchive.read(libFile, settings.isThinArchive());
+
+			NativeCodeFile codeFile;
+			while( (codeFile = queue.take()) != END_OF_QUEUE )
+				if( failure == null )
+					put(codeFile);
+		}
+		catch (InterruptedException e) {
+			failure = new MojoExecutionException("Interrupted while archiving to " + libFile + ".", e);
+		}
+		catch (IOException e) {
+			failure = new MojoExecutionException("Failed to archive objects to " + libFile + ".", e);
+		}
+	}
+
+	private void put(final NativeCodeFile codeFile) throws IOException {
+		if( archivedObjects.add(codeFile.getObjectFile()) )
+			archive.put(getMemberName(codeFile), codeFile.getObjectFile());
+	}
+
+	private boolean isElf(final Collection<NativeCodeFile> allClasses) throws IOException {
+		for(NativeCodeFile codeFile : allClasses)
+			if( codeFile.getObjectFile().isFile() )
+				return ElfSymbolReader.isElf(codeFile.getObjectFile());
+
+		return true;
+	}
+
+	private Collection<File> getObjectsToArchive(final Collection<NativeCodeFile> allClasses) {
+		final Collection<File> objectFiles = new LinkedHashSet<File>(archivedObjects);
+		for(NativeCodeFile codeFile : allClasses)
+			if( !libraryExisted || isNewerThanLibrary(codeFile) )
+				objectFiles.add(codeFile.getObjectFile());
+
+		return objectFiles;
+	}
+
+	private boolean isNewerThanLibrary(final NativeCodeFile codeFile) {
+		return codeFile.getObjectFile().lastModified() > libraryModified;
+	}
+
+	private void archiveWithAr(final Collection<File> objectFiles) throws MojoExecutionException, MojoFailureException {
+		final List<File> objects = new ArrayList<File>(objectFiles);
+		final int batchSize = settings.isLinkTimeOptimization() ? objects.size() : ARCHIVING_BATCH_SIZE;
+		for(int start = 0; start < objects.size(); start += batchSize) {
+			final CliExecutor executor = new CliExecutor(log);
+			executor.initialize(libFile.getParentFile(), settings.isLinkTimeOptimization() ? "gcc-ar" : "ar");
+			executor.getCommandline().createArg().setValue("rc");
+			executor.getCommandline().createArg().setValue(libFile.getName());
+			final List<File> batch = objects.subList(start, Math.min(start + batchSize, objects.size()));
+			if( settings.isLinkTimeOptimization() )
+				executor.appendFiles(batch);
+			else
+				for(File objectFile : batch)
+					executor.getCommandline().createArg().setValue(objectFile.getPath());
+
+			acquireJob();
+			try {
+				executor.execute();
+			}
+			finally {
+				releaseJob();
+			}
+		}
+
+		logArchivedObjects(objects);
+	}
+
+	private void acquireJob() throws MojoExecutionException {
+		if( !jobHeld )
+			settings.getJobBudget().acquire();
+	}
+
+	private void releaseJob() {
+		if( !jobHeld )
+			settings.getJobBudget().release();
+	}
+
+	private void logArchivedObjects(final Collection<File> objects) {
+		if( objects.isEmpty() )
+			log.debug("No files to archive - static library will not be updated.");
+		else
+			log.info(targetEnvironment + ": " + objects.size() + " files archived to " + libFile.getName() + ".");
+	}
+
+	/**
+	 * Objects whose symbols can't be read are indexed by ranlib afterwards.
+	 * That includes LTO objects.
+	 */
+	private void write() throws IOException, MojoExecutionException, MojoFailureException {
+		acquireJob();
+		try {
+			if( archive.write(libFile) )
+				return;
+
+			final String ranlib = settings.isLinkTimeOptimization() ? "gcc-ranlib" : "ranlib";
+			log.debug(libFile.getName() + " has objects whose symbols can't be read - indexing it with " + ranlib + ".");
+			final CliExecutor executor = new CliExecutor(log);
+			executor.initialize(libFile.getParentFile(), ranlib);
+			executor.getCommandline().createArg().setValue(libFile.getName());
+			executor.execute();
+		}
+		finally {
+			releaseJob();
+		}
+	}
+
+	/**
+	 * Members are named by the path of the object, relative to the object
+	 * directory, or to the library for thin archives, so objects of the same
+	 * name in different directories don't replace each other.
+	 */
+	private String getMemberName(final NativeCodeFile codeFile) {
+		if( settings.isThinArchive() )
+			return getRelativePath(libFile.getParentFile(), codeFile.getObjectFile());
+
+		return (codeFile.getClassName() + NativeCodeFile.OBJECT_SUFFIX).replace(File.separatorChar, '/');
+	}
+
+	private static String getRelativePath(final File directory, final File file) {
+		final String[] from = directory.getAbsoluteFile().toURI().normalize().getPath().split("/");
+		final String[] to = file.getAbsoluteFile().toURI().normalize().getPath().split("/");
+
+		int common = 0;
+		while( common < from.length && common < to.length - 1 && from[common].equals(to[common]) )
+			common++;
+
+		final StringBuilder path = new StringBuilder();
+		for(int i = common; i < from.length; i++)
+			path.append("../");
+		for(int i = common; i < to.length; i++)
+			path.append(to[i]).append(i < to.length - 1 ? "/" : "");
+
+		return path.toString();
+	}
+}
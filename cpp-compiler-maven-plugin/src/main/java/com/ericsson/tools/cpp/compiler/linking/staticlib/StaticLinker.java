@@ -17,7 +17,6 @@
 package com.ericsson.tools.cpp.compiler.linking.staticlib;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.Collection;
 
 import org.apache.maven.plugin.MojoExecutionException;
@@ -27,75 +26,54 @@ import org.apache.maven.plugin.logging.Log;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.linking.AbstractLinker;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
-import com.ericsson.tools.cpp.tools.CliExecutor;
 import com.ericsson.tools.cpp.tools.DirectoryHandler;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 
 
 public class StaticLinker extends AbstractLinker {
-	private static final int ARCHIVING_BATCH_SIZE = 250;
+	private final StaticArchiver archiver;
 
 	public StaticLinker(final Log log, final CompilationSettings settings, final Environment targetEnvironment) {
+		this(log, settings, targetEnvironment, null);
+	}
+
+	/**
+	 * @param archiver	Archiver that may already have built the library during compilation, or null
+	 */
+	public StaticLinker(final Log log, final CompilationSettings settings, final Environment targetEnvironment, final StaticArchiver archiver) {
 		super(log, settings, targetEnvironment);
+		this.archiver = archiver;
 	}
 
+	/**
+	 * Linking runs within a job of the link task graph, so a library that
+	 * wasn't archived during compilation is archived within that job.
+	 */
 	@Override
 	public void link(final Collection<NativeCodeFile> allClasses, final Collection<NativeCodeFile> compiledClasses, final Collection<File> libsToLink) throws MojoExecutionException, MojoFailureException {
-		new DirectoryHandler(log).create(settings.getStaticOutputDirectory(getTargetEnvironment(), settings.isTestCompilation()));
-
-		createStaticLibrary(allClasses, compiledClasses);
-	}
-
-	private void createStaticLibrary(final Collection<NativeCodeFile> allClasses, final Collection<NativeCodeFile> compiledClasses) throws MojoExecutionException, MojoFailureException {
-		final File libFile = new File(settings.getStaticOutputDirectory(getTargetEnvironment(), settings.isTestCompilation()), "lib" + settings.getProject().getArtifactId() + ".a");
-		final Collection<NativeCodeFile> classesToArchive = determineClassesToArchive(libFile.exists(), allClasses, compiledClasses);
-
-		if( classesToArchive.isEmpty() ) {
-			log.debug("No files to archive - static library will not be updated.");
+		if( archiver != null && archiver.isFinished() ) {
+			log.debug(getTargetEnvironment() + ": Static library was archived during compilation.");
 			return;
 		}
-		
-		for(NativeCodeFile[] batch : createClassBatches(classesToArchive)) 
-			archiveBatch(libFile, batch);
-
-		log.info(getTargetEnvironment() + ": " + classesToArchive.size() + " files archived to " + libFile.getName() + ".");
-	}
-
-	private NativeCodeFile[][] createClassBatches(final Collection<NativeCodeFile> classes) {
-		final NativeCodeFile[] allClasses = classes.toArray(new NativeCodeFile[classes.size()]);
-		final int numberOfBatches = (allClasses.length + ARCHIVING_BATCH_SIZE - 1) / ARCHIVING_BATCH_SIZE;
-		final NativeCodeFile[][] batches = new NativeCodeFile[numberOfBatches][];
 
-		for(int i = 0; i < numberOfBatches; i++) {
-			int start = i * ARCHIVING_BATCH_SIZE;
-			int stop = Math.min(start + ARCHIVING_BATCH_SIZE, allClasses.length);
-
-			batches[i] = Arrays.copyOfRange(allClasses, start, stop);
-		}
-
-		log.debug("Split classes to archive into " + batches.length + " batches of up to " + ARCHIVING_BATCH_SIZE + " each.");
+		new DirectoryHandler(log).create(settings.getStaticOutputDirectory(getTargetEnvironment(), settings.isTestCompilation()));
 
-		return batches;
+		createStaticLibrary(allClasses, compiledClasses);
 	}
 
-	private void archiveBatch(final File libFile, final NativeCodeFile[] batch) throws MojoFailureException, MojoExecutionException {
-		CliExecutor executor = new CliExecutor(log);
-		executor.initialize(libFile.getParentFile(), "ar");
-		executor.getCommandline().createArg().setValue("rc");
-		executor.getCommandline().createArg().setValue(libFile.getName());
-
-		for(NativeCodeFile classToArchive : batch)
-			executor.getCommandline().createArg().setValue(classToArchive.getObjectFile().getPath());
-
-		executor.execute();
-
-		log.debug("Archived batch of " + batch.length + " files.");
+	public static File getLibraryFile(final CompilationSettings settings, final Environment targetEnvironment) {
+		return new File(settings.getStaticOutputDirectory(targetEnvironment, settings.isTestCompilation()), "lib" + settings.getProject().getArtifactId() + ".a");
 	}
 
-	private Collection<NativeCodeFile> determineClassesToArchive(boolean libFileExists, Collection<NativeCodeFile> allClasses, Collection<NativeCodeFile> compiledClasses) {
-		if( libFileExists )
-			return compiledClasses;
-		else
-			return allClasses;
+	private void createStaticLibrary(final Collection<NativeCodeFile> allClasses, final Collection<NativeCodeFile> compiledClasses) throws MojoExecutionException, MojoFailureException {
+		final StaticArchiver staticArchiver = new StaticArchiver(log, settings, getTargetEnvironment(), true);
+		staticArchiver.start();
+		try {
+			staticArchiver.filesCompiled(compiledClasses);
+			staticArchiver.finish(allClasses);
+		}
+		finally {
+			staticArchiver.stop();
+		}
 	}
 }
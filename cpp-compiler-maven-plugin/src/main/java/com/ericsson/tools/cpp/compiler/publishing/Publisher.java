@@ -59,6 +59,6 @@ public class Publisher {
 
 	private void publish(final File sourceDirectory, final File destinationDirectory) throws MojoFailureException, MojoExecutionException {
 		log.debug("Copying " + sourceDirectory + " to " + destinationDirectory);
-		new DirectoryHandler(log).copyRecursively(sourceDirectory, destinationDirectory, OverwriteStyle.OVERWRITE_IF_NEWER);
+		new DirectoryHandler(log, settings.getFileStatusCache()).copyRecursively(sourceDirectory, destinationDirectory, OverwriteStyle.OVERWRITE_IF_NEWER);
 	}
 }
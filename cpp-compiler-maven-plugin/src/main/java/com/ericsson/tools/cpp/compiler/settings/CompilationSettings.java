@@ -18,13 +18,45 @@ package com.ericsson.tools.cpp.compiler.settings;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
 
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorkerPool;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
+import com.ericsson.tools.cpp.tools.JobBudget;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 import com.ericsson.tools.cpp.tools.settings.MavenProjectContainer;
 
 
 public interface CompilationSettings extends MavenProjectContainer {
+	public static final String BATCHING_PER_FILE = "file";
+	public static final String BATCHING_BY_COST = "cost";
+	public static final String RECOMPILATION_BY_TIMESTAMP = "timestamp";
+	public static final String RECOMPILATION_BY_SIGNATURE = "signature";
+	public static final String LINKER_DEFAULT = "default";
+	public static final String LINKER_AUTO = "auto";
+	public static final String PGO_NONE = "none";
+	public static final String PGO_GENERATE = "generate";
+	public static final String PGO_USE = "use";
+
 	public boolean isTestCompilation();
+	public int getJobs();
+	public String getCompilationBatching();
+	public String getRecompilationStrategy();
+	public FileStatusCache getFileStatusCache();
+	public JobBudget getJobBudget();
+	public int getLinkMemory();
+	public int getLinkMemoryPerJob();
+	public boolean isThinArchive();
+	public boolean isLinkTimeOptimization();
+	public String getProfileGuidedOptimization();
+	public File getProfileDirectory(final Environment targetEnvironment);
+	public CompileWorkerPool getCompileWorkers();
+	public File getObjectCacheDirectory();
+	public long getObjectCacheMaxSize();
+	public List<String> getPrecompiledHeaders();
+	public int getUnityBuildSize();
+	public List<String> getUnityExcludes();
+	public Collection<File> getEntryPointFiles();
 	public File getObjDirectory(final Environment targetEnvironment);
 	public File getObjDirectory(final Environment targetEnvironment, final boolean test);
 	public File getCodeDirectory(final Environment environment, final boolean test);
@@ -40,5 +72,6 @@ public interface CompilationSettings extends MavenProjectContainer {
 	public Collection<File> getDependencyDirectories(final String scope, final Environment targetEnvironment);
 	public Collection<File> getDependencyDirectories(final String scope, final Environment targetEnvironment, final boolean noArch);
 	public String getLinkerArguments(final Environment targetEnvironment);
+	public String getLinker(final Environment targetEnvironment);
 	public String getCompilerArguments(final Environment targetEnvironment);
 }
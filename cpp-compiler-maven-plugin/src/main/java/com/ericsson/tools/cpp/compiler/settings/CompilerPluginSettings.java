@@ -17,11 +17,20 @@
 package com.ericsson.tools.cpp.compiler.settings;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 
+import com.ericsson.tools.cpp.compiler.compilation.remote.CompileWorkerPool;
+import com.ericsson.tools.cpp.tools.JobBudget;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 import com.ericsson.tools.cpp.tools.settings.PluginSettingsImpl;
 
@@ -31,6 +40,27 @@ public class CompilerPluginSettings extends PluginSettingsImpl implements Depend
 	private final boolean testCompilation;
 	private final Map<String, String> compilerArguments;
 	private final Map<String, String> linkerArguments;
+	private int jobs;
+	private String compilationBatching = BATCHING_PER_FILE;
+	private String recompilationStrategy = RECOMPILATION_BY_TIMESTAMP;
+	private File objectCacheDirectory;
+	private long objectCacheMaxSize;
+	private File dependencyStoreDirectory;
+	private long dependencyStoreMaxSize;
+	private List<String> precompiledHeaders = Collections.emptyList();
+	private int unityBuildSize;
+	private int linkMemory;
+	private int linkMemoryPerJob = 1024;
+	private boolean thinArchive;
+	private boolean linkTimeOptimization;
+	private String profileGuidedOptimization = PGO_NONE;
+	private File profileDirectory;
+	private CompileWorkerPool compileWorkers;
+	private JobBudget jobBudget;
+	private Map<String, String> linkers = Collections.emptyMap();
+	private String linker = LINKER_DEFAULT;
+	private List<String> unityExcludes = Collections.emptyList();
+	private Collection<File> entryPointFiles = Collections.emptyList();
 
 	public CompilerPluginSettings(final MavenProject project, final Map<String, String> sources, final File outputDirectory, final File testOutputDirectory, final Map<String, String> linkerArguments, final Map<String, String> compilerArguments, final boolean testCompilation) {
 		super(project, sources, outputDirectory, testOutputDirectory);
@@ -44,6 +74,248 @@ public class CompilerPluginSettings extends PluginSettingsImpl implements Depend
 		return testCompilation;
 	}
 
+	/**
+	 * @return The maximum number of concurrent jobs, defaulting to the number of logical cores
+	 */
+	public int getJobs() {
+		if( jobs < 1 )
+			return Runtime.getRuntime().availableProcessors();
+
+		return jobs;
+	}
+
+	public void setJobs(final Log log, final int jobs) {
+		this.jobs = jobs;
+		this.jobBudget = JobBudget.getShared(log, getJobs());
+	}
+
+	/**
+	 * @return Megabytes available to concurrent link steps. Defaults to the physical memory of the machine, if it can be determined.
+	 */
+	public int getLinkMemory() {
+		if( linkMemory > 0 )
+			return linkMemory;
+
+		final long physicalMemory = getPhysicalMemory();
+		if( physicalMemory <= 0 )
+			return Integer.MAX_VALUE;
+
+		return (int)Math.min(Integer.MAX_VALUE, physicalMemory / (1024 * 1024));
+	}
+
+	/**
+	 * @return Megabytes one shared library or executable link step is expected to use
+	 */
+	public int getLinkMemoryPerJob() {
+		return linkMemoryPerJob;
+	}
+
+	public void setLinkMemory(final int linkMemory, final int linkMemoryPerJob) {
+		this.linkMemory = linkMemory;
+		if( linkMemoryPerJob > 0 )
+			this.linkMemoryPerJob = linkMemoryPerJob;
+	}
+
+	/**
+	 * @return Whether the static library only refers to the objects instead of containing them
+	 */
+	public boolean isThinArchive() {
+		return thinArchive;
+	}
+
+	public void setThinArchive(final boolean thinArchive) {
+		this.thinArchive = thinArchive;
+	}
+
+	/**
+	 * @return Whether objects are compiled for link-time optimization, and linked with it
+	 */
+	public boolean isLinkTimeOptimization() {
+		return linkTimeOptimization;
+	}
+
+	public void setLinkTimeOptimization(final boolean linkTimeOptimization) {
+		this.linkTimeOptimization = linkTimeOptimization;
+	}
+
+	/**
+	 * @return "none", "generate" to build instrumented for collecting profile data, or "use" to optimize using collected profile data
+	 */
+	public String getProfileGuidedOptimization() {
+		return profileGuidedOptimization;
+	}
+
+	/**
+	 * @return The directory the profile data of the target is collected in
+	 */
+	public File getProfileDirectory(final Environment targetEnvironment) {
+		return new File(profileDirectory, targetEnvironment.getCanonicalName());
+	}
+
+	public void setProfileGuidedOptimization(final String profileGuidedOptimization, final File profileDirectory) {
+		if( profileGuidedOptimization != null )
+			this.profileGuidedOptimization = profileGuidedOptimization;
+		this.profileDirectory = profileDirectory;
+	}
+
+	/**
+	 * @return The workers preprocessed files are sent to for compilation, or null to compile locally
+	 */
+	public CompileWorkerPool getCompileWorkers() {
+		return compileWorkers;
+	}
+
+	/**
+	 * @param compileWorkers	Comma separated host:port/slots entries, or null
+	 */
+	public void setCompileWorkers(final String compileWorkers) throws MojoExecutionException {
+		if( compileWorkers != null && compileWorkers.trim().length() > 0 )
+			this.compileWorkers = CompileWorkerPool.getShared(compileWorkers.trim());
+	}
+
+	/**
+	 * Instrumented objects are kept apart, so that switching between
+	 * collecting and using profile data doesn't recompile everything.
+	 */
+	@Override
+	public File getObjDirectory(final Environment targetEnvironment, final boolean test) {
+		final File objDirectory = super.getObjDirectory(targetEnvironment, test);
+		if( PGO_GENERATE.equals(profileGuidedOptimization) )
+			return new File(objDirectory.getPath() + "-profile-generate");
+
+		return objDirectory;
+	}
+
+	/**
+	 * The physical memory is only exposed by the com.sun.management extension
+	 * of the operating system bean, which isn't available on every JVM.
+	 */
+	private long getPhysicalMemory() {
+		try {
+			final Class<?> beanInterface = Class.forName("com.sun.management.OperatingSystemMXBean");
+			final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+			if( !beanInterface.isInstance(bean) )
+				return 0;
+
+			return (Long)beanInterface.getMethod("getTotalPhysicalMemorySize").invoke(bean);
+		}
+		catch (Exception e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * @return The JVM-wide budget of concurrent compiler and linker processes
+	 */
+	public JobBudget getJobBudget() {
+		return jobBudget;
+	}
+
+	/**
+	 * @return How stale files are batched into compilation tasks, either "file" or "cost"
+	 */
+	public String getCompilationBatching() {
+		return compilationBatching;
+	}
+
+	public void setCompilationBatching(final String compilationBatching) {
+		if( compilationBatching != null )
+			this.compilationBatching = compilationBatching;
+	}
+
+	/**
+	 * @return How files are judged to need recompilation, either "timestamp" or "signature"
+	 */
+	public String getRecompilationStrategy() {
+		return recompilationStrategy;
+	}
+
+	public void setRecompilationStrategy(final String recompilationStrategy) {
+		if( recompilationStrategy != null )
+			this.recompilationStrategy = recompilationStrategy;
+	}
+
+	/**
+	 * @return The directory of the machine-wide object cache, or null if object caching is disabled
+	 */
+	public File getObjectCacheDirectory() {
+		return objectCacheDirectory;
+	}
+
+	/**
+	 * @return The size in bytes beyond which the least recently used cached objects are evicted
+	 */
+	public long getObjectCacheMaxSize() {
+		return objectCacheMaxSize;
+	}
+
+	public void setObjectCache(final File objectCacheDirectory, final long objectCacheMaxSize) {
+		this.objectCacheDirectory = objectCacheDirectory;
+		this.objectCacheMaxSize = objectCacheMaxSize;
+	}
+
+	/**
+	 * @return The directory of the machine-wide store of extracted dependencies, or null if the store is disabled
+	 */
+	public File getDependencyStoreDirectory() {
+		return dependencyStoreDirectory;
+	}
+
+	/**
+	 * @return The size in bytes beyond which the least recently linked extracted dependencies are evicted
+	 */
+	public long getDependencyStoreMaxSize() {
+		return dependencyStoreMaxSize;
+	}
+
+	public void setDependencyStore(final File dependencyStoreDirectory, final long dependencyStoreMaxSize) {
+		this.dependencyStoreDirectory = dependencyStoreDirectory;
+		this.dependencyStoreMaxSize = dependencyStoreMaxSize;
+	}
+
+	/**
+	 * @return The headers to precompile, as they would be named in an include directive
+	 */
+	public List<String> getPrecompiledHeaders() {
+		return precompiledHeaders;
+	}
+
+	public void setPrecompiledHeaders(final List<String> precompiledHeaders) {
+		if( precompiledHeaders != null )
+			this.precompiledHeaders = precompiledHeaders;
+	}
+
+	/**
+	 * @return The average number of source files per unity unit, or less than 2 if unity builds are disabled
+	 */
+	public int getUnityBuildSize() {
+		return unityBuildSize;
+	}
+
+	/**
+	 * @return Patterns, relative to the source directories, of files to compile on their own in unity builds
+	 */
+	public List<String> getUnityExcludes() {
+		return unityExcludes;
+	}
+
+	public void setUnityBuild(final int unityBuildSize, final List<String> unityExcludes) {
+		this.unityBuildSize = unityBuildSize;
+		if( unityExcludes != null )
+			this.unityExcludes = unityExcludes;
+	}
+
+	/**
+	 * @return The source files of executable entry points, which have to be compiled on their own
+	 */
+	public Collection<File> getEntryPointFiles() {
+		return entryPointFiles;
+	}
+
+	public void setEntryPointFiles(final Collection<File> entryPointFiles) {
+		this.entryPointFiles = entryPointFiles;
+	}
+
 	public String getCompilerArguments(final Environment targetEnvironment) {
 		return getEnvironmentSpecificArguments(targetEnvironment, compilerArguments);
 	}
@@ -52,6 +324,29 @@ public class CompilerPluginSettings extends PluginSettingsImpl implements Depend
 		return getEnvironmentSpecificArguments(targetEnvironment, linkerArguments);
 	}
 	
+	/**
+	 * @return The linker requested for the target: "default", "auto", or the name of a linker, such as "mold", "lld" or "gold"
+	 */
+	public String getLinker(final Environment targetEnvironment) {
+		if( linkers.containsKey(targetEnvironment.getCanonicalName()) )
+			return linkers.get(targetEnvironment.getCanonicalName()).trim();
+
+		if( linkers.containsKey("all") )
+			return linkers.get("all").trim();
+
+		return linker;
+	}
+
+	/**
+	 * @param linkers	Linkers with targets as keys, overriding the linker given for all targets
+	 */
+	public void setLinkers(final Map<String, String> linkers, final String linker) {
+		if( linkers != null )
+			this.linkers = linkers;
+		if( linker != null )
+			this.linker = linker.trim();
+	}
+
 	public String getEnvironmentSpecificArguments(final Environment environment, final Map<String, String> argumentMap) {
 		String arguments = "";
 
@@ -23,4 +23,7 @@ import com.ericsson.tools.cpp.tools.settings.MavenProjectContainer;
 
 public interface DependencyExtractionSettings extends MavenProjectContainer {
 	public File getDirectoryForDependecyArtifactExtraction(final String scope, final String groupId, final String artifactId);
+	public int getJobs();
+	public File getDependencyStoreDirectory();
+	public long getDependencyStoreMaxSize();
 }
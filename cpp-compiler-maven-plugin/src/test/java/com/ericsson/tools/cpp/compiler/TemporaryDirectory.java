@@ -0,0 +1,44 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * An empty directory under the temporary directory of the system, for tests
+ * that work on real files. Create it before each test and delete it after.
+ */
+public class TemporaryDirectory {
+	private final File directory;
+
+	public TemporaryDirectory(final String prefix) throws IOException {
+		directory = File.createTempFile(prefix, "");
+		if( !directory.delete() || !directory.mkdir() )
+			throw new IOException("Failed to create temporary directory " + directory + ".");
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public void delete() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+}
@@ -0,0 +1,132 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestCompilationExecutor {
+	private CompilationExecutor executor;
+
+	@Before
+	public void setup() {
+		executor = new CompilationExecutor(mock(Log.class), 2);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void allSubmittedTasksShouldBeCollected() throws Exception {
+		for(int i = 0; i < 10; i++)
+			executor.submit(new SucceedingTask("file" + i + ".cc"));
+
+		assertEquals(10, executor.collectFinishedTasks().size() + executor.awaitCompletion().size());
+	}
+
+	@Test
+	public void exceptionInTaskShouldBeReportedThroughAwaitCompletion() throws Exception {
+		final MojoFailureException failure = new MojoFailureException("compilation failed");
+		executor.submit(new SucceedingTask("good.cc"));
+		executor.submit(new Callable<Collection<NativeCodeFile>>() {
+			@Override
+			public Collection<NativeCodeFile> call() throws Exception {
+				throw failure;
+			}
+		});
+
+		try {
+			executor.awaitCompletion();
+			fail("Expected the failing task to be reported.");
+		}
+		catch(MojoExecutionException e) {
+			assertSame(failure, e.getCause());
+		}
+	}
+
+	@Test
+	public void shutdownNowShouldStopRunningTasksAndDropWaitingOnes() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch interrupted = new CountDownLatch(2);
+		for(int i = 0; i < 2; i++) {
+			executor.submit(new Callable<Collection<NativeCodeFile>>() {
+				@Override
+				public Collection<NativeCodeFile> call() throws Exception {
+					started.countDown();
+					try {
+						Thread.sleep(60000);
+					}
+					catch(InterruptedException e) {
+						interrupted.countDown();
+					}
+					return Collections.emptyList();
+				}
+			});
+		}
+		final AtomicBoolean waitingTaskRan = new AtomicBoolean(false);
+		executor.submit(new Callable<Collection<NativeCodeFile>>() {
+			@Override
+			public Collection<NativeCodeFile> call() {
+				waitingTaskRan.set(true);
+				return Collections.emptyList();
+			}
+		});
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		executor.shutdownNow();
+
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		assertFalse(waitingTaskRan.get());
+	}
+
+	private static class SucceedingTask implements Callable<Collection<NativeCodeFile>> {
+		private final String name;
+
+		public SucceedingTask(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Collection<NativeCodeFile> call() {
+			return Collections.singletonList(new NativeCodeFile(name, new File("src"), new File("obj")));
+		}
+	}
+}
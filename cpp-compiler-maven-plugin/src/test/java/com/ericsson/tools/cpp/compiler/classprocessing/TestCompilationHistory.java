@@ -0,0 +1,97 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestCompilationHistory {
+	private TemporaryDirectory temporaryDirectory;
+	private File objDirectory;
+	private final NativeCodeFile quick = new NativeCodeFile("quick.cc", new File("src"), new File("obj"));
+	private final NativeCodeFile slow = new NativeCodeFile("slow.cc", new File("src"), new File("obj"));
+	private final NativeCodeFile broken = new NativeCodeFile("broken.cc", new File("src"), new File("obj"));
+	private final NativeCodeFile fresh = new NativeCodeFile("fresh.cc", new File("src"), new File("obj"));
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("history");
+		objDirectory = temporaryDirectory.getDirectory();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void recordedTimesShouldSurviveSaveAndLoad() {
+		final CompilationHistory history = new CompilationHistory(mock(Log.class), objDirectory);
+		history.recordSuccess(slow, 9000);
+		history.recordFailure(broken, 10);
+		history.save(Arrays.asList(quick, slow, fresh, broken));
+
+		final CompilationHistory reloaded = new CompilationHistory(mock(Log.class), objDirectory);
+		reloaded.load();
+
+		assertEquals(9000, reloaded.getDuration(slow));
+		assertEquals(10, reloaded.getDuration(broken));
+		assertTrue(reloaded.hasFailed(broken));
+		assertEquals(-1, reloaded.getDuration(fresh));
+	}
+
+	@Test
+	public void filesNoLongerBuiltShouldBeDroppedOnSave() {
+		final CompilationHistory history = new CompilationHistory(mock(Log.class), objDirectory);
+		history.recordSuccess(quick, 100);
+		history.recordSuccess(slow, 9000);
+		history.save(Arrays.asList(slow, fresh));
+
+		final CompilationHistory reloaded = new CompilationHistory(mock(Log.class), objDirectory);
+		reloaded.load();
+
+		assertEquals(-1, reloaded.getDuration(quick));
+		assertEquals(9000, reloaded.getDuration(slow));
+	}
+
+	@Test
+	public void failedFilesShouldComeFirstAndQuickFilesLast() {
+		final CompilationHistory history = new CompilationHistory(mock(Log.class), objDirectory);
+		history.recordSuccess(quick, 100);
+		history.recordSuccess(slow, 9000);
+		history.recordFailure(broken, 10);
+
+		final List<NativeCodeFile> sorted = history.sortByPriority(Arrays.asList(quick, slow, fresh, broken));
+
+		assertEquals(Arrays.asList(broken, fresh, slow, quick), sorted);
+	}
+}
@@ -0,0 +1,71 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestCostPackedBatchPlanner {
+	private final CostPackedBatchPlanner planner = new CostPackedBatchPlanner(mock(Log.class), new NameLengthCostEstimator());
+
+	@Test
+	public void batchesShouldOnlyContainFilesFromOneDirectory() {
+		final Collection<NativeCodeFile> files = new ArrayList<NativeCodeFile>();
+		files.add(new NativeCodeFile("a.cc", new File("src/one"), new File("obj")));
+		files.add(new NativeCodeFile("b.cc", new File("src/two"), new File("obj")));
+		files.add(new NativeCodeFile("c.cc", new File("src/one"), new File("obj")));
+
+		for(Collection<NativeCodeFile> batch : planner.plan(files, 1)) {
+			final File directory = batch.iterator().next().getSourceFile().getParentFile();
+			for(NativeCodeFile file : batch)
+				assertEquals(directory, file.getSourceFile().getParentFile());
+		}
+	}
+
+	@Test
+	public void expensiveFilesShouldBeScheduledFirstAndAlone() {
+		final Collection<NativeCodeFile> files = new ArrayList<NativeCodeFile>();
+		for(int i = 0; i < 8; i++)
+			files.add(new NativeCodeFile("f" + i + ".cc", new File("src"), new File("obj")));
+		files.add(new NativeCodeFile("a_very_expensive_file_with_a_long_name.cc", new File("src"), new File("obj")));
+
+		final List<Collection<NativeCodeFile>> plan = planner.plan(files, 2);
+
+		assertEquals(1, plan.get(0).size());
+		assertEquals("a_very_expensive_file_with_a_long_name", plan.get(0).iterator().next().getClassName());
+		assertTrue(plan.size() > 2);
+	}
+
+	private static class NameLengthCostEstimator implements CompilationCostEstimator {
+		@Override
+		public long estimateCost(final NativeCodeFile codeFile) {
+			return codeFile.getSourceFile().getName().length();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.classprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestHistoryCostEstimator {
+	private final NativeCodeFile compiled = new NativeCodeFile("compiled.cc", new File("src"), new File("obj"));
+	private final NativeCodeFile slow = new NativeCodeFile("slow.cc", new File("src"), new File("obj"));
+	private final NativeCodeFile fresh = new NativeCodeFile("fresh.cc", new File("src"), new File("obj"));
+
+	@Test
+	public void recordedTimesShouldBeUsedAndOtherEstimatesScaledToThem() {
+		final CompilationHistory history = new CompilationHistory(mock(Log.class), new File("obj"));
+		history.recordSuccess(compiled, 3000);
+		history.recordSuccess(slow, 9000);
+
+		final HistoryCostEstimator estimator = new HistoryCostEstimator(history, new FixedCostEstimator(), Arrays.asList(compiled, slow, fresh));
+
+		assertEquals(3000, estimator.estimateCost(compiled));
+		assertEquals(9000, estimator.estimateCost(slow));
+		assertEquals(6000, estimator.estimateCost(fresh));
+	}
+
+	@Test
+	public void otherEstimatesShouldBeUsedAsTheyAreWithoutHistory() {
+		final CompilationHistory history = new CompilationHistory(mock(Log.class), new File("obj"));
+
+		assertEquals(100, new HistoryCostEstimator(history, new FixedCostEstimator(), Arrays.asList(fresh)).estimateCost(fresh));
+	}
+
+	private static class FixedCostEstimator implements CompilationCostEstimator {
+		@Override
+		public long estimateCost(final NativeCodeFile codeFile) {
+			return 100;
+		}
+	}
+}
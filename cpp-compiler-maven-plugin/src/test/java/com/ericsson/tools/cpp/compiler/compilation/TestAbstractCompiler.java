@@ -17,22 +17,34 @@
 package com.ericsson.tools.cpp.compiler.compilation;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
 import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
 import com.ericsson.tools.cpp.compiler.compilation.RecompilationJudge;
+import com.ericsson.tools.cpp.compiler.dependencies.ExtractionBarrier;
 import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
 import com.ericsson.tools.cpp.tools.environment.Environment;
@@ -41,11 +53,21 @@ import com.ericsson.tools.cpp.tools.environment.Environment;
 public class TestAbstractCompiler {
 	private RecompilationJudge recompilationJudge = null;
 	private AbstractCompiler compiler = null;
+	private TemporaryDirectory temporaryDirectory;
+	private File existingObjectFile;
 	
 	@Before
-	public void setup() {
+	public void setup() throws IOException {
 		recompilationJudge = mock(RecompilationJudge.class);
 		compiler = new CompilerImpl(mock(Log.class), mock(CompilationSettings.class), mock(Environment.class), recompilationJudge);
+		temporaryDirectory = new TemporaryDirectory("compiler");
+		existingObjectFile = new File(temporaryDirectory.getDirectory(), "existing.o");
+		FileUtils.fileWrite(existingObjectFile.getPath(), "object");
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
 	}
 	
 	@Test
@@ -60,8 +82,58 @@ public class TestAbstractCompiler {
 		assertTrue("Compiler should pass positive judgments from the judge.", judgement1);
 		assertFalse("Compiler should pass negative judgments from the judge.", judgement2);
 	}
-	
-	
+
+	@Test
+	public void onlyFilesWithObjectFilesShouldWaitForExtractedDependencies() throws Exception {
+		final MojoExecutionException failure = new MojoExecutionException("extraction failed");
+		final FutureTask<Void> extraction = new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				throw failure;
+			}
+		});
+		extraction.run();
+		compiler.setExtractionBarrier(new ExtractionBarrier(extraction));
+
+		final NativeCodeFile fileWithoutObject = new NativeCodeFile("new.cc", new File("src"), new File("target/nonexistent"));
+		when(recompilationJudge.fileNeedsToBeCompiled(fileWithoutObject)).thenReturn(true);
+		assertTrue(compiler.fileNeedsToBeCompiled(fileWithoutObject));
+
+		final NativeCodeFile fileWithObject = mock(NativeCodeFile.class);
+		when(fileWithObject.getObjectFile()).thenReturn(existingObjectFile);
+		try {
+			compiler.fileNeedsToBeCompiled(fileWithObject);
+			fail("Expected judging a file with an object file to wait for the failed extraction.");
+		}
+		catch(MojoExecutionException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void compilerShouldBePreparedOnceAFileWithAnObjectFileIsJudged() throws Exception {
+		final FutureTask<Void> extraction = new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() {
+				return null;
+			}
+		});
+		extraction.run();
+		final CompilationSettings settings = mock(CompilationSettings.class);
+		when(settings.getRecompilationStrategy()).thenReturn(CompilationSettings.RECOMPILATION_BY_SIGNATURE);
+		final AbstractCompiler compiler = new CompilerImpl(mock(Log.class), settings, mock(Environment.class), recompilationJudge);
+		compiler.setExtractionBarrier(new ExtractionBarrier(extraction));
+
+		compiler.fileNeedsToBeCompiled(new NativeCodeFile("new.cc", new File("src"), new File("target/nonexistent")));
+		verify(recompilationJudge, never()).setCommandSignature(anyString());
+
+		final NativeCodeFile fileWithObject = mock(NativeCodeFile.class);
+		when(fileWithObject.getObjectFile()).thenReturn(existingObjectFile);
+		compiler.fileNeedsToBeCompiled(fileWithObject);
+		compiler.fileNeedsToBeCompiled(fileWithObject);
+		verify(recompilationJudge, times(1)).setCommandSignature("");
+	}
+
 	public static class CompilerImpl extends AbstractCompiler {
 		public CompilerImpl(final Log log, final CompilationSettings settings, final Environment targetEnvironment, final RecompilationJudge recompilationJudge) {
 			super(log, settings, targetEnvironment, recompilationJudge);
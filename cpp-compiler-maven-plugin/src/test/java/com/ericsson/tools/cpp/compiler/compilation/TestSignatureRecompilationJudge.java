@@ -0,0 +1,101 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.tools.FileHashCache;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
+
+
+public class TestSignatureRecompilationJudge {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+	private NativeCodeFile ncf;
+	private File header;
+	private RecompilationJudge timestampJudge;
+	private IncludesAnalyzer includesAnalyzer;
+
+	@Before
+	public void setup() throws Exception {
+		temporaryDirectory = new TemporaryDirectory("signatures");
+		directory = temporaryDirectory.getDirectory();
+
+		ncf = new NativeCodeFile("Foo.cc", directory, directory);
+		header = new File(directory, "Foo.h");
+		FileUtils.fileWrite(ncf.getSourceFile().getPath(), "#include \"Foo.h\"");
+		FileUtils.fileWrite(header.getPath(), "int foo();");
+		FileUtils.fileWrite(ncf.getObjectFile().getPath(), "");
+		FileUtils.fileWrite(ncf.getDependFile().getPath(), "");
+
+		timestampJudge = mock(RecompilationJudge.class);
+		includesAnalyzer = mock(IncludesAnalyzer.class);
+		when(includesAnalyzer.getIncludedFiles(ncf)).thenReturn(Collections.singletonList(header));
+
+		final SignatureRecompilationJudge judge = createJudge("gcc -O2");
+		judge.fileCompiled(ncf);
+		judge.persistState();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	private SignatureRecompilationJudge createJudge(final String commandSignature) {
+		final FileHashCache fileHashCache = new FileHashCache(mock(Log.class), new File(directory, SignatureRecompilationJudge.FILE_HASHES_FILE_NAME), new FileStatusCache());
+		final SignatureRecompilationJudge judge = new SignatureRecompilationJudge(mock(Log.class), timestampJudge, includesAnalyzer, fileHashCache, directory);
+		judge.setCommandSignature(commandSignature);
+		return judge;
+	}
+
+	@Test
+	public void touchedButUnchangedFilesShouldNotBeRecompiled() throws Exception {
+		when(timestampJudge.fileNeedsToBeCompiled(ncf)).thenReturn(true);
+		header.setLastModified(header.lastModified() + 10000);
+
+		assertFalse(createJudge("gcc -O2").fileNeedsToBeCompiled(ncf));
+	}
+
+	@Test
+	public void changedHeaderShouldTriggerRecompilation() throws Exception {
+		FileUtils.fileWrite(header.getPath(), "int foo(int);");
+		header.setLastModified(header.lastModified() + 10000);
+
+		assertTrue(createJudge("gcc -O2").fileNeedsToBeCompiled(ncf));
+	}
+
+	@Test
+	public void changedCommandLineShouldTriggerRecompilation() throws Exception {
+		assertTrue(createJudge("gcc -O3").fileNeedsToBeCompiled(ncf));
+	}
+}
@@ -0,0 +1,121 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.compilation.RecompilationJudge;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
+import com.ericsson.tools.cpp.tools.environment.Environment;
+
+public class TestAbstractGccCompiler {
+	private static final int SOURCE_COUNT = 20;
+
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+	private File sourceDirectory;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("gcccompiler");
+		directory = temporaryDirectory.getDirectory();
+
+		sourceDirectory = new File(directory, "src");
+		sourceDirectory.mkdir();
+		for(int i = 0; i < SOURCE_COUNT; i++)
+			FileUtils.fileWrite(new File(sourceDirectory, "f" + i + ".c").getPath(), "int f" + i + "(void) { return VALUE; }\n");
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void targetsCompilingTheSameSourcesConcurrentlyKeepTheirOwnObjects() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<Void> first = executor.submit(createCompilation("first", 1));
+			final Future<Void> second = executor.submit(createCompilation("second", 2));
+			first.get();
+			second.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertEquals(SOURCE_COUNT, sourceDirectory.list().length);
+		for(int i = 0; i < SOURCE_COUNT; i++) {
+			final File firstObject = new File(directory, "first/f" + i + ".o");
+			final File secondObject = new File(directory, "second/f" + i + ".o");
+			assertTrue(new File(directory, "first/f" + i + ".d").isFile());
+			assertTrue(new File(directory, "second/f" + i + ".d").isFile());
+			assertFalse("The objects of both targets are compiled with their own arguments.", FileUtils.contentEquals(firstObject, secondObject));
+		}
+	}
+
+	private Callable<Void> createCompilation(final String target, final int value) {
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				final Environment environment = mock(Environment.class);
+				final CompilationSettings settings = mock(CompilationSettings.class);
+				when(settings.getFileStatusCache()).thenReturn(new FileStatusCache());
+				when(settings.getIncludeDirectory(null, false)).thenReturn(sourceDirectory);
+				when(settings.getIncludeDirectory(environment, false)).thenReturn(sourceDirectory);
+				when(settings.getCompilerArguments(environment)).thenReturn("-DVALUE=" + value);
+				when(settings.getProfileGuidedOptimization()).thenReturn(CompilationSettings.PGO_NONE);
+
+				final File objectDirectory = new File(directory, target);
+				final Collection<NativeCodeFile> codeFiles = new ArrayList<NativeCodeFile>();
+				for(int i = 0; i < SOURCE_COUNT; i++)
+					codeFiles.add(new NativeCodeFile(new File(sourceDirectory, "f" + i + ".c"), objectDirectory));
+
+				new GccCompilerImpl(mock(Log.class), settings, environment).compile(codeFiles);
+				return null;
+			}
+		};
+	}
+
+	private static class GccCompilerImpl extends AbstractGccCompiler {
+		public GccCompilerImpl(final Log log, final CompilationSettings settings, final Environment targetEnvironment) {
+			super(log, settings, targetEnvironment, mock(RecompilationJudge.class));
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestDependFileParser {
+	private final DependFileParser parser = new DependFileParser();
+
+	private List<String> parse(final String content) throws Exception {
+		return parser.parsePrerequisites(new BufferedReader(new StringReader(content)));
+	}
+
+	@Test
+	public void continuedLinesShouldBeJoined() throws Exception {
+		assertEquals(Arrays.asList("Foo.cc", "../include/Foo.h", "/usr/include/bar.h"),
+				parse("Foo.o: Foo.cc ../include/Foo.h \\\n /usr/include/bar.h\n"));
+	}
+
+	@Test
+	public void escapedSpacesShouldBePartOfThePath() throws Exception {
+		assertEquals(Arrays.asList("Foo.cc", "my dir/Foo.h"), parse("Foo.o: Foo.cc my\\ dir/Foo.h\n"));
+	}
+
+	@Test
+	public void phonyHeaderTargetsShouldBeIgnored() throws Exception {
+		assertEquals(Arrays.asList("Foo.cc", "Foo.h"), parse("Foo.o: Foo.cc Foo.h\n\nFoo.h:\n"));
+	}
+
+	@Test
+	public void doubledDollarSignsShouldBeUnescaped() throws Exception {
+		assertEquals(Arrays.asList("Foo.cc", "a$b.h"), parse("Foo.o: Foo.cc a$$b.h"));
+	}
+
+	@Test
+	public void crlfContinuationsShouldBeHandled() throws Exception {
+		assertEquals(Arrays.asList("Foo.cc", "Foo.h"), parse("Foo.o: Foo.cc \\\r\n Foo.h\r\n"));
+	}
+
+	@Test
+	public void sourceFileShouldBeRecognizedByNameAndAbsolutePath() throws Exception {
+		final File source = new File("src/main/cpp/Foo.cc");
+		final NativeCodeFile ncf = mock(NativeCodeFile.class);
+		when(ncf.getSourceFile()).thenReturn(source);
+
+		assertTrue(DependFileParser.isSourceFile(source.getAbsolutePath(), ncf));
+		assertTrue(DependFileParser.isSourceFile("Foo.cc", ncf));
+		assertFalse(DependFileParser.isSourceFile("Foo.h", ncf));
+	}
+}
@@ -0,0 +1,132 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.tools.FileHashCache;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
+
+
+public class TestGccObjectCache {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+	private File cacheDirectory;
+	private NativeCodeFile ncf;
+	private File header;
+
+	@Before
+	public void setup() throws Exception {
+		temporaryDirectory = new TemporaryDirectory("objectcache");
+		directory = temporaryDirectory.getDirectory();
+		cacheDirectory = new File(directory, "cache");
+
+		ncf = new NativeCodeFile("Foo.cc", directory, new File(directory, "obj"));
+		ncf.getObjectFile().getParentFile().mkdirs();
+		header = new File(directory, "Foo.h");
+		FileUtils.fileWrite(ncf.getSourceFile().getPath(), "#include \"Foo.h\"");
+		FileUtils.fileWrite(header.getPath(), "int foo();");
+		FileUtils.fileWrite(ncf.getObjectFile().getPath(), "object");
+		FileUtils.fileWrite(ncf.getDependFile().getPath(), ncf.getObjectFile().getName() + ": Foo.cc " + header.getAbsolutePath() + "\n");
+
+		final GccObjectCache cache = createCache();
+		cache.store(ncf, "warning: foo\n");
+		cache.close();
+
+		ncf.getObjectFile().delete();
+		ncf.getDependFile().delete();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	private GccObjectCache createCache() {
+		return createCache(1024 * 1024);
+	}
+
+	private GccObjectCache createCache(final long maxSize) {
+		return createCache(maxSize, directory, "gcc -O2");
+	}
+
+	private GccObjectCache createCache(final long maxSize, final File basedir, final String commandSignature) {
+		final FileStatusCache statusCache = new FileStatusCache();
+		final FileHashCache fileHashCache = new FileHashCache(mock(Log.class), new File(basedir, "hashes.properties"), statusCache);
+		return new GccObjectCache(mock(Log.class), cacheDirectory, maxSize, basedir, commandSignature, fileHashCache);
+	}
+
+	@Test
+	public void storedObjectShouldBeRestored() throws Exception {
+		assertTrue(createCache().restore(ncf));
+		assertEquals("object", FileUtils.fileRead(ncf.getObjectFile()));
+		assertTrue(FileUtils.fileRead(ncf.getDependFile()).contains(header.getAbsolutePath()));
+	}
+
+	@Test
+	public void changedHeaderShouldMissTheCache() throws Exception {
+		FileUtils.fileWrite(header.getPath(), "int foo(int);");
+		header.setLastModified(header.lastModified() + 10000);
+
+		assertFalse(createCache().restore(ncf));
+		assertFalse(ncf.getObjectFile().exists());
+	}
+
+	@Test
+	public void debugObjectsShouldOnlyBeSharedWithinTheirWorkspace() throws Exception {
+		FileUtils.fileWrite(ncf.getObjectFile().getPath(), "debug object");
+		FileUtils.fileWrite(ncf.getDependFile().getPath(), ncf.getObjectFile().getName() + ": Foo.cc " + header.getAbsolutePath() + "\n");
+		final GccObjectCache cache = createCache(1024 * 1024, directory, "gcc -O2 -g");
+		cache.store(ncf, "");
+		cache.close();
+
+		final File otherDirectory = new File(directory, "other");
+		final NativeCodeFile otherNcf = new NativeCodeFile("Foo.cc", otherDirectory, new File(otherDirectory, "obj"));
+		otherNcf.getObjectFile().getParentFile().mkdirs();
+		FileUtils.copyFile(ncf.getSourceFile(), otherNcf.getSourceFile());
+		FileUtils.copyFile(header, new File(otherDirectory, "Foo.h"));
+
+		assertTrue(createCache(1024 * 1024, otherDirectory, "gcc -O2").restore(otherNcf));
+		assertFalse(createCache(1024 * 1024, otherDirectory, "gcc -O2 -g").restore(otherNcf));
+	}
+
+	@Test
+	public void evictionShouldIncludeManifests() throws Exception {
+		FileUtils.fileWrite(ncf.getObjectFile().getPath(), "object");
+		FileUtils.fileWrite(ncf.getDependFile().getPath(), ncf.getObjectFile().getName() + ": Foo.cc\n");
+		final GccObjectCache cache = createCache(1);
+		cache.store(ncf, "");
+		cache.close();
+
+		assertEquals(0, FileUtils.getFiles(new File(cacheDirectory, "manifests"), "**/*.manifest", null).size());
+		assertEquals(0, FileUtils.getFiles(new File(cacheDirectory, "objects"), "**/*", null).size());
+	}
+}
@@ -0,0 +1,71 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestGccPrecompiledHeader {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("pch");
+		directory = temporaryDirectory.getDirectory();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void precompiledHeaderShouldBeNamedAfterUmbrellaHeader() {
+		final GccPrecompiledHeader header = new GccPrecompiledHeader(directory, Arrays.asList("vector"));
+
+		assertEquals(new File(directory, "pch/precompiled.hh.gch"), header.getObjectFile());
+		assertEquals(new File(directory, "pch/precompiled.d"), header.getDependFile());
+	}
+
+	@Test
+	public void changedHeaderListShouldMakeUmbrellaHeaderOutdated() throws Exception {
+		new GccPrecompiledHeader(directory, Arrays.asList("vector")).write();
+
+		assertTrue(new GccPrecompiledHeader(directory, Arrays.asList("vector")).isUpToDate());
+		assertFalse(new GccPrecompiledHeader(directory, Arrays.asList("vector", "map")).isUpToDate());
+	}
+
+	@Test
+	public void cFilesShouldNotUsePrecompiledHeader() {
+		assertFalse(GccPrecompiledHeader.isUsableBy(new NativeCodeFile("foo.c", directory, directory)));
+		assertTrue(GccPrecompiledHeader.isUsableBy(new NativeCodeFile("foo.cc", directory, directory)));
+	}
+}
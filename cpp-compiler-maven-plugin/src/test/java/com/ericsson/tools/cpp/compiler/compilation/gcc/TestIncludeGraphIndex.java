@@ -0,0 +1,71 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.gcc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+
+
+public class TestIncludeGraphIndex {
+	private TemporaryDirectory temporaryDirectory;
+	private File objDirectory;
+	private NativeCodeFile ncf;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("index");
+		objDirectory = temporaryDirectory.getDirectory();
+		ncf = new NativeCodeFile("Foo.cc", objDirectory, objDirectory);
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void includedFilesShouldSurvivePersistAndReload() {
+		final List<File> includedFiles = Arrays.asList(new File("include/Foo.h"), new File("include/Bar.h"));
+		final IncludeGraphIndex index = new IncludeGraphIndex(mock(Log.class), objDirectory);
+		index.update(ncf, 42, includedFiles);
+		index.persist();
+
+		assertEquals(includedFiles, new IncludeGraphIndex(mock(Log.class), objDirectory).getIncludedFiles(ncf, 42));
+	}
+
+	@Test
+	public void changedObjectFileShouldInvalidateEntry() {
+		final IncludeGraphIndex index = new IncludeGraphIndex(mock(Log.class), objDirectory);
+		index.update(ncf, 42, Arrays.asList(new File("include/Foo.h")));
+
+		assertNull(index.getIncludedFiles(ncf, 43));
+	}
+}
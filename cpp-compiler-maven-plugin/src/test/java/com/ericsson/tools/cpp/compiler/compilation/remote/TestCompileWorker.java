@@ -0,0 +1,123 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.compilation.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCompileWorker {
+	private CompileWorker worker;
+	private CompileWorkerPool pool;
+
+	@Before
+	public void setup() throws Exception {
+		worker = new CompileWorker(mock(Log.class), new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 2, Arrays.asList("gcc"));
+		worker.start();
+		new Thread() {
+			@Override
+			public void run() {
+				worker.serve();
+			}
+		}.start();
+
+		pool = new CompileWorkerPool("127.0.0.1:" + worker.getPort() + "/2");
+	}
+
+	@After
+	public void teardown() {
+		worker.stop();
+	}
+
+	@Test
+	public void preprocessedFileShouldBeCompiledToAnObject() throws Exception {
+		final CompileResult result = pool.compile(new CompileRequest("gcc", Arrays.asList("-fPIC", "-O2"), "f.i", "int f(void) { return 1; }\n".getBytes("UTF-8")));
+
+		assertTrue(result.getDiagnostics(), result.isSuccessful());
+		assertEquals(0x7f, result.getObject()[0]);
+		assertEquals('E', result.getObject()[1]);
+	}
+
+	@Test
+	public void compilerErrorsShouldBeReturned() throws Exception {
+		final CompileResult result = pool.compile(new CompileRequest("gcc", Collections.<String>emptyList(), "f.i", "int f(void) { return }\n".getBytes("UTF-8")));
+
+		assertTrue(!result.isSuccessful() && !result.isRejected());
+		assertTrue(result.getDiagnostics().contains("error"));
+	}
+
+	@Test
+	public void compilersNotAllowedShouldBeRejected() throws Exception {
+		assertTrue(pool.compile(new CompileRequest("sh", Collections.<String>emptyList(), "f.i", new byte[0])).isRejected());
+	}
+
+	@Test
+	public void argumentsReachingOutsideTheWorkerShouldBeRejected() throws Exception {
+		for(String argument : Arrays.asList("-fplugin=/tmp/plugin.so", "-fplugin=plugin", "-o", "/etc/passwd", "@args", "-O2; rm -rf /", "-fopt-info-all=/tmp/info", "-Wa,-o,/tmp/f.o", "-B/tmp", "-specs=f.specs", "-save-temps"))
+			assertTrue(argument, pool.compile(new CompileRequest("gcc", Collections.singletonList(argument), "f.i", new byte[0])).isRejected());
+	}
+
+	@Test
+	public void codeGenerationArgumentsShouldBeAllowed() throws Exception {
+		final CompileResult result = pool.compile(new CompileRequest("gcc", Arrays.asList("-fPIC", "-O2", "-g", "-Wall", "-Werror=return-type", "-std=c99", "-fopt-info-all=info.txt"), "f.i", "int f(void) { return 1; }\n".getBytes("UTF-8")));
+
+		assertTrue(result.getDiagnostics(), result.isSuccessful());
+	}
+
+	@Test
+	public void oversizedFileShouldNotBeSentToAWorker() throws Exception {
+		try {
+			pool.compile(new CompileRequest("gcc", Collections.<String>emptyList(), "f.i", new byte[WorkerProtocol.MAX_BLOB_LENGTH + 1]));
+			fail("Expected the oversized file to be refused.");
+		}
+		catch(IOException e) {
+		}
+
+		assertEquals(2, pool.getSlots());
+	}
+
+	@Test
+	public void unreachableWorkerShouldBeLeftOut() throws Exception {
+		final ServerSocket socket = new ServerSocket(0);
+		final int port = socket.getLocalPort();
+		socket.close();
+
+		final CompileWorkerPool unreachable = new CompileWorkerPool("127.0.0.1:" + port + "/3");
+		assertEquals(3, unreachable.getSlots());
+		try {
+			unreachable.compile(new CompileRequest("gcc", Collections.<String>emptyList(), "f.i", new byte[0]));
+			fail("Expected the unreachable worker to fail.");
+		}
+		catch(IOException e) {
+		}
+
+		assertEquals(0, unreachable.getSlots());
+	}
+}
@@ -16,21 +16,29 @@
 
 package com.ericsson.tools.cpp.compiler.dependencies;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.ericsson.tools.cpp.compiler.artifacts.ArtifactManager;
 import com.ericsson.tools.cpp.compiler.settings.DependencyExtractionSettings;
+import com.ericsson.tools.cpp.tools.environment.Environment;
 
 public class TestDependencyExtractor {
 	private Log log;
@@ -84,4 +92,78 @@ public class TestDependencyExtractor {
 		de.deleteInvalidatedDestination(testDirectory);
 		assertFalse(testDirectory.exists());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void noarchAndAllRequestedTargetsShouldBeExtractedFromEachArchive() throws Exception {
+		final File testDirectory = new File("target/extractionTest");
+		FileUtils.deleteDirectory(testDirectory);
+		final File car = createArchive(new File(testDirectory, "dep.car"), "noarch/include/dep.h", "linux_x86_64/lib/libdep.a", "linux_x86_32/lib/libdep.a", "osx_64/lib/libdep.a");
+		final File extractionRoot = new File(testDirectory, "extracted");
+
+		when(artifact.getFile()).thenReturn(car);
+		when(artifact.getVersion()).thenReturn("1.0");
+		when(artifactManager.getDependencyArtifacts()).thenReturn(Collections.singletonList(artifact));
+		when(settings.getDirectoryForDependecyArtifactExtraction(null, null, null)).thenReturn(extractionRoot);
+		when(settings.getJobs()).thenReturn(2);
+
+		de.secureAvailabilityOfExtractedDependencies(new Environment("linux_x86_64", "so"), new Environment("linux_x86_32", "so"));
+
+		final File destination = new File(extractionRoot, "main");
+		assertEquals("1.0", FileUtils.fileRead(new File(destination, "version")));
+		assertTrue(new File(destination, "noarch/include/dep.h").isFile());
+		assertTrue(new File(destination, "linux_x86_64/lib/libdep.a").isFile());
+		assertTrue(new File(destination, "linux_x86_32/lib/libdep.a").isFile());
+		assertFalse(new File(destination, "osx_64").exists());
+		assertEquals("noarch/include/dep.h", FileUtils.fileRead(new File(destination, "noarch/include/dep.h")));
+
+		FileUtils.deleteDirectory(testDirectory);
+	}
+
+	@Test
+	public void deletingDestinationShouldKeepLinkedDependenciesInStore() throws Exception {
+		final File testDirectory = new File("target/extractionStoreTest").getAbsoluteFile();
+		FileUtils.deleteDirectory(testDirectory);
+		final File car = createArchive(new File(testDirectory, "dep.car"), "noarch/include/dep.h");
+		final File extractionRoot = new File(testDirectory, "extracted");
+
+		when(artifact.getFile()).thenReturn(car);
+		when(artifact.getVersion()).thenReturn("1.0");
+		when(artifactManager.getDependencyArtifacts()).thenReturn(Collections.singletonList(artifact));
+		when(settings.getDirectoryForDependecyArtifactExtraction(null, null, null)).thenReturn(extractionRoot);
+		when(settings.getJobs()).thenReturn(1);
+		when(settings.getDependencyStoreDirectory()).thenReturn(new File(testDirectory, "store"));
+		when(settings.getDependencyStoreMaxSize()).thenReturn(Long.MAX_VALUE);
+
+		new DependencyExtractor(log, settings, artifactManager).secureAvailabilityOfExtractedDependencies();
+
+		final File header = new File(extractionRoot, "main/noarch/include/dep.h");
+		final File storedHeader = header.getCanonicalFile();
+		assertTrue(header.isFile());
+		assertFalse(header.getPath().equals(storedHeader.getPath()));
+
+		de.deleteInvalidatedDestination(new File(extractionRoot, "main"));
+		assertFalse(header.exists());
+		assertTrue(storedHeader.isFile());
+
+		storedHeader.getParentFile().getParentFile().setWritable(true);
+		storedHeader.getParentFile().setWritable(true);
+		FileUtils.deleteDirectory(testDirectory);
+	}
+
+	private File createArchive(final File file, final String... entries) throws IOException {
+		file.getParentFile().mkdirs();
+		final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			for(String entry : entries) {
+				out.putNextEntry(new ZipEntry(entry));
+				out.write(entry.getBytes("UTF-8"));
+				out.closeEntry();
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		return file;
+	}
+}
\ No newline at end of file
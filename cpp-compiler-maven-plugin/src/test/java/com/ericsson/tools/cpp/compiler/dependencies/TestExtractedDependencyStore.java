@@ -0,0 +1,119 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.dependencies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class TestExtractedDependencyStore {
+	private final File testDirectory = new File("target/dependencyStoreTest").getAbsoluteFile();
+	private final File storeDirectory = new File(testDirectory, "store");
+
+	@Before
+	public void setup() throws IOException {
+		FileUtils.deleteDirectory(testDirectory);
+	}
+
+	@After
+	public void teardown() throws IOException {
+		setWritable(testDirectory);
+		FileUtils.deleteDirectory(testDirectory);
+	}
+
+	@Test
+	public void destinationsShouldLinkToPartsExtractedOnce() throws Exception {
+		final File archive = createArchive(new File(testDirectory, "dep.car"), "noarch/include/dep.h", "linux_x86_64/lib/libdep.a", "osx_64/lib/libdep.a");
+		final File destination1 = createDirectory(new File(testDirectory, "project1"));
+		final File destination2 = createDirectory(new File(testDirectory, "project2"));
+
+		final ExtractedDependencyStore store = new ExtractedDependencyStore(mock(Log.class), storeDirectory, Long.MAX_VALUE);
+		store.link(archive, Arrays.asList("noarch", "linux_x86_64"), destination1);
+		store.link(archive, Collections.singletonList("noarch"), destination2);
+		store.close();
+
+		assertTrue(ExtractedDependencyStore.isSymbolicLink(new File(destination1, "noarch")));
+		assertTrue(ExtractedDependencyStore.isSymbolicLink(new File(destination1, "linux_x86_64")));
+		assertFalse(new File(destination1, "osx_64").exists());
+		assertEquals("noarch/include/dep.h", FileUtils.fileRead(new File(destination1, "noarch/include/dep.h")));
+		assertEquals(new File(destination1, "noarch").getCanonicalFile(), new File(destination2, "noarch").getCanonicalFile());
+		assertTrue(new File(destination1, "noarch").getCanonicalPath().startsWith(storeDirectory.getCanonicalPath()));
+	}
+
+	@Test
+	public void leastRecentlyLinkedPartsShouldBeEvictedAfterGracePeriod() throws Exception {
+		final File oldArchive = createArchive(new File(testDirectory, "old.car"), "noarch/old.h");
+		final File newArchive = createArchive(new File(testDirectory, "new.car"), "noarch/new.h");
+		final File destination = createDirectory(new File(testDirectory, "project"));
+
+		final ExtractedDependencyStore store = new ExtractedDependencyStore(mock(Log.class), storeDirectory, 1);
+		store.link(oldArchive, Collections.singletonList("noarch"), createDirectory(new File(testDirectory, "oldProject")));
+		final File oldPart = new File(testDirectory, "oldProject/noarch").getCanonicalFile();
+		oldPart.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000);
+		store.link(newArchive, Collections.singletonList("noarch"), destination);
+		store.close();
+
+		assertFalse(oldPart.exists());
+		assertTrue(new File(destination, "noarch/new.h").exists());
+	}
+
+	private File createDirectory(final File directory) {
+		directory.mkdirs();
+		return directory;
+	}
+
+	private void setWritable(final File file) {
+		file.setWritable(true);
+		final File[] children = file.listFiles();
+		if( children != null )
+			for(File child : children)
+				setWritable(child);
+	}
+
+	private File createArchive(final File file, final String... entries) throws IOException {
+		file.getParentFile().mkdirs();
+		final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			for(String entry : entries) {
+				out.putNextEntry(new ZipEntry(entry));
+				out.write(entry.getBytes("UTF-8"));
+				out.closeEntry();
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,130 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+
+
+public class TestUnityBuildPlanner {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+	private File sourceDirectory;
+	private File objDirectory;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("unity");
+		directory = temporaryDirectory.getDirectory();
+		sourceDirectory = new File(directory, "src");
+		objDirectory = new File(directory, "obj");
+		sourceDirectory.mkdirs();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	private Collection<NativeCodeFile> createCodeFiles(final int count) {
+		final Collection<NativeCodeFile> codeFiles = new ArrayList<NativeCodeFile>();
+		for(int i = 0; i < count; i++)
+			codeFiles.add(new NativeCodeFile("File" + i + ".cc", sourceDirectory, objDirectory));
+
+		return codeFiles;
+	}
+
+	private Set<String> getUnitContents(final Collection<NativeCodeFile> plannedFiles) throws IOException {
+		final Set<String> contents = new HashSet<String>();
+		for(NativeCodeFile plannedFile : plannedFiles)
+			if( plannedFile instanceof UnityNativeCodeFile )
+				contents.add(plannedFile.getSourceFile().getName() + ":" + FileUtils.fileRead(plannedFile.getSourceFile()));
+
+		return contents;
+	}
+
+	@Test
+	public void allFilesShouldBeIncludedExactlyOnce() throws Exception {
+		final Collection<NativeCodeFile> plannedFiles = new UnityBuildPlanner(mock(Log.class), 4, Collections.<File>emptySet(), objDirectory).plan(sourceDirectory, createCodeFiles(50));
+
+		int includedFiles = 0;
+		for(NativeCodeFile plannedFile : plannedFiles)
+			includedFiles += plannedFile instanceof UnityNativeCodeFile ? ((UnityNativeCodeFile)plannedFile).getMembers().size() : 1;
+
+		assertEquals(50, includedFiles);
+		assertTrue(plannedFiles.size() < 50);
+	}
+
+	@Test
+	public void addingAFileShouldLeaveMostGroupsUnchanged() throws Exception {
+		final Set<String> before = getUnitContents(new UnityBuildPlanner(mock(Log.class), 4, Collections.<File>emptySet(), objDirectory).plan(sourceDirectory, createCodeFiles(50)));
+		final Collection<NativeCodeFile> codeFiles = createCodeFiles(50);
+		codeFiles.add(new NativeCodeFile("File25a.cc", sourceDirectory, objDirectory));
+		final Set<String> after = getUnitContents(new UnityBuildPlanner(mock(Log.class), 4, Collections.<File>emptySet(), objDirectory).plan(sourceDirectory, codeFiles));
+
+		after.removeAll(before);
+		assertTrue(after.size() <= 2);
+	}
+
+	@Test
+	public void excludedFilesShouldBeCompiledOnTheirOwn() throws Exception {
+		final NativeCodeFile excluded = new NativeCodeFile("File3.cc", sourceDirectory, objDirectory);
+		final Collection<NativeCodeFile> plannedFiles = new UnityBuildPlanner(mock(Log.class), 4, Collections.singleton(excluded.getSourceFile().getAbsoluteFile()), objDirectory).plan(sourceDirectory, createCodeFiles(10));
+
+		boolean foundOnItsOwn = false;
+		for(NativeCodeFile plannedFile : plannedFiles) {
+			if( plannedFile.getSourceFile().equals(excluded.getSourceFile()) )
+				foundOnItsOwn = true;
+			if( plannedFile instanceof UnityNativeCodeFile )
+				for(NativeCodeFile member : ((UnityNativeCodeFile)plannedFile).getMembers())
+					assertFalse(member.getSourceFile().equals(excluded.getSourceFile()));
+		}
+
+		assertTrue(foundOnItsOwn);
+	}
+
+	@Test
+	public void unitsNoLongerPlannedShouldBeRemoved() throws Exception {
+		new UnityBuildPlanner(mock(Log.class), 4, Collections.<File>emptySet(), objDirectory).plan(sourceDirectory, createCodeFiles(20));
+
+		final UnityBuildPlanner planner = new UnityBuildPlanner(mock(Log.class), 4, Collections.<File>emptySet(), objDirectory);
+		planner.plan(sourceDirectory, createCodeFiles(20));
+		assertFalse(planner.removeObsoleteUnits());
+
+		final UnityBuildPlanner shrunkPlanner = new UnityBuildPlanner(mock(Log.class), 4, Collections.<File>emptySet(), objDirectory);
+		shrunkPlanner.plan(sourceDirectory, createCodeFiles(5));
+		assertTrue(shrunkPlanner.removeObsoleteUnits());
+	}
+}
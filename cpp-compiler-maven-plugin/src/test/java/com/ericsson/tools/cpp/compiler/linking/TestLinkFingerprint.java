@@ -0,0 +1,69 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+
+
+public class TestLinkFingerprint {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("fingerprint");
+		directory = temporaryDirectory.getDirectory();
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void recordedCommandShouldMatch() throws Exception {
+		new LinkFingerprint(directory, "libtest.so", "gcc -shared a.o b.o").record();
+
+		assertTrue(new LinkFingerprint(directory, "libtest.so", "gcc -shared a.o b.o").matches());
+	}
+
+	@Test
+	public void changedCommandShouldNotMatch() throws Exception {
+		new LinkFingerprint(directory, "libtest.so", "gcc -shared a.o b.o").record();
+
+		assertFalse(new LinkFingerprint(directory, "libtest.so", "gcc -shared a.o").matches());
+	}
+
+	@Test
+	public void invalidatedFingerprintShouldNotMatch() throws Exception {
+		final LinkFingerprint fingerprint = new LinkFingerprint(directory, "libtest.so", "gcc -shared a.o b.o");
+		fingerprint.record();
+		fingerprint.invalidate();
+
+		assertFalse(fingerprint.matches());
+	}
+}
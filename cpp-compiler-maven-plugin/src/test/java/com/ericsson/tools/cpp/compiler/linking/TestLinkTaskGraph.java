@@ -0,0 +1,133 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.tools.JobBudget;
+
+
+public class TestLinkTaskGraph {
+	private final List<String> linked = Collections.synchronizedList(new ArrayList<String>());
+	private final LinkTaskGraph graph = new LinkTaskGraph(mock(Log.class), new JobBudget(4), 2048);
+
+	@Test
+	public void dependentStepsShouldRunAfterTheirDependencies() throws Exception {
+		final LinkTaskGraph.Node library = graph.add("library", 0, new RecordingTask("library"));
+		graph.add("first", 1024, new RecordingTask("first"), library);
+		graph.add("second", 1024, new RecordingTask("second"), library);
+		graph.add("third", 4096, new RecordingTask("third"), library);
+
+		graph.execute();
+
+		assertEquals(4, linked.size());
+		assertEquals("library", linked.get(0));
+	}
+
+	@Test
+	public void failingStepShouldBeReported() throws Exception {
+		final MojoFailureException failure = new MojoFailureException("link failed");
+		final LinkTaskGraph.Node library = graph.add("library", 0, new LinkTaskGraph.LinkTask() {
+			@Override
+			public void link() throws MojoFailureException {
+				throw failure;
+			}
+		});
+		graph.add("executable", 1024, new RecordingTask("executable"), library);
+
+		try {
+			graph.execute();
+			fail("Expected the failing step to be reported.");
+		}
+		catch(MojoFailureException e) {
+			assertSame(failure, e);
+		}
+		assertEquals(0, linked.size());
+	}
+
+	@Test
+	public void sharedGraphsShouldReserveFromOneMemoryBudget() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Collection<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for(int i = 0; i < 2; i++) {
+				final LinkTaskGraph sharedGraph = LinkTaskGraph.createShared(mock(Log.class), new JobBudget(4), 1024);
+				sharedGraph.add("executable", 1024, new LinkTaskGraph.LinkTask() {
+					@Override
+					public void link() throws MojoExecutionException {
+						maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+						try {
+							Thread.sleep(100);
+						}
+						catch (InterruptedException e) {
+							throw new MojoExecutionException("Interrupted.", e);
+						}
+						running.decrementAndGet();
+					}
+				});
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						sharedGraph.execute();
+						return null;
+					}
+				}));
+			}
+
+			for(Future<Void> future : futures)
+				future.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertEquals("Steps of different graphs shouldn't together exceed the shared budget.", 1, maxRunning.get());
+	}
+
+	private class RecordingTask implements LinkTaskGraph.LinkTask {
+		private final String name;
+
+		public RecordingTask(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void link() {
+			linked.add(name);
+		}
+	}
+}
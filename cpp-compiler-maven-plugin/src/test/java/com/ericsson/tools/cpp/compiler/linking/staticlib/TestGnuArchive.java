@@ -0,0 +1,126 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking.staticlib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+
+
+public class TestGnuArchive {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+	private File libFile;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("archive");
+		directory = temporaryDirectory.getDirectory();
+		libFile = new File(directory, "libtest.a");
+
+		FileUtils.fileWrite(new File(directory, "short.o").getPath(), "short object");
+		FileUtils.fileWrite(new File(directory, "a_rather_long_object_name.o").getPath(), "long object");
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void writtenArchiveShouldBeReadBack() throws Exception {
+		final GnuArchive archive = new GnuArchive(false);
+		archive.put("short.o", new File(directory, "short.o"));
+		archive.put("sub/a_rather_long_object_name.o", new File(directory, "a_rather_long_object_name.o"));
+		archive.write(libFile);
+
+		final String contents = FileUtils.fileRead(libFile);
+		assertTrue(contents.startsWith("!<arch>\n"));
+		assertTrue(contents.contains("short object"));
+		assertTrue(contents.contains("long object"));
+
+		final GnuArchive readArchive = GnuArchive.read(libFile, false);
+		assertTrue(readArchive.contains("short.o"));
+		assertTrue(readArchive.contains("sub/a_rather_long_object_name.o"));
+		assertFalse(readArchive.isModified());
+	}
+
+	@Test
+	public void rewritingUnchangedMembersShouldGiveIdenticalArchive() throws Exception {
+		final GnuArchive archive = new GnuArchive(false);
+		archive.put("short.o", new File(directory, "short.o"));
+		archive.put("a_rather_long_object_name.o", new File(directory, "a_rather_long_object_name.o"));
+		archive.write(libFile);
+		final String first = FileUtils.fileRead(libFile);
+
+		final GnuArchive readArchive = GnuArchive.read(libFile, false);
+		readArchive.put("short.o", new File(directory, "short.o"));
+		readArchive.write(libFile);
+
+		assertEquals(first, FileUtils.fileRead(libFile));
+	}
+
+	@Test
+	public void membersNotRetainedShouldBeRemoved() throws Exception {
+		final GnuArchive archive = new GnuArchive(false);
+		archive.put("short.o", new File(directory, "short.o"));
+		archive.put("a_rather_long_object_name.o", new File(directory, "a_rather_long_object_name.o"));
+		archive.write(libFile);
+
+		final GnuArchive readArchive = GnuArchive.read(libFile, false);
+		assertEquals(1, readArchive.retainAll(Arrays.asList("short.o")));
+		readArchive.write(libFile);
+
+		final String contents = FileUtils.fileRead(libFile);
+		assertTrue(contents.contains("short object"));
+		assertFalse(contents.contains("long object"));
+	}
+
+	@Test
+	public void thinArchiveShouldOnlyReferToObjects() throws Exception {
+		final GnuArchive archive = new GnuArchive(true);
+		archive.put("short.o", new File(directory, "short.o"));
+		archive.write(libFile);
+
+		final String contents = FileUtils.fileRead(libFile);
+		assertTrue(contents.startsWith("!<thin>\n"));
+		assertTrue(contents.contains("short.o/"));
+		assertFalse(contents.contains("short object"));
+	}
+
+	@Test
+	public void archiveOfOtherKindShouldBeRebuilt() throws Exception {
+		final GnuArchive archive = new GnuArchive(false);
+		archive.put("short.o", new File(directory, "short.o"));
+		archive.write(libFile);
+
+		final GnuArchive thinArchive = GnuArchive.read(libFile, true);
+		assertTrue(thinArchive.isRebuilt());
+		assertFalse(thinArchive.contains("short.o"));
+	}
+}
@@ -0,0 +1,148 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.compiler.linking.staticlib;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.tools.cpp.compiler.TemporaryDirectory;
+import com.ericsson.tools.cpp.compiler.files.NativeCodeFile;
+import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
+import com.ericsson.tools.cpp.tools.FileStatusCache;
+import com.ericsson.tools.cpp.tools.JobBudget;
+import com.ericsson.tools.cpp.tools.environment.Environment;
+
+
+public class TestStaticArchiver {
+	private TemporaryDirectory temporaryDirectory;
+	private File directory;
+	private CompilationSettings settings;
+	private Collection<NativeCodeFile> codeFiles;
+
+	@Before
+	public void setup() throws IOException {
+		temporaryDirectory = new TemporaryDirectory("archiver");
+		directory = temporaryDirectory.getDirectory();
+
+		final MavenProject project = mock(MavenProject.class);
+		when(project.getArtifactId()).thenReturn("test");
+		settings = mock(CompilationSettings.class);
+		when(settings.getProject()).thenReturn(project);
+		when(settings.getStaticOutputDirectory(any(Environment.class), anyBoolean())).thenReturn(new File(directory, "lib"));
+		when(settings.getFileStatusCache()).thenReturn(new FileStatusCache());
+		when(settings.getJobBudget()).thenReturn(new JobBudget(1));
+
+		codeFiles = new ArrayList<NativeCodeFile>();
+		for(int i = 0; i < 3; i++) {
+			final NativeCodeFile codeFile = new NativeCodeFile("File" + i + ".cc", directory, directory);
+			FileUtils.fileWrite(codeFile.getObjectFile().getPath(), "object " + i);
+			codeFiles.add(codeFile);
+		}
+	}
+
+	@After
+	public void teardown() throws IOException {
+		temporaryDirectory.delete();
+	}
+
+	@Test
+	public void newLibraryShouldContainAllClasses() throws Exception {
+		final StaticArchiver archiver = new StaticArchiver(mock(Log.class), settings, mock(Environment.class));
+		archiver.start();
+		archiver.filesCompiled(Collections.singletonList(codeFiles.iterator().next()));
+		archiver.finish(codeFiles);
+
+		assertTrue(archiver.isFinished());
+		final String library = FileUtils.fileRead(new File(directory, "lib/libtest.a"));
+		for(int i = 0; i < 3; i++)
+			assertTrue(library.contains("object " + i));
+	}
+
+	@Test
+	public void archiverShouldNotTakeAnotherJobWhenTheCallerHoldsOne() throws Exception {
+		settings.getJobBudget().acquire();
+		try {
+			final StaticArchiver archiver = new StaticArchiver(mock(Log.class), settings, mock(Environment.class), true);
+			archiver.start();
+			archiver.finish(codeFiles);
+
+			assertTrue(archiver.isFinished());
+		}
+		finally {
+			settings.getJobBudget().release();
+		}
+	}
+
+	@Test
+	public void existingLibraryShouldOnlyGetCompiledClasses() throws Exception {
+		new File(directory, "lib").mkdirs();
+		FileUtils.fileWrite(new File(directory, "lib/libtest.a").getPath(), "!<arch>\n");
+
+		final StaticArchiver archiver = new StaticArchiver(mock(Log.class), settings, mock(Environment.class));
+		archiver.start();
+		archiver.filesCompiled(Collections.singletonList(codeFiles.iterator().next()));
+		archiver.finish(codeFiles);
+
+		final String library = FileUtils.fileRead(new File(directory, "lib/libtest.a"));
+		assertTrue(library.contains("object 0"));
+		assertFalse(library.contains("object 1"));
+	}
+
+	@Test
+	public void objectsCompiledBeforeAFailureShouldBeArchivedByTheNextBuild() throws Exception {
+		final StaticArchiver firstArchiver = new StaticArchiver(mock(Log.class), settings, mock(Environment.class));
+		firstArchiver.start();
+		firstArchiver.finish(codeFiles);
+
+		final File libFile = new File(directory, "lib/libtest.a");
+		final NativeCodeFile changed = codeFiles.iterator().next();
+		FileUtils.fileWrite(changed.getObjectFile().getPath(), "changed object");
+		changed.getObjectFile().setLastModified(libFile.lastModified() + 2000);
+
+		final StaticArchiver failedArchiver = new StaticArchiver(mock(Log.class), settings, mock(Environment.class));
+		failedArchiver.start();
+		failedArchiver.filesCompiled(Collections.singletonList(changed));
+		failedArchiver.stop();
+		assertFalse(failedArchiver.isFinished());
+
+		final StaticArchiver upToDateArchiver = new StaticArchiver(mock(Log.class), settings, mock(Environment.class));
+		upToDateArchiver.start();
+		upToDateArchiver.finish(codeFiles);
+
+		final String library = FileUtils.fileRead(libFile);
+		assertTrue(library.contains("changed object"));
+		assertFalse(library.contains("object 0"));
+		assertTrue(library.contains("object 1"));
+	}
+}
@@ -21,13 +21,11 @@ import java.util.Properties;
 import org.apache.maven.plugin.logging.Log;
 import com.ericsson.tools.cpp.compiler.bundle.BundleProvider;
 import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
-import com.ericsson.tools.cpp.compiler.compilation.gcc.GccIncludesAnalyzer;
 import com.ericsson.tools.cpp.compiler.compilation.gcc.GccRecompilationJudge;
 import com.ericsson.tools.cpp.compiler.dependencies.DependencyExtractor;
 import com.ericsson.tools.cpp.compiler.linking.AbstractLinker;
 import com.ericsson.tools.cpp.compiler.linking.executables.Executable;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
-import org.codehaus.plexus.util.cli.CommandLineUtils.StringStreamConsumer;
 
 import com.ericsson.tools.cpp.compiler.linux.compiler.Linux32Compiler;
 import com.ericsson.tools.cpp.compiler.linux.compiler.Linux64Compiler;
@@ -35,6 +33,7 @@ import com.ericsson.tools.cpp.compiler.linux.linking.executables.Linux32Executab
 import com.ericsson.tools.cpp.compiler.linux.linking.executables.Linux64ExecutableLinker;
 import com.ericsson.tools.cpp.compiler.linux.linking.sharedlib.Linux32SharedLinker;
 import com.ericsson.tools.cpp.compiler.linux.linking.sharedlib.Linux64SharedLinker;
+import com.ericsson.tools.cpp.tools.BoundedStreamConsumer;
 import com.ericsson.tools.cpp.tools.CliExecutor;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 import com.ericsson.tools.cpp.tools.environment.EnvironmentManager;
@@ -58,10 +57,10 @@ public class LinuxProvider implements BundleProvider {
 			return null;
 
 		if (target.equals(EnvironmentManager.LINUX_32))
-			return new Linux32Compiler(log, settings, target, new GccRecompilationJudge(log, new GccIncludesAnalyzer()));
+			return new Linux32Compiler(log, settings, target, GccRecompilationJudge.create(log, settings, target));
 
 		if (target.equals(EnvironmentManager.LINUX_64))
-			return new Linux64Compiler(log, settings, target, new GccRecompilationJudge(log, new GccIncludesAnalyzer()));
+			return new Linux64Compiler(log, settings, target, GccRecompilationJudge.create(log, settings, target));
 
 		log.warn(getClass().getSimpleName() + " failed to find a compiler for target " + target.getName() + ", even though it's supposedly supported!");
 		return null;
@@ -73,10 +72,10 @@ public class LinuxProvider implements BundleProvider {
 			return null;
 
 		if (target.equals(EnvironmentManager.LINUX_32))
-			return new Linux32ExecutableLinker(log, settings, target, executable, extractor);
+			return withSelectedLinker(new Linux32ExecutableLinker(log, settings, target, executable, extractor), settings, target);
 
 		if (target.equals(EnvironmentManager.LINUX_64))
-			return new Linux64ExecutableLinker(log, settings, target, executable, extractor);
+			return withSelectedLinker(new Linux64ExecutableLinker(log, settings, target, executable, extractor), settings, target);
 
 		log.warn(getClass().getSimpleName() + " failed to find an executable linker for target " + target.getName() + ", even though it's supposedly supported!");
 		return null;
@@ -88,15 +87,20 @@ public class LinuxProvider implements BundleProvider {
 			return null;
 
 		if (target.equals(EnvironmentManager.LINUX_32))
-			return new Linux32SharedLinker(log, settings, target);
+			return withSelectedLinker(new Linux32SharedLinker(log, settings, target), settings, target);
 
 		if (target.equals(EnvironmentManager.LINUX_64))
-			return new Linux64SharedLinker(log, settings, target);
+			return withSelectedLinker(new Linux64SharedLinker(log, settings, target), settings, target);
 
 		log.warn(getClass().getSimpleName() + " failed to find a shared linker for target " + target.getName() + ", even though it's supposedly supported!");
 		return null;
 	}
 
+	private AbstractLinker withSelectedLinker(final AbstractLinker linker, final CompilationSettings settings, final Environment target) {
+		linker.setLinker(compatibilityChecker.selectLinker("gcc", settings.getLinker(target)));
+		return linker;
+	}
+
 	@Override
 	public Environment determineHostEnvironment(Properties systemProperties) {
 		String osName = systemProperties.getProperty("os.name","");
@@ -109,7 +113,7 @@ public class LinuxProvider implements BundleProvider {
 		cli.getCommandline().createArg().setValue("-i");
 		try {
 			cli.execute();
-			final String output = ((StringStreamConsumer)cli.getStdOutConsumer()).getOutput();
+			final String output = ((BoundedStreamConsumer)cli.getStdOutConsumer()).getOutput();
 
 			if(output.contains("i386"))
 				return EnvironmentManager.LINUX_32;
@@ -21,13 +21,11 @@ import java.util.Properties;
 import org.apache.maven.plugin.logging.Log;
 import com.ericsson.tools.cpp.compiler.bundle.BundleProvider;
 import com.ericsson.tools.cpp.compiler.compilation.AbstractCompiler;
-import com.ericsson.tools.cpp.compiler.compilation.gcc.GccIncludesAnalyzer;
 import com.ericsson.tools.cpp.compiler.compilation.gcc.GccRecompilationJudge;
 import com.ericsson.tools.cpp.compiler.dependencies.DependencyExtractor;
 import com.ericsson.tools.cpp.compiler.linking.AbstractLinker;
 import com.ericsson.tools.cpp.compiler.linking.executables.Executable;
 import com.ericsson.tools.cpp.compiler.settings.CompilationSettings;
-import org.codehaus.plexus.util.cli.CommandLineUtils.StringStreamConsumer;
 
 import com.ericsson.tools.cpp.compiler.osx.compiler.OSX32Compiler;
 import com.ericsson.tools.cpp.compiler.osx.compiler.OSX64Compiler;
@@ -35,6 +33,7 @@ import com.ericsson.tools.cpp.compiler.osx.linking.executables.OSX32ExecutableLi
 import com.ericsson.tools.cpp.compiler.osx.linking.executables.OSX64ExecutableLinker;
 import com.ericsson.tools.cpp.compiler.osx.linking.sharedlib.OSX32SharedLinker;
 import com.ericsson.tools.cpp.compiler.osx.linking.sharedlib.OSX64SharedLinker;
+import com.ericsson.tools.cpp.tools.BoundedStreamConsumer;
 import com.ericsson.tools.cpp.tools.CliExecutor;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 import com.ericsson.tools.cpp.tools.environment.EnvironmentManager;
@@ -58,10 +57,10 @@ public class OSXProvider implements BundleProvider {
 			return null;
 
 		if (target.equals(EnvironmentManager.OSX_32))
-			return new OSX32Compiler(log, settings, target, new GccRecompilationJudge(log, new GccIncludesAnalyzer()));
+			return new OSX32Compiler(log, settings, target, GccRecompilationJudge.create(log, settings, target));
 
 		if (target.equals(EnvironmentManager.OSX_64))
-			return new OSX64Compiler(log, settings, target, new GccRecompilationJudge(log, new GccIncludesAnalyzer()));
+			return new OSX64Compiler(log, settings, target, GccRecompilationJudge.create(log, settings, target));
 
 		log.warn(getClass().getSimpleName() + " failed to find a compiler for target " + target.getName() + ", even though it's supposedly supported!");
 		return null;
@@ -118,7 +117,7 @@ public class OSXProvider implements BundleProvider {
 		cli.getCommandline().createArg().setValue("-m");
 		try {
 			cli.execute();
-			final String output = ((StringStreamConsumer)cli.getStdOutConsumer()).getOutput();
+			final String output = ((BoundedStreamConsumer)cli.getStdOutConsumer()).getOutput();
 
 			if(output.contains("i386"))
 			    {
@@ -0,0 +1,80 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.util.LinkedList;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Captures the output of a process in a bounded amount of memory. The first
+ * half of the limit keeps the beginning of the output, where compilers report
+ * the first error, and the second half is a ring buffer of the latest lines.
+ * Lines dropped in between are replaced by a count in {@link #getOutput()}.
+ */
+public class BoundedStreamConsumer implements StreamConsumer {
+	public static final int DEFAULT_LIMIT = 64 * 1024;
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private final int headLimit;
+	private final int tailLimit;
+	private final StringBuilder head = new StringBuilder();
+	private final LinkedList<String> tail = new LinkedList<String>();
+	private int tailLength = 0;
+	private long omittedLines = 0;
+
+	public BoundedStreamConsumer() {
+		this(DEFAULT_LIMIT);
+	}
+
+	/**
+	 * @param limit The maximum number of characters to keep
+	 */
+	public BoundedStreamConsumer(final int limit) {
+		this.headLimit = limit / 2;
+		this.tailLimit = limit - headLimit;
+	}
+
+	@Override
+	public synchronized void consumeLine(final String line) {
+		if( tail.isEmpty() && head.length() + line.length() + LINE_SEPARATOR.length() <= headLimit ) {
+			head.append(line).append(LINE_SEPARATOR);
+			return;
+		}
+
+		final String keptLine = line.length() + LINE_SEPARATOR.length() > tailLimit ? line.substring(0, Math.max(0, tailLimit - LINE_SEPARATOR.length())) : line;
+		tail.add(keptLine);
+		tailLength += keptLine.length() + LINE_SEPARATOR.length();
+
+		while( tailLength > tailLimit ) {
+			tailLength -= tail.removeFirst().length() + LINE_SEPARATOR.length();
+			omittedLines++;
+		}
+	}
+
+	public synchronized String getOutput() {
+		final StringBuilder output = new StringBuilder(head);
+		if( omittedLines > 0 )
+			output.append("[... ").append(omittedLines).append(" lines omitted ...]").append(LINE_SEPARATOR);
+
+		for(String line : tail)
+			output.append(line).append(LINE_SEPARATOR);
+
+		return output.toString();
+	}
+}
@@ -17,25 +17,66 @@
 package com.ericsson.tools.cpp.tools;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
-import org.codehaus.plexus.util.cli.CommandLineException;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.cli.Commandline;
 import org.codehaus.plexus.util.cli.StreamConsumer;
-import org.codehaus.plexus.util.cli.CommandLineUtils.StringStreamConsumer;
+import org.codehaus.plexus.util.cli.shell.BourneShell;
 
+/**
+ * Runs a command line through the shell, passing its output line by line to
+ * the stdout and stderr consumers. Unless other consumers are set, the output
+ * is captured in {@link BoundedStreamConsumer}s.<br />
+ * The output is pumped by a pool of daemon threads shared by all executions,
+ * and lines longer than {@link #MAX_LINE_LENGTH} are cut. A process still
+ * running after the timeout, or when the executing thread is interrupted,
+ * is destroyed.<br />
+ * Inputs, such as source and object files, are passed in response files if
+ * the command line would otherwise exceed {@link #MAX_COMMAND_LINE_LENGTH}.
+ */
 public class CliExecutor {
+	public static final int MAX_LINE_LENGTH = 16 * 1024;
+
+	/**
+	 * The shell gets the command line as a single argument, which Linux limits
+	 * to 128 kB regardless of ARG_MAX.
+	 */
+	public static final int MAX_COMMAND_LINE_LENGTH = 64 * 1024;
+
+	private static final ExecutorService pumps = Executors.newCachedThreadPool(new DaemonThreadFactory("Process Pump"));
+	private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Process Watchdog"));
+
 	private final Commandline commandLine;
+	private String executable;
 	private boolean initialized = false;
 	private final Log log;
-	private StreamConsumer stdOutConsumer = new StringStreamConsumer();
-	private StreamConsumer stdErrConsumer = new StringStreamConsumer();
+	private StreamConsumer stdOutConsumer = new BoundedStreamConsumer();
+	private StreamConsumer stdErrConsumer = new BoundedStreamConsumer();
 	private InputStream inStream = null;
+	private long timeout = 0;
+	private final List<int[]> inputRanges = new ArrayList<int[]>();
 	
 	public CliExecutor(Log log) {
 		this.log = log;
@@ -50,6 +91,7 @@ public class CliExecutor {
 	public void initialize(final File workingDirectory, final String executable) {
 		commandLine.setWorkingDirectory(workingDirectory);
 		commandLine.setExecutable(executable);
+		this.executable = executable;
 		initialized = true;
 	}
 	
@@ -61,33 +103,76 @@ public class CliExecutor {
 		if( !initialized )
 			throw new MojoExecutionException("Attempted to execute an uninitialized command line");
 		
-		try
-		{
-			log.debug( "About to execute \'" + commandLine.toString() + "\'" );
-
-			int result = CommandLineUtils.executeCommandLine( commandLine, inStream, getStdOutConsumer(), getStdErrConsumer() );
-
-			if ( failOnBadResult && result != 0 ) {
-				String exceptionMessage = "Failed to execute command line: \'" + commandLine.toString() + "\'. Result: \'" + result + "\'.";
-				if( stdErrConsumer instanceof StringStreamConsumer )
-					exceptionMessage += " StdErr: \'" + ((StringStreamConsumer)stdErrConsumer).getOutput() + "\'.";
-				
-				throw new MojoFailureException( exceptionMessage );
-				
-			}
+		log.debug( "About to execute \'" + commandLine.toString() + "\'" );
+
+		final List<File> responseFiles = new ArrayList<File>();
+		final Process process = start(responseFiles);
+		final AtomicBoolean timedOut = new AtomicBoolean(false);
+		final ScheduledFuture<?> timer = scheduleTimeout(process, timedOut);
+		final Future<?> stdOutPump = pumps.submit(new Pump(process.getInputStream(), getStdOutConsumer()));
+		final Future<?> stdErrPump = pumps.submit(new Pump(process.getErrorStream(), getStdErrConsumer()));
+		final Future<?> inFeeder = feedInput(process.getOutputStream());
 
-			log.debug("Successfully executed \'" + commandLine.toString() + "\'.");
-			return result;
+		final int result;
+		try {
+			result = process.waitFor();
+			awaitPump(stdOutPump);
+			awaitPump(stdErrPump);
 		}
-		catch ( CommandLineException e )
-		{
-			throw new MojoExecutionException( "Command line execution failed.", e );
+		catch (InterruptedException e) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while executing \'" + commandLine.toString() + "\'. The process was destroyed.", e);
+		}
+		finally {
+			if( timer != null )
+				timer.cancel(false);
+			if( inFeeder != null )
+				inFeeder.cancel(true);
+			deleteResponseFiles(responseFiles);
+		}
+
+		if( timedOut.get() )
+			log.warn("Destroyed \'" + commandLine.toString() + "\' after the timeout of " + timeout + " ms.");
+
+		if ( failOnBadResult && result != 0 ) {
+			String exceptionMessage = "Failed to execute command line: \'" + commandLine.toString() + "\'. Result: \'" + result + "\'.";
+			if( timedOut.get() )
+				exceptionMessage += " Timed out after " + timeout + " ms.";
+			if( stdErrConsumer instanceof BoundedStreamConsumer )
+				exceptionMessage += " StdErr: \'" + ((BoundedStreamConsumer)stdErrConsumer).getOutput() + "\'.";
+			
+			throw new MojoFailureException( exceptionMessage );
 		}
+
+		log.debug("Successfully executed \'" + commandLine.toString() + "\'.");
+		return result;
 	}
 	
 	public void appendFiles(Collection<File> files) {
+		final Collection<String> inputs = new ArrayList<String>();
 		for(File file : files)
-			commandLine.createArg().setValue(file.toString());
+			inputs.add(file.toString());
+
+		appendInputs(inputs);
+	}
+
+	public void appendArguments(Collection<String> arguments) {
+		for(String argument : arguments)
+			commandLine.createArg().setValue(argument);
+	}
+
+	/**
+	 * Appends arguments that may be moved to a response file. They must be
+	 * taken literally, as the shell doesn't see the content of response files.
+	 */
+	public void appendInputs(Collection<String> inputs) {
+		if( inputs.isEmpty() )
+			return;
+
+		final int start = commandLine.getArguments().length;
+		appendArguments(inputs);
+		inputRanges.add(new int[] { start, start + inputs.size() });
 	}
 
 	public Commandline getCommandline() {
@@ -113,4 +198,237 @@ public class CliExecutor {
 	public void setInStream(InputStream inStream) {
 		this.inStream = inStream;
 	}
+
+	/**
+	 * @param timeout The number of milliseconds after which the process is destroyed, or 0 to wait indefinitely
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	private Process start(final List<File> responseFiles) throws MojoExecutionException {
+		try {
+			final ProcessBuilder builder = new ProcessBuilder(getProcessCommand(responseFiles));
+			if( commandLine.getWorkingDirectory() != null )
+				builder.directory(commandLine.getWorkingDirectory());
+
+			return builder.start();
+		}
+		catch (IOException e) {
+			deleteResponseFiles(responseFiles);
+			throw new MojoExecutionException( "Command line execution failed.", e );
+		}
+	}
+
+	/**
+	 * A Bourne shell is made to replace itself with the command, so that
+	 * destroying the process stops the command rather than only the shell.
+	 */
+	private List<String> getProcessCommand(final List<File> responseFiles) throws IOException {
+		final Commandline effectiveCommandLine = !inputRanges.isEmpty() && getLength(commandLine) > MAX_COMMAND_LINE_LENGTH ? withResponseFiles(responseFiles) : commandLine;
+		final List<String> command = new ArrayList<String>(Arrays.asList(effectiveCommandLine.getShellCommandline()));
+		if( effectiveCommandLine.getShell() instanceof BourneShell && command.size() == 3 ) {
+			final String shellCommand = command.get(2);
+			final int changeDirectory = shellCommand.startsWith("cd ") ? shellCommand.indexOf(" && ") : -1;
+			final int commandStart = changeDirectory < 0 ? 0 : changeDirectory + " && ".length();
+			command.set(2, shellCommand.substring(0, commandStart) + "exec " + shellCommand.substring(commandStart));
+		}
+
+		return command;
+	}
+
+	private static int getLength(final Commandline commandLine) {
+		int length = 0;
+		for(String part : commandLine.getShellCommandline())
+			length += part.length() + 1;
+
+		return length;
+	}
+
+	/**
+	 * @return A copy of the command line with each range of inputs replaced by a response file
+	 */
+	private Commandline withResponseFiles(final List<File> responseFiles) throws IOException {
+		final String[] arguments = commandLine.getArguments();
+		final Commandline shortened = new Commandline();
+		shortened.getShell().setQuotedArgumentsEnabled(false);
+		shortened.setWorkingDirectory(commandLine.getWorkingDirectory());
+		shortened.setExecutable(executable);
+
+		int next = 0;
+		for(int[] range : inputRanges) {
+			for(; next < range[0]; next++)
+				shortened.createArg().setValue(arguments[next]);
+
+			final File responseFile = File.createTempFile("cpp-", ".rsp");
+			responseFiles.add(responseFile);
+			writeResponseFile(responseFile, Arrays.asList(arguments).subList(range[0], range[1]));
+			shortened.createArg().setValue("@" + responseFile.getAbsolutePath());
+			next = range[1];
+		}
+
+		for(; next < arguments.length; next++)
+			shortened.createArg().setValue(arguments[next]);
+
+		log.debug("Passing " + (arguments.length - shortened.getArguments().length + responseFiles.size()) + " inputs in " + responseFiles.size() + " response files.");
+		return shortened;
+	}
+
+	/**
+	 * Writes one argument per line, escaped the way gcc and binutils read @file.
+	 */
+	private static void writeResponseFile(final File responseFile, final List<String> arguments) throws IOException {
+		final StringBuilder content = new StringBuilder();
+		for(String argument : arguments) {
+			for(int i = 0; i < argument.length(); i++) {
+				final char c = argument.charAt(i);
+				if( Character.isWhitespace(c) || c == '\\' || c == '\'' || c == '"' )
+					content.append('\\');
+				content.append(c);
+			}
+			content.append('\n');
+		}
+
+		FileUtils.fileWrite(responseFile.getPath(), content.toString());
+	}
+
+	private void deleteResponseFiles(final List<File> responseFiles) {
+		for(File responseFile : responseFiles)
+			if( !responseFile.delete() )
+				log.debug("Failed to delete response file " + responseFile + ".");
+	}
+
+	private ScheduledFuture<?> scheduleTimeout(final Process process, final AtomicBoolean timedOut) {
+		if( timeout <= 0 )
+			return null;
+
+		return watchdog.schedule(new Runnable() {
+			@Override
+			public void run() {
+				timedOut.set(true);
+				process.destroy();
+			}
+		}, timeout, TimeUnit.MILLISECONDS);
+	}
+
+	private Future<?> feedInput(final OutputStream processInput) {
+		if( inStream == null ) {
+			closeQuietly(processInput);
+			return null;
+		}
+
+		return pumps.submit(new Runnable() {
+			@Override
+			public void run() {
+				final byte[] buffer = new byte[8192];
+				try {
+					int read;
+					while( (read = inStream.read(buffer)) != -1 ) {
+						processInput.write(buffer, 0, read);
+						processInput.flush();
+					}
+				}
+				catch (IOException e) {
+					log.debug("Stopped feeding input to \'" + commandLine.toString() + "\': " + e);
+				}
+				finally {
+					closeQuietly(processInput);
+				}
+			}
+		});
+	}
+
+	private void awaitPump(final Future<?> pump) throws InterruptedException {
+		try {
+			pump.get();
+		}
+		catch (ExecutionException e) {
+			log.debug("Failed to read the output of \'" + commandLine.toString() + "\': " + e.getCause());
+		}
+	}
+
+	private static void closeQuietly(final OutputStream stream) {
+		try {
+			stream.close();
+		}
+		catch (IOException e) {
+			// The process has already exited
+		}
+	}
+
+	/**
+	 * Splits a stream into lines for a consumer, without keeping more than
+	 * {@link CliExecutor#MAX_LINE_LENGTH} characters of any line in memory.
+	 */
+	private static class Pump implements Runnable {
+		private final InputStream stream;
+		private final StreamConsumer consumer;
+
+		public Pump(final InputStream stream, final StreamConsumer consumer) {
+			this.stream = stream;
+			this.consumer = consumer;
+		}
+
+		@Override
+		public void run() {
+			final Reader reader = new InputStreamReader(stream);
+			final char[] buffer = new char[8192];
+			final StringBuilder line = new StringBuilder();
+			boolean pendingLine = false;
+
+			try {
+				int read;
+				while( (read = reader.read(buffer)) != -1 ) {
+					for(int i = 0; i < read; i++) {
+						final char c = buffer[i];
+						if( c == '\n' ) {
+							consume(line);
+							pendingLine = false;
+						}
+						else {
+							if( line.length() < MAX_LINE_LENGTH )
+								line.append(c);
+							pendingLine = true;
+						}
+					}
+				}
+
+				if( pendingLine )
+					consume(line);
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			finally {
+				try {
+					reader.close();
+				}
+				catch (IOException e) {
+					// Nothing more to read
+				}
+			}
+		}
+
+		private void consume(final StringBuilder line) {
+			final int length = line.length();
+			consumer.consumeLine(length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString());
+			line.setLength(0);
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		public DaemonThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, name + " " + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
@@ -0,0 +1,69 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+/**
+ * An executable and the arguments shared by all its invocations for a
+ * target, split once. Templates are immutable, and can be used by any number
+ * of threads to initialize executors.
+ */
+public final class CommandTemplate {
+	private final String executable;
+	private final List<String> arguments;
+
+	public CommandTemplate(final String executable, final List<String> arguments) {
+		this.executable = executable;
+		this.arguments = Collections.unmodifiableList(new ArrayList<String>(arguments));
+	}
+
+	/**
+	 * Splits a line of arguments the way {@link org.codehaus.plexus.util.cli.Arg#setLine(String)} does.
+	 */
+	public static List<String> splitLine(final String line) throws MojoExecutionException {
+		if( line == null )
+			return Collections.emptyList();
+
+		try {
+			return Arrays.asList(CommandLineUtils.translateCommandline(line));
+		}
+		catch (Exception e) {
+			throw new MojoExecutionException("Failed to split arguments \"" + line + "\".", e);
+		}
+	}
+
+	public void initialize(final CliExecutor executor, final File workingDirectory) {
+		executor.initialize(workingDirectory, executable);
+		executor.appendArguments(arguments);
+	}
+
+	public String getExecutable() {
+		return executable;
+	}
+
+	public List<String> getArguments() {
+		return arguments;
+	}
+}
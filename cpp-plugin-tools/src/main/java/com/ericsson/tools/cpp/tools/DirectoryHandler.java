@@ -32,9 +32,15 @@ public class DirectoryHandler {
 	}
 	
 	private final Log log;
+	private final FileStatusCache fileStatusCache;
 
 	public DirectoryHandler(final Log log) {
+		this(log, new FileStatusCache());
+	}
+
+	public DirectoryHandler(final Log log, final FileStatusCache fileStatusCache) {
 		this.log = log;
+		this.fileStatusCache = fileStatusCache;
 	}
 
 	/**
@@ -107,8 +113,10 @@ public class DirectoryHandler {
 		try {
 			if( source.isDirectory() )
 				copyDirectoryRecursively(source, destination, overwriteStyle);
-			else if( fileShallBeCopied(source, destination, overwriteStyle) )
+			else if( fileShallBeCopied(source, destination, overwriteStyle) ) {
 				FileUtils.copyFile(source, destination);
+				fileStatusCache.invalidate(destination);
+			}
 		}
 		catch(IOException e) {
 			throw new MojoExecutionException("Failed to perform copy of " + source + " to " + destination + ".", e);
@@ -120,10 +128,10 @@ public class DirectoryHandler {
 		if( overwriteStyle == OverwriteStyle.ALWAYS_OVERWRITE )
 			return true;
 		
-		if( !destination.exists() )
+		if( !fileStatusCache.exists(destination) )
 			return true;
 		
-		if( overwriteStyle == OverwriteStyle.OVERWRITE_IF_NEWER && source.lastModified() > destination.lastModified() )
+		if( overwriteStyle == OverwriteStyle.OVERWRITE_IF_NEWER && fileStatusCache.lastModified(source) > fileStatusCache.lastModified(destination) )
 			return true;
 		
 		return false;
@@ -140,4 +148,4 @@ public class DirectoryHandler {
 		for(File file : source.listFiles())
 			copyRecursively(file, new File(destination, file.getName()), overwriteStyle);
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
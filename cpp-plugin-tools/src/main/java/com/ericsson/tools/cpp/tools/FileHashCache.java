@@ -0,0 +1,164 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A persistent cache of MD5 hashes of file contents. A cached hash is
+ * reused for as long as the modification time and size of the file are
+ * unchanged, so only files that were actually touched are read again.
+ * The cache can be shared between threads.
+ */
+public class FileHashCache {
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Log log;
+	private final File storeFile;
+	private final FileStatusCache fileStatusCache;
+	private final ConcurrentMap<String, String> entries = new ConcurrentHashMap<String, String>();
+	private volatile boolean modified = false;
+
+	public FileHashCache(final Log log, final File storeFile, final FileStatusCache fileStatusCache) {
+		this.log = log;
+		this.storeFile = storeFile;
+		this.fileStatusCache = fileStatusCache;
+	}
+
+	public synchronized void load() {
+		if( !storeFile.exists() )
+			return;
+
+		final Properties properties = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(storeFile);
+			properties.load(in);
+			for(Map.Entry<Object, Object> entry : properties.entrySet())
+				entries.put((String)entry.getKey(), (String)entry.getValue());
+
+			log.debug("Loaded " + entries.size() + " file hashes from " + storeFile);
+		}
+		catch (IOException e) {
+			log.warn("Failed to read file hashes from " + storeFile + ". All files will be hashed again.", e);
+			entries.clear();
+		}
+		finally {
+			close(in);
+		}
+	}
+
+	public synchronized void save() {
+		if( !modified )
+			return;
+
+		final Properties properties = new Properties();
+		properties.putAll(entries);
+
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(storeFile);
+			properties.store(out, "File content hashes: modification time,size,md5");
+			modified = false;
+		}
+		catch (IOException e) {
+			log.warn("Failed to write file hashes to " + storeFile + ".", e);
+		}
+		finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * @return The hex encoded MD5 hash of the contents of the file
+	 * @throws IOException	Thrown if the file does not exist or could not be read
+	 */
+	public String getHash(final File file) throws IOException {
+		final String key = file.getPath();
+		final String stamp = fileStatusCache.lastModified(file) + "," + fileStatusCache.length(file) + ",";
+
+		final String entry = entries.get(key);
+		if( entry != null && entry.startsWith(stamp) )
+			return entry.substring(stamp.length());
+
+		final String hash = hash(file);
+		entries.put(key, stamp + hash);
+		modified = true;
+		return hash;
+	}
+
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not supported by this JVM.", e);
+		}
+	}
+
+	public static String toHex(final byte[] bytes) {
+		final char[] hex = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+
+		return new String(hex);
+	}
+
+	private String hash(final File file) throws IOException {
+		final MessageDigest digest = createDigest();
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[65536];
+			int read;
+			while( (read = in.read(buffer)) != -1 )
+				digest.update(buffer, 0, read);
+		}
+		finally {
+			in.close();
+		}
+
+		return toHex(digest.digest());
+	}
+
+	private void close(final Closeable closeable) {
+		if( closeable == null )
+			return;
+
+		try {
+			closeable.close();
+		}
+		catch (IOException e) {
+			log.debug("Failed to close " + storeFile, e);
+		}
+	}
+}
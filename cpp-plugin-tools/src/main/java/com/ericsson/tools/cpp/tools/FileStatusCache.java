@@ -0,0 +1,95 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache of file status (existence, modification time and size),
+ * meant to live for the duration of one build. Each path is only queried
+ * from the file system once, unless invalidated. Anyone writing a file that
+ * may already have been queried must invalidate it.
+ */
+public class FileStatusCache {
+	private final ConcurrentMap<File, FileStatus> statuses = new ConcurrentHashMap<File, FileStatus>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public boolean exists(final File file) {
+		return getStatus(file).exists;
+	}
+
+	/**
+	 * @return The modification time of the file, or 0 if the file does not exist
+	 */
+	public long lastModified(final File file) {
+		return getStatus(file).lastModified;
+	}
+
+	/**
+	 * @return The size of the file, or 0 if the file does not exist
+	 */
+	public long length(final File file) {
+		return getStatus(file).length;
+	}
+
+	public void invalidate(final File file) {
+		statuses.remove(file);
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return statuses.size() + " files cached, " + hits.get() + " hits, " + misses.get() + " misses";
+	}
+
+	private FileStatus getStatus(final File file) {
+		final FileStatus cachedStatus = statuses.get(file);
+		if( cachedStatus != null ) {
+			hits.incrementAndGet();
+			return cachedStatus;
+		}
+
+		misses.incrementAndGet();
+		final FileStatus status = new FileStatus(file);
+		final FileStatus concurrentlyCachedStatus = statuses.putIfAbsent(file, status);
+		return concurrentlyCachedStatus != null ? concurrentlyCachedStatus : status;
+	}
+
+	private static class FileStatus {
+		private final boolean exists;
+		private final long lastModified;
+		private final long length;
+
+		public FileStatus(final File file) {
+			final long lastModified = file.lastModified();
+			this.exists = lastModified != 0 || file.exists();
+			this.lastModified = lastModified;
+			this.length = exists ? file.length() : 0;
+		}
+	}
+}
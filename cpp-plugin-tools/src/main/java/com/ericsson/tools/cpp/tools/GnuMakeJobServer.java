@@ -0,0 +1,144 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A client of the GNU make jobserver, letting a build started from make share
+ * the job limit of make.<br />
+ * make hands out tokens through a pipe, given in MAKEFLAGS either as a pair of
+ * inherited file descriptors (--jobserver-auth=R,W or --jobserver-fds=R,W) or
+ * as a named pipe (--jobserver-auth=fifo:PATH). A client owns one implicit
+ * token, and must read a token from the pipe for each additional concurrent
+ * job and write it back when the job is done.
+ */
+public class GnuMakeJobServer {
+	private static final String[] AUTH_OPTIONS = { "--jobserver-auth=", "--jobserver-fds=" };
+
+	private final Log log;
+	private final String description;
+	private final InputStream tokenSource;
+	private final OutputStream tokenSink;
+	private final AtomicBoolean implicitTokenAvailable = new AtomicBoolean(true);
+	private final ConcurrentLinkedQueue<Integer> heldTokens = new ConcurrentLinkedQueue<Integer>();
+
+	GnuMakeJobServer(final Log log, final String description, final InputStream tokenSource, final OutputStream tokenSink) {
+		this.log = log;
+		this.description = description;
+		this.tokenSource = tokenSource;
+		this.tokenSink = tokenSink;
+	}
+
+	/**
+	 * @param makeflags	The MAKEFLAGS environment variable, or null
+	 * @return			A client of the jobserver described by the flags, or null if there is none or it isn't accessible
+	 */
+	public static GnuMakeJobServer connect(final Log log, final String makeflags) {
+		if( makeflags == null )
+			return null;
+
+		String auth = null;
+		for(String flag : makeflags.split("\\s+"))
+			for(String option : AUTH_OPTIONS)
+				if( flag.startsWith(option) )
+					auth = flag.substring(option.length());
+
+		if( auth == null )
+			return null;
+
+		try {
+			if( auth.startsWith("fifo:") ) {
+				final File fifo = new File(auth.substring("fifo:".length()));
+				return new GnuMakeJobServer(log, fifo.getPath(), new FileInputStream(fifo), new FileOutputStream(fifo));
+			}
+
+			final String[] descriptors = auth.split(",");
+			if( descriptors.length != 2 || descriptors[0].startsWith("-") || descriptors[1].startsWith("-") )
+				return null;
+
+			final File readDescriptor = new File("/dev/fd", descriptors[0]);
+			final File writeDescriptor = new File("/dev/fd", descriptors[1]);
+			if( !readDescriptor.exists() || !writeDescriptor.exists() )
+				return null;
+
+			return new GnuMakeJobServer(log, "file descriptors " + auth, new FileInputStream(readDescriptor), new FileOutputStream(writeDescriptor));
+		}
+		catch (FileNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Takes the implicit token if it's free, or else waits for a token from make.
+	 */
+	public void acquire() throws MojoExecutionException {
+		if( implicitTokenAvailable.compareAndSet(true, false) )
+			return;
+
+		try {
+			final int token = tokenSource.read();
+			if( token == -1 )
+				throw new MojoExecutionException("The make jobserver at " + description + " was closed.");
+
+			heldTokens.add(token);
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("Failed to read a token from the make jobserver at " + description + ".", e);
+		}
+	}
+
+	/**
+	 * Returns a token read from make, or the implicit token if none is held.
+	 * Jobs release their tokens while cleaning up, so a token that can't be
+	 * written back is dropped with a warning rather than failing the job, and
+	 * make runs with one job less.
+	 */
+	public void release() {
+		final Integer token = heldTokens.poll();
+		if( token == null ) {
+			implicitTokenAvailable.set(true);
+			return;
+		}
+
+		try {
+			synchronized(tokenSink) {
+				tokenSink.write(token);
+				tokenSink.flush();
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to return a token to the make jobserver at " + description + ", dropping it: " + e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "make jobserver at " + description;
+	}
+}
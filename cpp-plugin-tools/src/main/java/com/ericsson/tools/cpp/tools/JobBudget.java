@@ -0,0 +1,147 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.util.concurrent.Semaphore;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The number of external tool processes, such as compilers, linkers and test
+ * binaries, that may run at the same time. One budget is shared by everything
+ * running in the JVM, so that concurrent targets and modules built with
+ * mvn -T don't oversubscribe the machine. If Maven was started from make with
+ * a jobserver, each job also takes a token from make, so that the limit is
+ * shared with the surrounding build.<br />
+ * Every {@link #acquire()} must be followed by a {@link #release()}, and a job
+ * must not wait for more than one slot at a time. A job holding a slot may
+ * take more with {@link #tryAcquire(int)}, for tools that run in parallel
+ * themselves.
+ */
+public class JobBudget {
+	private static JobBudget shared;
+
+	private final int jobs;
+	private final Semaphore slots;
+	private final GnuMakeJobServer jobServer;
+
+	public JobBudget(final int jobs) {
+		this(jobs, null);
+	}
+
+	public JobBudget(final int jobs, final GnuMakeJobServer jobServer) {
+		this.jobs = jobs;
+		this.slots = new Semaphore(jobs, true);
+		this.jobServer = jobServer;
+	}
+
+	/**
+	 * The JVM-wide budget is created by the first caller, with a client of the
+	 * make jobserver given in MAKEFLAGS if there is one.
+	 *
+	 * @param jobs	The number of jobs of the budget. Later callers share the budget created first, and are warned if they ask for another number.
+	 */
+	public static synchronized JobBudget getShared(final Log log, final int jobs) {
+		if( shared == null )
+			shared = new JobBudget(jobs, GnuMakeJobServer.connect(log, System.getenv("MAKEFLAGS")));
+		else if( jobs != shared.jobs )
+			log.warn("Sharing the budget of " + shared.jobs + " jobs set first in this JVM, rather than " + jobs + " jobs.");
+
+		return shared;
+	}
+
+	/**
+	 * Waits for a free slot.
+	 *
+	 * @throws MojoExecutionException	Thrown if interrupted while waiting
+	 */
+	public void acquire() throws MojoExecutionException {
+		try {
+			slots.acquire();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for a free job slot.", e);
+		}
+
+		if( jobServer != null ) {
+			boolean acquired = false;
+			try {
+				jobServer.acquire();
+				acquired = true;
+			}
+			finally {
+				if( !acquired )
+					slots.release();
+			}
+		}
+	}
+
+	public void release() {
+		if( jobServer != null )
+			jobServer.release();
+
+		slots.release();
+	}
+
+	/**
+	 * Takes free slots without waiting. Tokens of a make jobserver can't be
+	 * taken without waiting, so no slots are taken when there is one. Tools
+	 * that run in parallel should then use the jobserver themselves.
+	 *
+	 * @param wanted	The number of slots wanted
+	 * @return			The number of slots taken, to be given back with {@link #release(int)}
+	 */
+	public int tryAcquire(final int wanted) {
+		if( jobServer != null )
+			return 0;
+
+		int acquired = 0;
+		while( acquired < wanted && slots.tryAcquire() )
+			acquired++;
+
+		return acquired;
+	}
+
+	/**
+	 * Gives back slots taken by {@link #tryAcquire(int)}.
+	 */
+	public void release(final int acquired) {
+		slots.release(acquired);
+	}
+
+	/**
+	 * @return Whether the budget is shared with a make jobserver
+	 */
+	public boolean hasJobServer() {
+		return jobServer != null;
+	}
+
+	public int getJobs() {
+		return jobs;
+	}
+
+	public int getAvailableJobs() {
+		return slots.availablePermits();
+	}
+
+	@Override
+	public String toString() {
+		return (jobs - slots.availablePermits()) + " of " + jobs + " jobs running" + (jobServer != null ? ", shared with " + jobServer : "");
+	}
+}
@@ -25,6 +25,7 @@ import java.util.Map;
 
 import org.apache.maven.project.MavenProject;
 
+import com.ericsson.tools.cpp.tools.FileStatusCache;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 import com.ericsson.tools.cpp.tools.environment.EnvironmentManager;
 
@@ -39,6 +40,7 @@ public class PluginSettingsImpl {
 	private final File testOutputDirectory;
 	private final File attachedOutputDirectory;
 	private final File testAttachedOutputDirectory;
+	private final FileStatusCache fileStatusCache = new FileStatusCache();
 
 	public PluginSettingsImpl(final MavenProject project, final Map<String, String> configuredSources, final File outputDirectory, final File testOutputDirectory) {
 		this.project = project;
@@ -76,6 +78,13 @@ public class PluginSettingsImpl {
 		return project;
 	}
 
+	/**
+	 * @return The file status cache shared by everything using these settings during the build
+	 */
+	public FileStatusCache getFileStatusCache() {
+		return fileStatusCache;
+	}
+
 	public File getCodeDirectory(final Environment environment, final boolean test) {
 		return new File(getSourcesDirectory(environment, test), "cpp");
 	}
@@ -255,4 +264,4 @@ public class PluginSettingsImpl {
 		}
 		return dependencies;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+
+public class TestCliExecutor {
+	private static final String EOL = System.getProperty("line.separator");
+
+	@Test
+	public void outputShouldBeCapturedLineByLine() throws Exception {
+		final CliExecutor cli = new CliExecutor(mock(Log.class));
+		cli.initialize("printf");
+		cli.getCommandline().createArg().setValue("'first\\nsecond'");
+
+		assertEquals(0, cli.execute());
+		assertEquals("first" + EOL + "second" + EOL, ((BoundedStreamConsumer)cli.getStdOutConsumer()).getOutput());
+	}
+
+	@Test
+	public void missingExecutableShouldReturnShellResult() throws Exception {
+		final CliExecutor cli = new CliExecutor(mock(Log.class));
+		cli.initialize("no-such-command-for-cli-executor");
+
+		assertEquals(127, cli.execute(false));
+	}
+
+	@Test
+	public void processShouldBeDestroyedAfterTimeout() throws Exception {
+		final CliExecutor cli = new CliExecutor(mock(Log.class));
+		cli.initialize("sleep");
+		cli.getCommandline().createArg().setValue("30");
+		cli.setTimeout(200);
+
+		final long start = System.currentTimeMillis();
+		assertTrue(cli.execute(false) != 0);
+		assertTrue(System.currentTimeMillis() - start < 10000);
+	}
+
+	@Test
+	public void shortInputsShouldStayOnTheCommandLine() throws Exception {
+		final CliExecutor cli = new CliExecutor(mock(Log.class));
+		cli.initialize("echo");
+		cli.appendInputs(Arrays.asList("a.cc", "b.cc"));
+
+		cli.execute();
+		assertEquals("a.cc b.cc" + EOL, ((BoundedStreamConsumer)cli.getStdOutConsumer()).getOutput());
+	}
+
+	@Test
+	public void longInputsShouldBePassedInAResponseFile() throws Exception {
+		final List<String> inputs = new ArrayList<String>();
+		for(int i = 0; i < 10000; i++)
+			inputs.add("source" + i + ".cc");
+
+		final CliExecutor cli = new CliExecutor(mock(Log.class));
+		cli.initialize("echo");
+		cli.getCommandline().createArg().setValue("-n");
+		cli.appendInputs(inputs);
+
+		assertEquals(0, cli.execute(false));
+		final String output = ((BoundedStreamConsumer)cli.getStdOutConsumer()).getOutput().trim();
+		assertTrue(output.startsWith("@"));
+		assertFalse(new File(output.substring(1)).exists());
+	}
+
+	@Test
+	public void boundedConsumerShouldKeepFirstAndLatestLines() {
+		final BoundedStreamConsumer consumer = new BoundedStreamConsumer(40);
+		for(int i = 0; i < 100; i++)
+			consumer.consumeLine("line" + i);
+
+		final String output = consumer.getOutput();
+		assertTrue(output.startsWith("line0" + EOL));
+		assertTrue(output.endsWith("line99" + EOL));
+		assertTrue(output.contains(" lines omitted ..."));
+		assertTrue(output.length() < 100);
+	}
+}
@@ -0,0 +1,69 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TestFileStatusCache {
+	private FileStatusCache cache;
+	private File file;
+
+	@Before
+	public void setup() {
+		cache = new FileStatusCache();
+		file = mock(File.class);
+		when(file.exists()).thenReturn(true);
+		when(file.lastModified()).thenReturn(1l);
+		when(file.length()).thenReturn(10l);
+	}
+
+	@Test
+	public void repeatedQueriesShouldOnlyStatOnce() {
+		assertTrue(cache.exists(file));
+		assertEquals(1l, cache.lastModified(file));
+		assertEquals(10l, cache.length(file));
+
+		verify(file, times(1)).lastModified();
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void invalidatedFileShouldBeStatedAgain() {
+		cache.lastModified(file);
+		when(file.lastModified()).thenReturn(2l);
+		cache.invalidate(file);
+
+		assertEquals(2l, cache.lastModified(file));
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void missingFileShouldReportZeroes() {
+		when(file.exists()).thenReturn(false);
+		when(file.lastModified()).thenReturn(0l);
+
+		assertFalse(cache.exists(file));
+		assertEquals(0l, cache.length(file));
+	}
+}
@@ -0,0 +1,82 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+
+import org.junit.Test;
+
+public class TestGnuMakeJobServer {
+
+	@Test
+	public void makeflagsWithoutJobserverShouldGiveNoClient() {
+		assertNull(GnuMakeJobServer.connect(mock(Log.class), null));
+		assertNull(GnuMakeJobServer.connect(mock(Log.class), "-j8 -k"));
+		assertNull(GnuMakeJobServer.connect(mock(Log.class), "-j8 --jobserver-auth=-1,-1"));
+	}
+
+	@Test
+	public void firstJobShouldUseTheImplicitToken() throws Exception {
+		final ByteArrayInputStream tokens = new ByteArrayInputStream(new byte[] { '+' });
+		final GnuMakeJobServer jobServer = new GnuMakeJobServer(mock(Log.class), "test", tokens, new ByteArrayOutputStream());
+
+		jobServer.acquire();
+		assertEquals(1, tokens.available());
+	}
+
+	@Test
+	public void readTokensShouldBeWrittenBack() throws Exception {
+		final ByteArrayOutputStream returnedTokens = new ByteArrayOutputStream();
+		final GnuMakeJobServer jobServer = new GnuMakeJobServer(mock(Log.class), "test", new ByteArrayInputStream(new byte[] { '+', '-' }), returnedTokens);
+
+		jobServer.acquire();
+		jobServer.acquire();
+		jobServer.acquire();
+		jobServer.release();
+		jobServer.release();
+		jobServer.release();
+
+		assertArrayEquals(new byte[] { '+', '-' }, returnedTokens.toByteArray());
+	}
+
+	@Test
+	public void tokenThatCantBeWrittenBackShouldBeDropped() throws Exception {
+		final OutputStream closedPipe = new OutputStream() {
+			@Override
+			public void write(final int b) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+		};
+		final GnuMakeJobServer jobServer = new GnuMakeJobServer(mock(Log.class), "test", new ByteArrayInputStream(new byte[] { '+' }), closedPipe);
+
+		jobServer.acquire();
+		jobServer.acquire();
+		jobServer.release();
+		jobServer.release();
+		jobServer.acquire();
+	}
+}
@@ -0,0 +1,63 @@
+/* 
+ *  Copyright 2012 Ericsson AB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.ericsson.tools.cpp.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestJobBudget {
+
+	@Test
+	public void releasedSlotsShouldBecomeAvailableAgain() throws Exception {
+		final JobBudget budget = new JobBudget(2);
+		budget.acquire();
+		budget.acquire();
+		assertEquals(0, budget.getAvailableJobs());
+
+		budget.release();
+		assertEquals(1, budget.getAvailableJobs());
+	}
+
+	@Test
+	public void acquireShouldWaitForAFreeSlot() throws Exception {
+		final JobBudget budget = new JobBudget(1);
+		final CountDownLatch acquired = new CountDownLatch(1);
+		budget.acquire();
+
+		final Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				try {
+					budget.acquire();
+					acquired.countDown();
+				}
+				catch (Exception e) {
+				}
+			}
+		};
+		waiter.start();
+
+		assertEquals(false, acquired.await(100, TimeUnit.MILLISECONDS));
+		budget.release();
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -86,6 +86,12 @@ public class HelpMojo extends AbstractHelpMojo {
 		getLog().info("    runValgrind:      Whether to execute Valgrind. If true, Valgrind is expected to be present on the path.");
 		getLog().info("    suppressionsFile: File containing Valgrind suppressions. Only used if runValgrind is true."); 
 		getLog().info("                      Default: ${basedir}/src/test/cpp/valgrind.supp");
+		getLog().info("    jobs:             The maximum number of processes to run concurrently, shared by all modules built in the JVM.");
+		getLog().info("                      Defaults to the number of logical cores. Also settable through the cpp.jobs system property.");
+		getLog().info("    trainingExecutables: Names of main executables to run in addition to the tests, such as benchmarks.");
+		getLog().info("                      Used as a training workload when collecting profile data for profile-guided optimization.");
+		getLog().info("    testTimeout:      The number of seconds after which a test binary is killed and reported as failed.");
+		getLog().info("                      Defaults to 0, no limit. Also settable through the cpp.testTimeout system property.");
 		getLog().info("    skipTests:        Prevents execution of test cases."); 
 		getLog().info("    skip:             Prevents execution of test cases.");
 		getLog().info("                      Also settable through the maven.test.skip system property, which will also prevent cpp-compiler-maven-plugin from compiling test cases."); 
@@ -19,6 +19,7 @@ package com.ericsson.tools.cpp.tester;
 import java.io.File;
 import java.io.FileFilter;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
@@ -32,6 +33,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
 import com.ericsson.tools.cpp.tools.CliExecutor;
+import com.ericsson.tools.cpp.tools.JobBudget;
 import com.ericsson.tools.cpp.tools.environment.Environment;
 import com.ericsson.tools.cpp.tools.environment.EnvironmentManager;
 import com.ericsson.tools.cpp.tools.settings.PluginSettingsImpl;
@@ -122,6 +124,40 @@ public class TestMojo extends AbstractMojo
 	 * @parameter default-value="false" expression="${maven.test.skip}"
 	 */
 	private boolean skip;	
+
+	/**
+	 * The maximum number of processes to run concurrently. The limit is
+	 * shared with cpp-compiler-maven-plugin and any other module built in
+	 * the same JVM, and with make if Maven was started from make.<br />
+	 * If undefined, or less than 1, one job per logical core will be used.<br />
+	 * Can be set via the cpp.jobs system property.
+	 *
+	 * @parameter expression="${cpp.jobs}" default-value="0"
+	 * @since 1.1.0
+	 */
+	private int jobs;
+
+	/**
+	 * Names of executables, built by cpp-compiler-maven-plugin from the main
+	 * sources, to run in addition to the test binaries. Run instrumented for
+	 * profile-guided optimization, they serve as a training workload that
+	 * writes profile data representative of production use. They are run
+	 * without arguments, and fail the build like tests when they fail.
+	 *
+	 * @parameter
+	 * @since 1.1.0
+	 */
+	private List<String> trainingExecutables;
+
+	/**
+	 * The number of seconds a test binary may run before it is killed and
+	 * reported as failed. 0 lets tests run indefinitely.<br />
+	 * Can be set via the cpp.testTimeout system property.
+	 *
+	 * @parameter expression="${cpp.testTimeout}" default-value="0"
+	 * @since 1.1.0
+	 */
+	private int testTimeout;
 	
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		if( skip || skipTests ) {
@@ -132,14 +168,23 @@ public class TestMojo extends AbstractMojo
 		final long startTime = Calendar.getInstance().getTimeInMillis();
 
 		final Environment hostEnvironment = determineHostEnvironment();
-		final TestSettings settings = new TestSettings(project, suppressionsFile);
+		final TestSettings settings = new TestSettings(project, suppressionsFile, testTimeout * 1000L);
 		final TestExecutor executor = getTestExecutor(settings);
 
 		final Map<File, Integer> testResults = new HashMap<File, Integer>();
-		final List<File> testBinaries = findTestBinaries(hostEnvironment, settings);
+		final List<File> testBinaries = new ArrayList<File>(findTestBinaries(hostEnvironment, settings));
+		testBinaries.addAll(findTrainingExecutables(hostEnvironment, settings));
 
-		for(File testBinary : testBinaries)
-			testResults.put(testBinary, executor.execute(testBinary));
+		final JobBudget jobBudget = JobBudget.getShared(getLog(), jobs < 1 ? Runtime.getRuntime().availableProcessors() : jobs);
+		for(File testBinary : testBinaries) {
+			jobBudget.acquire();
+			try {
+				testResults.put(testBinary, executor.execute(testBinary));
+			}
+			finally {
+				jobBudget.release();
+			}
+		}
 
 		final long doneTime = Calendar.getInstance().getTimeInMillis();
 		report(testResults, doneTime - startTime);
@@ -165,7 +210,7 @@ public class TestMojo extends AbstractMojo
 				getLog().warn("Valgrind is unavailable. Falling back to raw test execution.");
 		}
 
-		return new RawTestExecutor(getLog());
+		return new RawTestExecutor(getLog(), settings);
 	}
 
 	private void report(final Map<File, Integer> testResults, final long timeSpent) throws MojoFailureException {
@@ -203,6 +248,23 @@ public class TestMojo extends AbstractMojo
 		return executor.execute(false) != 127;
 	}
 
+	private List<File> findTrainingExecutables(final Environment environment, final PluginSettingsImpl settings) throws MojoExecutionException {
+		final List<File> files = new ArrayList<File>();
+		if( trainingExecutables == null )
+			return files;
+
+		final File directory = settings.getExecutablesOutputDirectory(environment, false);
+		for(String name : trainingExecutables) {
+			final File file = new File(directory, name);
+			if( !file.canExecute() )
+				throw new MojoExecutionException("Training executable " + name + " was not found in " + directory + ".");
+			files.add(file);
+		}
+
+		getLog().debug("Found " + files.size() + " training executables in " + directory);
+		return files;
+	}
+
 	@SuppressWarnings("unchecked")
 	private List<File> findTestBinaries(final Environment environment, final PluginSettingsImpl settings) {
 		final File directory = settings.getExecutablesOutputDirectory(environment, true);
@@ -25,14 +25,23 @@ import com.ericsson.tools.cpp.tools.settings.PluginSettingsImpl;
 public class TestSettings extends PluginSettingsImpl {
 
 	private final File suppressionFile;
+	private final long timeout;
 
-	public TestSettings(final MavenProject project, final File suppressionFile) {
+	public TestSettings(final MavenProject project, final File suppressionFile, final long timeout) {
 		super(project, null, null);
 		this.suppressionFile = suppressionFile;
+		this.timeout = timeout;
 	}
 
 	public File getSuppressionFile() {
 		return suppressionFile;
 	}
 
+	/**
+	 * @return The number of milliseconds after which a test binary is killed, or 0 for no limit
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
 }
@@ -17,6 +17,7 @@
 package com.ericsson.tools.cpp.tester.execution;
 
 import org.apache.maven.plugin.logging.Log;
+import com.ericsson.tools.cpp.tester.TestSettings;
 import com.ericsson.tools.cpp.tools.CliExecutor;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
@@ -24,8 +25,9 @@ import org.codehaus.plexus.util.cli.StreamConsumer;
 public abstract class AbstractTestExecutor implements TestExecutor {
 	protected final CliExecutor cli;
 	
-	public AbstractTestExecutor(final Log log) {
+	public AbstractTestExecutor(final Log log, final TestSettings settings) {
 		cli = new CliExecutor(log);
+		cli.setTimeout(settings.getTimeout());
 
 		cli.setStdOutConsumer(new StreamConsumer() {
 			@Override
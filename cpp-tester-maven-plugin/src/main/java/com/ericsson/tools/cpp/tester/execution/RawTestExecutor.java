@@ -22,10 +22,12 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 
+import com.ericsson.tools.cpp.tester.TestSettings;
+
 public class RawTestExecutor extends AbstractTestExecutor {
 
-	public RawTestExecutor(final Log log) {
-		super(log);
+	public RawTestExecutor(final Log log, final TestSettings settings) {
+		super(log, settings);
 	}
 	
 	@Override
@@ -30,7 +30,7 @@ public class ValgrindTestExecutor extends AbstractTestExecutor {
 	private String suppressionsArgument;
 
 	public ValgrindTestExecutor(final Log log, final TestSettings settings) {
-		super(log);
+		super(log, settings);
 		
 		if( settings.getSuppressionFile().exists() )
 			suppressionsArgument = "--suppressions=" + settings.getSuppressionFile();